@@ -0,0 +1,59 @@
+package com.example.smtpmock.benchmark;
+
+import com.example.smtpmock.model.EmailSummary;
+import com.example.smtpmock.model.StoredEmail;
+import com.example.smtpmock.service.EmailStoreService;
+import com.example.smtpmock.smtp.MockMessageListener;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encoding of the frames {@code EmailWebSocketHandler.broadcastEmail} sends, with an
+ * {@link ObjectMapper} configured as in {@code application.yml}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+public class BroadcastSerializationBenchmark {
+
+    @Param({"PLAIN", "ALTERNATIVE", "ATTACHMENTS", "NESTED"})
+    private MessageCorpus corpus;
+
+    private ObjectMapper objectMapper;
+    private StoredEmail email;
+
+    @Setup
+    public void setUp() throws Exception {
+        objectMapper = Jackson2ObjectMapperBuilder.json()
+                .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .build();
+        email = new MockMessageListener(new EmailStoreService(event -> { }), false).parse(corpus.bytes());
+    }
+
+    @Benchmark
+    public byte[] fullPayload() throws Exception {
+        return objectMapper.writeValueAsBytes(email);
+    }
+
+    @Benchmark
+    public byte[] summaryPayload() throws Exception {
+        return objectMapper.writeValueAsBytes(EmailSummary.of(email));
+    }
+}
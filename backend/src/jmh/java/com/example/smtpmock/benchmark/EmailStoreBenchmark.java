@@ -0,0 +1,92 @@
+package com.example.smtpmock.benchmark;
+
+import com.example.smtpmock.model.StoredEmail;
+import com.example.smtpmock.service.EmailStoreService;
+import com.example.smtpmock.store.EvictionPolicy;
+import com.example.smtpmock.store.RetentionPolicy;
+import com.example.smtpmock.store.SearchQuery;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Insert and lookup against a store already holding {@code size} emails. The store is capped
+ * at that size, so every insert also pays for the eviction that keeps it there.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class EmailStoreBenchmark {
+
+    private static final int RECIPIENTS = 1000;
+
+    @Param({"1000", "100000", "1000000"})
+    private int size;
+
+    private EmailStoreService store;
+    private UUID[] ids;
+    private long sequence;
+    private int cursor;
+
+    @Setup
+    public void setUp() {
+        store = new EmailStoreService(event -> { },
+                new RetentionPolicy(size, 0, Duration.ZERO, EvictionPolicy.OLDEST_FIRST, 32));
+        ids = new UUID[size];
+        Instant start = Instant.now().minusSeconds(size);
+        for (int i = 0; i < size; i++) {
+            StoredEmail email = email(i, start.plusSeconds(i));
+            ids[i] = email.getId();
+            store.store(email);
+        }
+        sequence = size;
+    }
+
+    @Benchmark
+    public StoredEmail insert() {
+        return store.store(email(sequence++, null));
+    }
+
+    @Benchmark
+    public Optional<StoredEmail> findById() {
+        return store.findById(ids[nextIndex()]);
+    }
+
+    @Benchmark
+    public List<StoredEmail> searchByRecipient() {
+        return store.search(new SearchQuery("user" + (nextIndex() % RECIPIENTS) + "@example.com", null, null, null), 50);
+    }
+
+    private int nextIndex() {
+        cursor = (cursor + 7919) % size;
+        return cursor;
+    }
+
+    private static StoredEmail email(long i, Instant receivedAt) {
+        // Sequential ids keep UUID.randomUUID()'s SecureRandom out of the measurement.
+        return new StoredEmail(new UUID(0, i), "sender@example.com",
+                Collections.singletonList("user" + (i % RECIPIENTS) + "@example.com"),
+                Collections.emptyList(), Collections.emptyList(),
+                "Message " + i, "Body of message " + i, receivedAt,
+                "Subject: Message " + i + "\r\n\r\nBody of message " + i + "\r\n", Collections.emptyList());
+    }
+}
@@ -0,0 +1,115 @@
+package com.example.smtpmock.benchmark;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Random;
+
+/**
+ * Representative raw messages for the parsing and serialization benchmarks. Content is
+ * generated from a fixed seed so every run, on every commit, parses the same bytes.
+ */
+public enum MessageCorpus {
+
+    PLAIN {
+        @Override
+        String body(Random random) {
+            return headers("text/plain; charset=UTF-8") + "\r\n" + text(random, 40);
+        }
+    },
+    ALTERNATIVE {
+        @Override
+        String body(Random random) {
+            String text = text(random, 40);
+            return headers("multipart/alternative; boundary=\"alt\"") + "\r\n"
+                    + part("alt", "text/plain; charset=UTF-8", null, text)
+                    + part("alt", "text/html; charset=UTF-8", null, "<html><body><p>" + text + "</p></body></html>\r\n")
+                    + "--alt--\r\n";
+        }
+    },
+    ATTACHMENTS {
+        @Override
+        String body(Random random) {
+            StringBuilder message = new StringBuilder(headers("multipart/mixed; boundary=\"mix\"")).append("\r\n")
+                    .append(part("mix", "text/plain; charset=UTF-8", null, text(random, 20)));
+            for (int i = 1; i <= 5; i++) {
+                message.append(part("mix", "application/octet-stream", "report-" + i + ".bin",
+                        base64(random, 32 * 1024)));
+            }
+            return message.append("--mix--\r\n").toString();
+        }
+    },
+    NESTED {
+        @Override
+        String body(Random random) {
+            // mixed > related > alternative, with a forwarded message carrying its own attachment.
+            String alternative = "Content-Type: multipart/alternative; boundary=\"alt\"\r\n\r\n"
+                    + part("alt", "text/plain; charset=UTF-8", null, text(random, 20))
+                    + part("alt", "text/html; charset=UTF-8", null, "<p>" + text(random, 20) + "</p>\r\n")
+                    + "--alt--\r\n";
+            String related = "Content-Type: multipart/related; boundary=\"rel\"\r\n\r\n"
+                    + "--rel\r\n" + alternative
+                    + part("rel", "image/png", "logo.png", base64(random, 4 * 1024))
+                    + "--rel--\r\n";
+            String forwarded = "Content-Type: message/rfc822\r\n\r\n"
+                    + headers("multipart/mixed; boundary=\"fwd\"") + "\r\n"
+                    + part("fwd", "text/plain; charset=UTF-8", null, text(random, 10))
+                    + part("fwd", "application/pdf", "forwarded.pdf", base64(random, 16 * 1024))
+                    + "--fwd--\r\n";
+            return headers("multipart/mixed; boundary=\"mix\"") + "\r\n"
+                    + "--mix\r\n" + related
+                    + "--mix\r\n" + forwarded
+                    + part("mix", "text/csv", "data.csv", text(random, 50))
+                    + "--mix--\r\n";
+        }
+    };
+
+    private static final String WORDS = "lorem ipsum dolor sit amet consectetur adipiscing elit sed do eiusmod "
+            + "tempor incididunt ut labore et dolore magna aliqua";
+
+    abstract String body(Random random);
+
+    public byte[] bytes() {
+        return body(new Random(42)).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String headers(String contentType) {
+        return "From: Sender <sender@example.com>\r\n"
+                + "To: alice@example.com, bob@example.com\r\n"
+                + "Cc: carol@example.com\r\n"
+                + "Subject: Benchmark message\r\n"
+                + "Date: Mon, 1 Jan 2024 00:00:00 +0000\r\n"
+                + "Message-ID: <benchmark@example.com>\r\n"
+                + "MIME-Version: 1.0\r\n"
+                + "Content-Type: " + contentType + "\r\n";
+    }
+
+    private static String part(String boundary, String contentType, String fileName, String content) {
+        StringBuilder part = new StringBuilder("--").append(boundary).append("\r\n")
+                .append("Content-Type: ").append(contentType).append("\r\n");
+        if (fileName != null) {
+            part.append("Content-Disposition: attachment; filename=\"").append(fileName).append("\"\r\n");
+            if (!contentType.startsWith("text/")) {
+                part.append("Content-Transfer-Encoding: base64\r\n");
+            }
+        }
+        return part.append("\r\n").append(content).toString();
+    }
+
+    private static String text(Random random, int lines) {
+        String[] words = WORDS.split(" ");
+        StringBuilder text = new StringBuilder();
+        for (int line = 0; line < lines; line++) {
+            for (int word = 0; word < 12; word++) {
+                text.append(words[random.nextInt(words.length)]).append(word < 11 ? ' ' : '\r');
+            }
+            text.append('\n');
+        }
+        return text.toString();
+    }
+
+    private static String base64(Random random, int size) {
+        byte[] data = new byte[size];
+        random.nextBytes(data);
+        return Base64.getMimeEncoder().encodeToString(data) + "\r\n";
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.smtpmock.benchmark;
+
+import com.example.smtpmock.model.StoredEmail;
+import com.example.smtpmock.service.EmailStoreService;
+import com.example.smtpmock.smtp.MockMessageListener;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Eager and lazy parsing of each {@link MessageCorpus} message, as done on ingest.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+public class MimeParsingBenchmark {
+
+    @Param({"PLAIN", "ALTERNATIVE", "ATTACHMENTS", "NESTED"})
+    private MessageCorpus corpus;
+
+    private byte[] raw;
+    private MockMessageListener eager;
+    private MockMessageListener lazy;
+
+    @Setup
+    public void setUp() {
+        raw = corpus.bytes();
+        EmailStoreService store = new EmailStoreService(event -> { });
+        eager = new MockMessageListener(store, false);
+        lazy = new MockMessageListener(store, true);
+    }
+
+    @Benchmark
+    public StoredEmail eagerParse() throws Exception {
+        return eager.parse(raw);
+    }
+
+    @Benchmark
+    public StoredEmail lazyParseHeaders() throws Exception {
+        return lazy.parse(raw);
+    }
+
+    @Benchmark
+    public String lazyParseOnFirstRead() throws Exception {
+        StoredEmail email = lazy.parse(raw);
+        email.getAttachments();
+        return email.getBody();
+    }
+}
@@ -0,0 +1,105 @@
+package com.example.smtpmock.loadtest;
+
+import com.example.smtpmock.smtp.IngestProperties;
+import com.example.smtpmock.smtp.SmtpListenerProperties;
+
+import java.util.Locale;
+
+/**
+ * Command-line options of {@link SmtpLoadTest}, given as {@code --name=value}.
+ */
+class LoadOptions {
+
+    int clients = 16;
+    int messages = 20_000;
+    int warmup = 2_000;
+    int size = 4 * 1024;
+    double attachmentRatio = 0.2;
+    int attachments = 2;
+    int attachmentSize = 64 * 1024;
+    SmtpListenerProperties.Acceptor acceptor = SmtpListenerProperties.Acceptor.THREAD;
+    int workerThreads = Math.max(1, Runtime.getRuntime().availableProcessors());
+    IngestProperties.Mode mode = IngestProperties.Mode.SYNC;
+    boolean lazyParsing;
+    boolean chunking;
+    int retain = 10_000;
+    int port;
+    long seed = 42;
+    int visibleTimeoutSeconds = 30;
+
+    static LoadOptions parse(String[] args) {
+        LoadOptions options = new LoadOptions();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || arg.indexOf('=') < 0) {
+                throw new IllegalArgumentException("Expected --name=value but got " + arg);
+            }
+            String name = arg.substring(2, arg.indexOf('='));
+            String value = arg.substring(arg.indexOf('=') + 1);
+            switch (name) {
+                case "clients":
+                    options.clients = Integer.parseInt(value);
+                    break;
+                case "messages":
+                    options.messages = Integer.parseInt(value);
+                    break;
+                case "warmup":
+                    options.warmup = Integer.parseInt(value);
+                    break;
+                case "size":
+                    options.size = Integer.parseInt(value);
+                    break;
+                case "attachment-ratio":
+                    options.attachmentRatio = Double.parseDouble(value);
+                    break;
+                case "attachments":
+                    options.attachments = Integer.parseInt(value);
+                    break;
+                case "attachment-size":
+                    options.attachmentSize = Integer.parseInt(value);
+                    break;
+                case "acceptor":
+                    options.acceptor = SmtpListenerProperties.Acceptor.valueOf(value.toUpperCase(Locale.ROOT));
+                    break;
+                case "worker-threads":
+                    options.workerThreads = Integer.parseInt(value);
+                    break;
+                case "mode":
+                    options.mode = IngestProperties.Mode.valueOf(value.toUpperCase(Locale.ROOT));
+                    break;
+                case "lazy-parsing":
+                    options.lazyParsing = Boolean.parseBoolean(value);
+                    break;
+                case "chunking":
+                    options.chunking = Boolean.parseBoolean(value);
+                    break;
+                case "retain":
+                    options.retain = Integer.parseInt(value);
+                    break;
+                case "port":
+                    options.port = Integer.parseInt(value);
+                    break;
+                case "seed":
+                    options.seed = Long.parseLong(value);
+                    break;
+                case "visible-timeout":
+                    options.visibleTimeoutSeconds = Integer.parseInt(value);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option --" + name);
+            }
+        }
+        if (options.clients < 1 || options.messages < 1 || options.warmup < 0) {
+            throw new IllegalArgumentException("--clients and --messages must be positive, --warmup not negative");
+        }
+        return options;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT,
+                "clients=%d messages=%d warmup=%d size=%d attachment-ratio=%.2f attachments=%d attachment-size=%d "
+                        + "acceptor=%s worker-threads=%d mode=%s lazy-parsing=%s chunking=%s retain=%d seed=%d",
+                clients, messages, warmup, size, attachmentRatio, attachments, attachmentSize,
+                acceptor, workerThreads, mode, lazyParsing, chunking, retain, seed);
+    }
+}
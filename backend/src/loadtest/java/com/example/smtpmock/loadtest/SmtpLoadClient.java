@@ -0,0 +1,150 @@
+package com.example.smtpmock.loadtest;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Minimal SMTP client holding one session open for many transactions.
+ */
+class SmtpLoadClient implements Closeable {
+
+    private final Socket socket;
+    private final InputStream in;
+    private final OutputStream out;
+    private final StringBuilder line = new StringBuilder();
+    private final Set<String> extensions = new HashSet<>();
+
+    SmtpLoadClient(String host, int port) throws IOException {
+        this.socket = new Socket(host, port);
+        socket.setTcpNoDelay(true);
+        this.in = new BufferedInputStream(socket.getInputStream());
+        this.out = new BufferedOutputStream(socket.getOutputStream(), 64 * 1024);
+        expect(reply(), 220);
+        write("EHLO loadtest");
+        out.flush();
+        String reply;
+        do {
+            reply = readLine();
+            if (reply.length() > 4) {
+                extensions.add(reply.substring(4).split(" ")[0].toUpperCase(Locale.ROOT));
+            }
+        } while (reply.length() > 3 && reply.charAt(3) == '-');
+        expect(code(reply), 250);
+    }
+
+    boolean supports(String extension) {
+        return extensions.contains(extension);
+    }
+
+    /**
+     * Sends one message and returns the reply code to the end of DATA.
+     */
+    int send(String from, String recipient, byte[] headers, byte[] body) throws IOException {
+        write("MAIL FROM:<" + from + ">");
+        out.flush();
+        int code = reply();
+        if (code != 250) {
+            return code;
+        }
+        write("RCPT TO:<" + recipient + ">");
+        out.flush();
+        code = reply();
+        if (code != 250) {
+            command("RSET", 250);
+            return code;
+        }
+        write("DATA");
+        out.flush();
+        code = reply();
+        if (code != 354) {
+            return code;
+        }
+        out.write(headers);
+        out.write(body);
+        write(".");
+        out.flush();
+        return reply();
+    }
+
+    /**
+     * Sends one message as a single pipelined MAIL, RCPT and BDAT LAST write, and returns the
+     * first reply that is not a success.
+     */
+    int sendChunked(String from, String recipient, byte[] headers, byte[] body) throws IOException {
+        write("MAIL FROM:<" + from + ">");
+        write("RCPT TO:<" + recipient + ">");
+        write("BDAT " + (headers.length + body.length) + " LAST");
+        out.write(headers);
+        out.write(body);
+        out.flush();
+        int mail = reply();
+        int rcpt = reply();
+        int bdat = reply();
+        return mail != 250 ? mail : rcpt != 250 ? rcpt : bdat;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            write("QUIT");
+            out.flush();
+            reply();
+        } finally {
+            socket.close();
+        }
+    }
+
+    private void command(String command, int expected) throws IOException {
+        write(command);
+        out.flush();
+        expect(reply(), expected);
+    }
+
+    private void write(String command) throws IOException {
+        out.write((command + "\r\n").getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private int reply() throws IOException {
+        String reply;
+        do {
+            reply = readLine();
+        } while (reply.length() > 3 && reply.charAt(3) == '-');
+        return code(reply);
+    }
+
+    private static int code(String reply) throws IOException {
+        if (reply.length() < 3) {
+            throw new IOException("Malformed SMTP reply: " + reply);
+        }
+        return Integer.parseInt(reply.substring(0, 3));
+    }
+
+    private String readLine() throws IOException {
+        line.setLength(0);
+        int value;
+        while ((value = in.read()) != '\n') {
+            if (value < 0) {
+                throw new IOException("Connection closed by server");
+            }
+            if (value != '\r') {
+                line.append((char) value);
+            }
+        }
+        return line.toString();
+    }
+
+    private static void expect(int code, int expected) throws IOException {
+        if (code != expected) {
+            throw new IOException("Expected SMTP reply " + expected + " but got " + code);
+        }
+    }
+}
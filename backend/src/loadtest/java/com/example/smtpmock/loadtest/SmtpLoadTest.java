@@ -0,0 +1,302 @@
+package com.example.smtpmock.loadtest;
+
+import com.example.smtpmock.event.EmailAddedEvent;
+import com.example.smtpmock.metrics.CaptureMetrics;
+import com.example.smtpmock.model.IngestStats;
+import com.example.smtpmock.service.EmailStoreService;
+import com.example.smtpmock.service.MailboxProperties;
+import com.example.smtpmock.service.MailboxRouter;
+import com.example.smtpmock.smtp.IngestPipeline;
+import com.example.smtpmock.smtp.IngestProperties;
+import com.example.smtpmock.smtp.MessageDataReader;
+import com.example.smtpmock.smtp.MockMessageListener;
+import com.example.smtpmock.smtp.SmtpListenerProperties;
+import com.example.smtpmock.smtp.SmtpServerLifecycle;
+import com.example.smtpmock.store.EvictionPolicy;
+import com.example.smtpmock.store.RetentionPolicy;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Drives an in-process SMTP listener on a loopback port with concurrent clients and reports
+ * throughput, SMTP transaction latency and time-to-visible: the time from the client reading
+ * 250 until the email is announced with {@link EmailAddedEvent}, which is what the WebSocket
+ * notifier and awaiting REST clients react to. With synchronous ingest the email is announced
+ * before the 250 is sent, so time-to-visible is zero.
+ * <p>
+ * Run with {@code mvn -Ploadtest test-compile exec:exec -Dloadtest.args="--clients=32 ..."};
+ * see {@link LoadOptions} for the options.
+ */
+public final class SmtpLoadTest {
+
+    private static final String SUBJECT_PREFIX = "load-";
+
+    private final LoadOptions options;
+    private final byte[] plainBody;
+    private final byte[] attachmentBody;
+    private final boolean[] withAttachments;
+    private final long[] latencies;
+    private final long[] acknowledged;
+    private final long[] visible;
+    private final AtomicInteger visibleCount = new AtomicInteger();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder bytes = new LongAdder();
+
+    private SmtpLoadTest(LoadOptions options) {
+        this.options = options;
+        Random random = new Random(options.seed);
+        this.plainBody = plainBody(random, options.size);
+        this.attachmentBody = attachmentBody(random, options);
+        int total = options.warmup + options.messages;
+        this.withAttachments = new boolean[total];
+        for (int i = 0; i < total; i++) {
+            withAttachments[i] = random.nextDouble() < options.attachmentRatio;
+        }
+        this.latencies = new long[total];
+        this.acknowledged = new long[total];
+        this.visible = new long[total];
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadOptions options = LoadOptions.parse(args);
+        boolean clean = new SmtpLoadTest(options).run();
+        System.exit(clean ? 0 : 1);
+    }
+
+    private boolean run() throws Exception {
+        int port = options.port > 0 ? options.port : freePort();
+        ApplicationEventPublisher publisher = event -> {
+            if (event instanceof EmailAddedEvent) {
+                markVisible(((EmailAddedEvent) event).getEmail().getSubject());
+            }
+        };
+        IngestProperties ingestProperties = new IngestProperties();
+        ingestProperties.setMode(options.mode);
+        EmailStoreService store = new EmailStoreService(publisher,
+                new RetentionPolicy(options.retain, 0, Duration.ZERO, EvictionPolicy.OLDEST_FIRST, 32));
+        MessageDataReader dataReader = new MessageDataReader(ingestProperties);
+        MockMessageListener messageListener = new MockMessageListener(store,
+                new MailboxRouter(new MailboxProperties()), dataReader, CaptureMetrics.NOOP, port, options.lazyParsing);
+        IngestPipeline pipeline = new IngestPipeline(messageListener, store, publisher, ingestProperties);
+        SmtpListenerProperties.Listener listener = new SmtpListenerProperties.Listener();
+        listener.setName("load");
+        listener.setPort(port);
+        listener.setBindAddress("127.0.0.1");
+        listener.setAcceptor(options.acceptor);
+        listener.setWorkerThreads(options.workerThreads);
+        listener.setMaxConnections(Math.max(1000, options.clients * 2));
+        SmtpListenerProperties listenerProperties = new SmtpListenerProperties();
+        listenerProperties.setListeners(List.of(listener));
+        SmtpServerLifecycle server = new SmtpServerLifecycle(messageListener, pipeline, listenerProperties,
+                dataReader, port);
+        server.start();
+        try {
+            System.out.println("SMTP load test: " + options);
+            if (options.warmup > 0) {
+                phase(port, 0, options.warmup);
+                failed.reset();
+                bytes.reset();
+            }
+            long elapsed = phase(port, options.warmup, options.messages);
+            long accepted = options.messages - failed.sum();
+            boolean allVisible = awaitVisible(accepted);
+            report(elapsed, accepted, pipeline.getStats());
+            return failed.sum() == 0 && allVisible;
+        } finally {
+            server.stop();
+            pipeline.destroy();
+        }
+    }
+
+    /**
+     * Sends messages {@code first} to {@code first + count - 1} over the configured number of
+     * sessions and returns the wall-clock time it took.
+     */
+    private long phase(int port, int first, int count) throws Exception {
+        AtomicInteger next = new AtomicInteger(first);
+        int end = first + count;
+        CountDownLatch ready = new CountDownLatch(options.clients);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < options.clients; i++) {
+            Thread thread = new Thread(() -> {
+                SmtpLoadClient client;
+                try {
+                    client = new SmtpLoadClient("127.0.0.1", port);
+                    if (options.chunking && !client.supports("CHUNKING")) {
+                        client.close();
+                        throw new IOException("the server does not advertise CHUNKING, use --acceptor=nio");
+                    }
+                } catch (IOException e) {
+                    System.err.println("Load client could not connect: " + e.getMessage());
+                    return;
+                } finally {
+                    ready.countDown();
+                }
+                try (SmtpLoadClient session = client) {
+                    start.await();
+                    int n;
+                    while ((n = next.getAndIncrement()) < end) {
+                        try {
+                            send(session, n);
+                        } catch (IOException e) {
+                            failed.increment();
+                            throw e;
+                        }
+                    }
+                } catch (IOException e) {
+                    System.err.println("Load client failed: " + e.getMessage());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }, "smtp-load-client-" + i);
+            thread.start();
+            threads.add(thread);
+        }
+        ready.await();
+        long started = System.nanoTime();
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        int unsent = Math.max(0, end - next.get());
+        failed.add(unsent);
+        return System.nanoTime() - started;
+    }
+
+    private void send(SmtpLoadClient client, int n) throws IOException {
+        byte[] headers = ("From: Load <load@example.com>\r\n"
+                + "To: sink@example.com\r\n"
+                + "Subject: " + SUBJECT_PREFIX + n + "\r\n"
+                + "MIME-Version: 1.0\r\n").getBytes(StandardCharsets.US_ASCII);
+        byte[] body = withAttachments[n] ? attachmentBody : plainBody;
+        long started = System.nanoTime();
+        int code = options.chunking
+                ? client.sendChunked("load@example.com", "sink@example.com", headers, body)
+                : client.send("load@example.com", "sink@example.com", headers, body);
+        long finished = System.nanoTime();
+        if (code != 250) {
+            failed.increment();
+            return;
+        }
+        latencies[n] = finished - started;
+        acknowledged[n] = finished;
+        bytes.add(headers.length + body.length);
+    }
+
+    private void markVisible(String subject) {
+        if (subject == null || !subject.startsWith(SUBJECT_PREFIX)) {
+            return;
+        }
+        int n = Integer.parseInt(subject.substring(SUBJECT_PREFIX.length()));
+        visible[n] = System.nanoTime();
+        if (n >= options.warmup) {
+            visibleCount.incrementAndGet();
+        }
+    }
+
+    private boolean awaitVisible(long accepted) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(options.visibleTimeoutSeconds);
+        while (visibleCount.get() < accepted) {
+            if (System.nanoTime() > deadline) {
+                return false;
+            }
+            Thread.sleep(10);
+        }
+        return true;
+    }
+
+    private void report(long elapsedNanos, long accepted, IngestStats ingest) {
+        double seconds = elapsedNanos / 1e9;
+        long[] transaction = new long[options.messages];
+        long[] timeToVisible = new long[options.messages];
+        int transactions = 0;
+        int visibleMessages = 0;
+        for (int n = options.warmup; n < latencies.length; n++) {
+            if (acknowledged[n] == 0) {
+                continue;
+            }
+            transaction[transactions++] = latencies[n];
+            if (visible[n] != 0) {
+                timeToVisible[visibleMessages++] = Math.max(0, visible[n] - acknowledged[n]);
+            }
+        }
+        transaction = Arrays.copyOf(transaction, transactions);
+        timeToVisible = Arrays.copyOf(timeToVisible, visibleMessages);
+        Arrays.sort(transaction);
+        Arrays.sort(timeToVisible);
+        System.out.printf(Locale.ROOT, "Messages:        %d accepted, %d failed in %.2f s%n",
+                accepted, failed.sum(), seconds);
+        System.out.printf(Locale.ROOT, "Throughput:      %.1f msg/s, %.2f MB/s%n",
+                accepted / seconds, bytes.sum() / seconds / (1024 * 1024));
+        System.out.println("Transaction:     " + percentiles(transaction));
+        System.out.println("Time-to-visible: " + percentiles(timeToVisible)
+                + " (" + visibleMessages + " of " + accepted + " visible)");
+        System.out.printf(Locale.ROOT, "Ingest:          mode %s, stored %d, rejected %d, failed %d%n",
+                ingest.getMode(), ingest.getStored(), ingest.getRejected(), ingest.getFailed());
+    }
+
+    private static String percentiles(long[] sorted) {
+        if (sorted.length == 0) {
+            return "n/a";
+        }
+        return String.format(Locale.ROOT, "p50 %.3f ms, p99 %.3f ms, max %.3f ms",
+                millis(sorted, 0.50), millis(sorted, 0.99), sorted[sorted.length - 1] / 1e6);
+    }
+
+    private static double millis(long[] sorted, double percentile) {
+        int index = (int) Math.ceil(percentile * sorted.length) - 1;
+        return sorted[Math.max(0, index)] / 1e6;
+    }
+
+    private static byte[] plainBody(Random random, int size) {
+        return ("Content-Type: text/plain; charset=US-ASCII\r\n\r\n" + text(random, size))
+                .getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private static byte[] attachmentBody(Random random, LoadOptions options) {
+        StringBuilder body = new StringBuilder("Content-Type: multipart/mixed; boundary=\"load\"\r\n\r\n")
+                .append("--load\r\nContent-Type: text/plain; charset=US-ASCII\r\n\r\n")
+                .append(text(random, options.size));
+        for (int i = 1; i <= options.attachments; i++) {
+            byte[] data = new byte[options.attachmentSize];
+            random.nextBytes(data);
+            body.append("--load\r\nContent-Type: application/octet-stream\r\n")
+                    .append("Content-Disposition: attachment; filename=\"load-").append(i).append(".bin\"\r\n")
+                    .append("Content-Transfer-Encoding: base64\r\n\r\n")
+                    .append(Base64.getMimeEncoder().encodeToString(data)).append("\r\n");
+        }
+        return body.append("--load--\r\n").toString().getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private static String text(Random random, int size) {
+        StringBuilder text = new StringBuilder(size + 80);
+        while (text.length() < size) {
+            for (int i = 0; i < 76; i++) {
+                text.append((char) ('a' + random.nextInt(26)));
+            }
+            text.append("\r\n");
+        }
+        return text.toString();
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
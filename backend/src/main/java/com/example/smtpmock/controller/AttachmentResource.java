@@ -0,0 +1,43 @@
+package com.example.smtpmock.controller;
+
+import com.example.smtpmock.model.EmailAttachment;
+import org.springframework.core.io.AbstractResource;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Attachment content as a {@link org.springframework.core.io.Resource} of known length, so
+ * Spring MVC can answer {@code Range} requests with 206 regions. The content is streamed from
+ * wherever the payload lives, without an intermediate heap copy: Spring MVC writes every
+ * resource through its stream, so a mapped payload is copied straight from the mapping into
+ * the response buffer, and for an unencoded part a range start is a skip within the mapping.
+ */
+class AttachmentResource extends AbstractResource {
+
+    private final EmailAttachment attachment;
+
+    AttachmentResource(EmailAttachment attachment) {
+        this.attachment = attachment;
+    }
+
+    @Override
+    public InputStream getInputStream() throws IOException {
+        return attachment.openStream();
+    }
+
+    @Override
+    public long contentLength() {
+        return attachment.getSize();
+    }
+
+    @Override
+    public boolean exists() {
+        return true;
+    }
+
+    @Override
+    public String getDescription() {
+        return "attachment [" + attachment.getId() + "]";
+    }
+}
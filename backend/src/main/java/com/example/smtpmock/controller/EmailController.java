@@ -1,8 +1,15 @@
 package com.example.smtpmock.controller;
 
 import com.example.smtpmock.model.EmailAttachment;
+import com.example.smtpmock.model.EmailPage;
+import com.example.smtpmock.model.MailboxStats;
 import com.example.smtpmock.model.StoredEmail;
 import com.example.smtpmock.service.EmailStoreService;
+import com.example.smtpmock.service.EmailWaitService;
+import com.example.smtpmock.store.SearchQuery;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.Resource;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
@@ -12,8 +19,12 @@ import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.DeferredResult;
 
+import java.io.UncheckedIOException;
+import java.time.Duration;
 import java.util.List;
 import java.util.UUID;
 
@@ -22,10 +33,15 @@ import java.util.UUID;
 @CrossOrigin
 public class EmailController {
 
+    private static final Logger LOGGER = LoggerFactory.getLogger(EmailController.class);
+    private static final long MAX_AWAIT_SECONDS = 300;
+
     private final EmailStoreService emailStoreService;
+    private final EmailWaitService emailWaitService;
 
-    public EmailController(EmailStoreService emailStoreService) {
+    public EmailController(EmailStoreService emailStoreService, EmailWaitService emailWaitService) {
         this.emailStoreService = emailStoreService;
+        this.emailWaitService = emailWaitService;
     }
 
     @GetMapping
@@ -33,6 +49,54 @@ public class EmailController {
         return emailStoreService.findAll();
     }
 
+    @GetMapping(params = "limit")
+    public ResponseEntity<EmailPage> findPage(@RequestParam int limit,
+                                              @RequestParam(required = false) String cursor) {
+        try {
+            return ResponseEntity.ok(emailStoreService.findPage(cursor, limit));
+        } catch (IllegalArgumentException ex) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @GetMapping("/search")
+    public ResponseEntity<List<StoredEmail>> search(@RequestParam(required = false) String to,
+                                                    @RequestParam(required = false) String from,
+                                                    @RequestParam(required = false) String subject,
+                                                    @RequestParam(required = false) String q,
+                                                    @RequestParam(defaultValue = "50") int limit) {
+        SearchQuery query = new SearchQuery(to, from, subject, q);
+        if (query.isEmpty()) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(emailStoreService.search(query, limit));
+    }
+
+    @GetMapping("/await")
+    public DeferredResult<ResponseEntity<StoredEmail>> await(@RequestParam(required = false) String to,
+                                                             @RequestParam(required = false) String from,
+                                                             @RequestParam(required = false) String subject,
+                                                             @RequestParam(required = false) String q,
+                                                             @RequestParam(defaultValue = "30") long timeout) {
+        // A zero timeout would make the DeferredResult wait forever, so it is rejected.
+        long timeoutMillis = Duration.ofSeconds(Math.min(timeout, MAX_AWAIT_SECONDS)).toMillis();
+        DeferredResult<ResponseEntity<StoredEmail>> result =
+                new DeferredResult<>(timeoutMillis, ResponseEntity.noContent().build());
+        SearchQuery query = new SearchQuery(to, from, subject, q);
+        if (query.isEmpty() || timeout <= 0) {
+            result.setResult(ResponseEntity.badRequest().build());
+            return result;
+        }
+        Runnable cancel = emailWaitService.await(query, email -> result.setResult(ResponseEntity.ok(email)));
+        result.onCompletion(cancel);
+        return result;
+    }
+
+    @GetMapping("/stats")
+    public MailboxStats stats() {
+        return emailStoreService.getStats();
+    }
+
     @GetMapping("/{id}")
     public ResponseEntity<StoredEmail> findById(@PathVariable UUID id) {
         return emailStoreService.findById(id)
@@ -41,7 +105,7 @@ public class EmailController {
     }
 
     @GetMapping("/{emailId}/attachments/{attachmentId}")
-    public ResponseEntity<byte[]> downloadAttachment(@PathVariable UUID emailId, @PathVariable UUID attachmentId) {
+    public ResponseEntity<Resource> downloadAttachment(@PathVariable UUID emailId, @PathVariable UUID attachmentId) {
         return emailStoreService.findAttachment(emailId, attachmentId)
                 .map(this::buildAttachmentResponse)
                 .orElseGet(() -> ResponseEntity.notFound().build());
@@ -62,13 +126,22 @@ public class EmailController {
         return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
     }
 
-    private ResponseEntity<byte[]> buildAttachmentResponse(EmailAttachment attachment) {
+    private ResponseEntity<Resource> buildAttachmentResponse(EmailAttachment attachment) {
         MediaType mediaType = toMediaType(attachment.getContentType());
+        String contentHash;
+        try {
+            contentHash = attachment.getContentHash();
+        } catch (UncheckedIOException e) {
+            LOGGER.error("Unable to read attachment {}", attachment.getId(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+        // A known-length Resource lets Spring MVC answer Range requests with 206, and the
+        // ETag turns repeated downloads carrying If-None-Match into 304s.
         return ResponseEntity.ok()
                 .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + sanitizeFileName(attachment.getFileName()) + "\"")
                 .contentType(mediaType)
-                .contentLength(attachment.getSize())
-                .body(attachment.getData());
+                .eTag(contentHash)
+                .body(new AttachmentResource(attachment));
     }
 
     private MediaType toMediaType(String contentType) {
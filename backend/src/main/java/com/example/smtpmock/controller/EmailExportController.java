@@ -0,0 +1,112 @@
+package com.example.smtpmock.controller;
+
+import com.example.smtpmock.export.ExportFormat;
+import com.example.smtpmock.export.MboxWriter;
+import com.example.smtpmock.model.StoredEmail;
+import com.example.smtpmock.service.EmailStoreService;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.Optional;
+
+@RestController
+@RequestMapping("/api/emails/export")
+@CrossOrigin
+public class EmailExportController {
+
+    private static final int FLUSH_EVERY = 64;
+
+    private final EmailStoreService emailStoreService;
+    private final ObjectMapper objectMapper;
+
+    public EmailExportController(EmailStoreService emailStoreService, ObjectMapper objectMapper) {
+        this.emailStoreService = emailStoreService;
+        this.objectMapper = objectMapper;
+    }
+
+    @GetMapping
+    public ResponseEntity<StreamingResponseBody> export(@RequestParam(defaultValue = "json") String format) {
+        Optional<ExportFormat> exportFormat = ExportFormat.parse(format);
+        if (!exportFormat.isPresent()) {
+            return ResponseEntity.badRequest().build();
+        }
+        ExportFormat selected = exportFormat.get();
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"emails." + selected.getExtension() + "\"")
+                .contentType(MediaType.parseMediaType(selected.getContentType()))
+                .body(outputStream -> write(selected, emailStoreService.iterator(), outputStream));
+    }
+
+    private void write(ExportFormat format, Iterator<StoredEmail> emails, OutputStream outputStream) throws IOException {
+        switch (format) {
+            case NDJSON:
+                writeNdjson(emails, outputStream);
+                break;
+            case MBOX:
+                writeMbox(emails, outputStream);
+                break;
+            default:
+                writeJsonArray(emails, outputStream);
+        }
+    }
+
+    private void writeJsonArray(Iterator<StoredEmail> emails, OutputStream outputStream) throws IOException {
+        try (JsonGenerator generator = createGenerator(outputStream)) {
+            generator.writeStartArray();
+            for (int count = 1; emails.hasNext(); count++) {
+                generator.writeObject(emails.next());
+                if (count % FLUSH_EVERY == 0) {
+                    generator.flush();
+                }
+            }
+            generator.writeEndArray();
+        }
+    }
+
+    private void writeNdjson(Iterator<StoredEmail> emails, OutputStream outputStream) throws IOException {
+        try (JsonGenerator generator = createGenerator(outputStream)) {
+            for (int count = 1; emails.hasNext(); count++) {
+                generator.writeObject(emails.next());
+                generator.writeRaw('\n');
+                if (count % FLUSH_EVERY == 0) {
+                    generator.flush();
+                }
+            }
+        }
+    }
+
+    private void writeMbox(Iterator<StoredEmail> emails, OutputStream outputStream) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+        MboxWriter mboxWriter = new MboxWriter(writer);
+        for (int count = 1; emails.hasNext(); count++) {
+            mboxWriter.write(emails.next());
+            if (count % FLUSH_EVERY == 0) {
+                writer.flush();
+            }
+        }
+        writer.flush();
+    }
+
+    private JsonGenerator createGenerator(OutputStream outputStream) throws IOException {
+        // The servlet container owns the response stream; the generator must only flush it.
+        return objectMapper.getFactory()
+                .createGenerator(outputStream)
+                .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+    }
+}
@@ -0,0 +1,36 @@
+package com.example.smtpmock.controller;
+
+import com.example.smtpmock.model.IngestStats;
+import com.example.smtpmock.model.ListenerStats;
+import com.example.smtpmock.smtp.IngestPipeline;
+import com.example.smtpmock.smtp.SmtpServerLifecycle;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/ingest")
+@CrossOrigin
+public class IngestController {
+
+    private final IngestPipeline ingestPipeline;
+    private final SmtpServerLifecycle smtpServerLifecycle;
+
+    public IngestController(IngestPipeline ingestPipeline, SmtpServerLifecycle smtpServerLifecycle) {
+        this.ingestPipeline = ingestPipeline;
+        this.smtpServerLifecycle = smtpServerLifecycle;
+    }
+
+    @GetMapping("/stats")
+    public IngestStats stats() {
+        return ingestPipeline.getStats();
+    }
+
+    @GetMapping("/listeners")
+    public List<ListenerStats> listeners() {
+        return smtpServerLifecycle.getListenerStats();
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.smtpmock.controller;
+
+import com.example.smtpmock.model.EmailPage;
+import com.example.smtpmock.model.MailboxStats;
+import com.example.smtpmock.model.StoredEmail;
+import com.example.smtpmock.service.EmailStoreService;
+import com.example.smtpmock.store.SearchQuery;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+@RestController
+@RequestMapping("/api/mailboxes")
+@CrossOrigin
+public class MailboxController {
+
+    private final EmailStoreService emailStoreService;
+
+    public MailboxController(EmailStoreService emailStoreService) {
+        this.emailStoreService = emailStoreService;
+    }
+
+    @GetMapping
+    public Map<String, MailboxStats> mailboxes() {
+        return emailStoreService.getMailboxStats();
+    }
+
+    @GetMapping("/{mailbox}/emails")
+    public List<StoredEmail> findAll(@PathVariable String mailbox) {
+        return emailStoreService.findAll(mailbox);
+    }
+
+    @GetMapping(value = "/{mailbox}/emails", params = "limit")
+    public ResponseEntity<EmailPage> findPage(@PathVariable String mailbox,
+                                              @RequestParam int limit,
+                                              @RequestParam(required = false) String cursor) {
+        try {
+            return ResponseEntity.ok(emailStoreService.findPage(mailbox, cursor, limit));
+        } catch (IllegalArgumentException ex) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @GetMapping("/{mailbox}/emails/search")
+    public ResponseEntity<List<StoredEmail>> search(@PathVariable String mailbox,
+                                                    @RequestParam(required = false) String to,
+                                                    @RequestParam(required = false) String from,
+                                                    @RequestParam(required = false) String subject,
+                                                    @RequestParam(required = false) String q,
+                                                    @RequestParam(defaultValue = "50") int limit) {
+        SearchQuery query = new SearchQuery(to, from, subject, q);
+        if (query.isEmpty()) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(emailStoreService.search(mailbox, query, limit));
+    }
+
+    @GetMapping("/{mailbox}/emails/stats")
+    public ResponseEntity<MailboxStats> stats(@PathVariable String mailbox) {
+        return emailStoreService.getStats(mailbox)
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    @GetMapping("/{mailbox}/emails/{id}")
+    public ResponseEntity<StoredEmail> findById(@PathVariable String mailbox, @PathVariable UUID id) {
+        return emailStoreService.findById(mailbox, id)
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    @DeleteMapping("/{mailbox}/emails")
+    public ResponseEntity<Void> clear(@PathVariable String mailbox) {
+        emailStoreService.clear(mailbox);
+        return ResponseEntity.noContent().build();
+    }
+
+    @DeleteMapping("/{mailbox}/emails/{id}")
+    public ResponseEntity<Void> remove(@PathVariable String mailbox, @PathVariable UUID id) {
+        if (emailStoreService.findById(mailbox, id).isPresent()) {
+            emailStoreService.remove(mailbox, id);
+            return ResponseEntity.noContent().build();
+        }
+        return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.smtpmock.export;
+
+import com.example.smtpmock.model.StoredEmail;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+
+/**
+ * Writes emails in mboxrd format: a {@code From } separator line per message, LF line
+ * endings and {@code >}-quoting of body lines that would otherwise look like separators.
+ */
+public class MboxWriter {
+
+    private static final DateTimeFormatter SEPARATOR_DATE =
+            DateTimeFormatter.ofPattern("EEE MMM dd HH:mm:ss yyyy", Locale.US).withZone(ZoneOffset.UTC);
+
+    private final Writer writer;
+
+    public MboxWriter(Writer writer) {
+        this.writer = writer;
+    }
+
+    public void write(StoredEmail email) throws IOException {
+        writer.write("From ");
+        writer.write(envelopeSender(email.getFrom()));
+        writer.write(' ');
+        writer.write(SEPARATOR_DATE.format(email.getReceivedAt()));
+        writer.write('\n');
+        String raw = email.getRawMessage() != null ? email.getRawMessage() : "";
+        int start = 0;
+        while (start < raw.length()) {
+            int end = raw.indexOf('\n', start);
+            int next = end == -1 ? raw.length() : end + 1;
+            int lineEnd = end == -1 ? raw.length() : end;
+            if (lineEnd > start && raw.charAt(lineEnd - 1) == '\r') {
+                lineEnd--;
+            }
+            if (isSeparatorLike(raw, start, lineEnd)) {
+                writer.write('>');
+            }
+            writer.write(raw, start, lineEnd - start);
+            writer.write('\n');
+            start = next;
+        }
+        writer.write('\n');
+    }
+
+    private boolean isSeparatorLike(String raw, int start, int end) {
+        int position = start;
+        while (position < end && raw.charAt(position) == '>') {
+            position++;
+        }
+        return raw.startsWith("From ", position) && position + 5 <= end;
+    }
+
+    private String envelopeSender(String from) {
+        if (from == null || from.isBlank()) {
+            return "MAILER-DAEMON";
+        }
+        int open = from.lastIndexOf('<');
+        int close = from.lastIndexOf('>');
+        String address = open >= 0 && close > open ? from.substring(open + 1, close) : from;
+        address = address.trim().replace(' ', '_');
+        return address.isEmpty() ? "MAILER-DAEMON" : address;
+    }
+}
@@ -0,0 +1,387 @@
+package com.example.smtpmock.journal;
+
+import com.example.smtpmock.model.StoredEmail;
+import com.example.smtpmock.store.StoreJournal;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Append-only write-ahead log of mailbox mutations.
+ * <p>
+ * Callers only encode their record; a single writer thread drains everything queued so far,
+ * writes it with one gathering write and issues one {@code fsync} for the whole batch, so
+ * concurrent deliveries share the disk latency instead of paying it one after another.
+ * A clear truncates the log, since nothing recorded before it can be replayed anyway.
+ * Removals and evictions leave dead records behind; the writer tracks which ADDED records are
+ * still live and, once the dead bytes outweigh them, rewrites the log with only the live ones.
+ */
+public class FileJournal implements StoreJournal, Closeable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(FileJournal.class);
+    private static final int MAX_BATCH = 4096;
+    private static final long MIN_COMPACTION_BYTES = 1 << 20;
+
+    private final Path path;
+    private final boolean waitForSync;
+    private final long compactionMinBytes;
+    private final JournalCodec codec = new JournalCodec();
+    private final BlockingQueue<PendingRecord> queue = new LinkedBlockingQueue<>();
+    private volatile boolean accepting;
+    private volatile boolean running = true;
+    private volatile FileChannel channel;
+    private Thread writer;
+    // Filled by the replay and from then on only touched by the writer thread.
+    private final Map<UUID, LiveRecord> live = new HashMap<>();
+    private long liveBytes;
+    private long deadBytes;
+
+    public FileJournal(Path path, boolean waitForSync) throws IOException {
+        this(path, waitForSync, MIN_COMPACTION_BYTES);
+    }
+
+    FileJournal(Path path, boolean waitForSync, long compactionMinBytes) throws IOException {
+        Path parent = path.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        this.path = path;
+        this.waitForSync = waitForSync;
+        this.compactionMinBytes = compactionMinBytes;
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+    }
+
+    /**
+     * Feeds every intact record to the visitor, truncates a torn tail left by a crash and
+     * then starts accepting appends. Mutations made by the visitor are not journaled again.
+     */
+    public synchronized int replay(JournalVisitor visitor) throws IOException {
+        if (accepting) {
+            throw new IllegalStateException("Journal " + path + " has already been replayed");
+        }
+        long size = channel.size();
+        long validEnd = 0;
+        int records = 0;
+        channel.position(0);
+        DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel), 1 << 16));
+        Tracker tracker = new Tracker(visitor);
+        while (validEnd + JournalCodec.HEADER_SIZE <= size) {
+            int length = in.readInt();
+            int checksum = in.readInt();
+            if (length <= 0 || validEnd + JournalCodec.HEADER_SIZE + length > size) {
+                break;
+            }
+            byte[] body = new byte[length];
+            try {
+                in.readFully(body);
+            } catch (EOFException e) {
+                break;
+            }
+            if (JournalCodec.checksum(body) != checksum) {
+                break;
+            }
+            tracker.offset = validEnd;
+            tracker.length = JournalCodec.HEADER_SIZE + length;
+            codec.decode(body, tracker);
+            validEnd += JournalCodec.HEADER_SIZE + length;
+            records++;
+        }
+        if (validEnd < size) {
+            LOGGER.warn("Discarding {} byte(s) of incomplete records at the end of journal {}", size - validEnd, path);
+            channel.truncate(validEnd);
+        }
+        channel.position(validEnd);
+        accepting = true;
+        writer = new Thread(this::writeLoop, "smtp-mock-journal");
+        writer.setDaemon(true);
+        writer.start();
+        LOGGER.info("Replayed {} journal record(s) from {}", records, path);
+        return records;
+    }
+
+    @Override
+    public void added(StoredEmail email) {
+        if (accepting) {
+            submit(new PendingRecord(codec.encodeAdded(email), JournalCodec.ADDED, email.getId(), email.getMailbox()));
+        }
+    }
+
+    @Override
+    public void removed(UUID id) {
+        if (accepting) {
+            submit(new PendingRecord(codec.encodeRemoved(id), JournalCodec.REMOVED, id, null));
+        }
+    }
+
+    @Override
+    public void cleared() {
+        if (accepting) {
+            submit(new PendingRecord(codec.encodeCleared(), JournalCodec.CLEARED, null, null));
+        }
+    }
+
+    @Override
+    public void mailboxCleared(String mailbox) {
+        if (accepting) {
+            submit(new PendingRecord(codec.encodeMailboxCleared(mailbox), JournalCodec.MAILBOX_CLEARED, null, mailbox));
+        }
+    }
+
+    public long size() throws IOException {
+        return channel.size();
+    }
+
+    @Override
+    public void close() throws IOException {
+        accepting = false;
+        running = false;
+        if (writer != null) {
+            try {
+                // Let the writer drain what was already accepted before the channel goes away.
+                writer.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        channel.close();
+    }
+
+    private void submit(PendingRecord record) {
+        queue.add(record);
+        if (!waitForSync) {
+            return;
+        }
+        try {
+            record.synced.join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof IOException
+                    ? new UncheckedIOException((IOException) e.getCause())
+                    : e;
+        }
+    }
+
+    private void writeLoop() {
+        List<PendingRecord> batch = new ArrayList<>();
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingRecord first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, MAX_BATCH - 1);
+                write(batch);
+                batch.forEach(record -> record.synced.complete(null));
+            } catch (IOException e) {
+                LOGGER.error("Unable to write {} record(s) to journal {}", batch.size(), path, e);
+                batch.forEach(record -> record.synced.completeExceptionally(e));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            batch.clear();
+        }
+    }
+
+    private void write(List<PendingRecord> batch) throws IOException {
+        int start = 0;
+        for (int i = batch.size() - 1; i >= 0; i--) {
+            if (batch.get(i).type == JournalCodec.CLEARED) {
+                channel.truncate(0);
+                channel.position(0);
+                track(JournalCodec.CLEARED, null, null, 0, 0);
+                start = i + 1;
+                break;
+            }
+        }
+        ByteBuffer[] buffers = new ByteBuffer[batch.size() - start];
+        long position = channel.position();
+        long remaining = 0;
+        for (int i = start; i < batch.size(); i++) {
+            PendingRecord record = batch.get(i);
+            buffers[i - start] = record.data;
+            int length = record.data.remaining();
+            track(record.type, record.id, record.mailbox, position + remaining, length);
+            remaining += length;
+        }
+        while (remaining > 0) {
+            remaining -= channel.write(buffers);
+        }
+        channel.force(false);
+        if (deadBytes > liveBytes && deadBytes >= compactionMinBytes) {
+            try {
+                compact();
+            } catch (IOException e) {
+                // The batch itself is durable; the log is simply left uncompacted for now.
+                LOGGER.warn("Unable to compact journal {}", path, e);
+            }
+        }
+    }
+
+    private void track(byte type, UUID id, String mailbox, long offset, int length) {
+        switch (type) {
+            case JournalCodec.ADDED:
+                liveBytes += length;
+                drop(live.put(id, new LiveRecord(offset, length, mailbox)));
+                break;
+            case JournalCodec.REMOVED:
+                deadBytes += length;
+                drop(live.remove(id));
+                break;
+            case JournalCodec.MAILBOX_CLEARED:
+                deadBytes += length;
+                for (Iterator<LiveRecord> records = live.values().iterator(); records.hasNext(); ) {
+                    LiveRecord record = records.next();
+                    if (Objects.equals(record.mailbox, mailbox)) {
+                        records.remove();
+                        drop(record);
+                    }
+                }
+                break;
+            case JournalCodec.CLEARED:
+                live.clear();
+                liveBytes = 0;
+                deadBytes = 0;
+                break;
+            default:
+                break;
+        }
+    }
+
+    private void drop(LiveRecord record) {
+        if (record != null) {
+            liveBytes -= record.length;
+            deadBytes += record.length;
+        }
+    }
+
+    /**
+     * Copies the live ADDED records, in their original order, into a new file that then
+     * atomically replaces the log. Runs on the writer thread, so no append can interleave.
+     */
+    private void compact() throws IOException {
+        List<LiveRecord> records = new ArrayList<>(live.values());
+        records.sort(Comparator.comparingLong(record -> record.offset));
+        long[] offsets = new long[records.size()];
+        Path compacted = path.resolveSibling(path.getFileName() + ".compact");
+        try (FileChannel out = FileChannel.open(compacted, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            long position = 0;
+            for (int i = 0; i < records.size(); i++) {
+                LiveRecord record = records.get(i);
+                long copied = 0;
+                while (copied < record.length) {
+                    copied += channel.transferTo(record.offset + copied, record.length - copied, out);
+                }
+                offsets[i] = position;
+                position += record.length;
+            }
+            out.force(true);
+        }
+        Files.move(compacted, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        FileChannel previous = channel;
+        channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        channel.position(channel.size());
+        previous.close();
+        for (int i = 0; i < records.size(); i++) {
+            records.get(i).offset = offsets[i];
+        }
+        LOGGER.debug("Compacted journal {}: dropped {} dead byte(s), kept {} record(s)",
+                path, deadBytes, records.size());
+        deadBytes = 0;
+    }
+
+    private static final class PendingRecord {
+
+        final ByteBuffer data;
+        final byte type;
+        final UUID id;
+        final String mailbox;
+        final CompletableFuture<Void> synced = new CompletableFuture<>();
+
+        PendingRecord(ByteBuffer data, byte type, UUID id, String mailbox) {
+            this.data = data;
+            this.type = type;
+            this.id = id;
+            this.mailbox = mailbox;
+        }
+    }
+
+    private static final class LiveRecord {
+
+        long offset;
+        final int length;
+        final String mailbox;
+
+        LiveRecord(long offset, int length, String mailbox) {
+            this.offset = offset;
+            this.length = length;
+            this.mailbox = mailbox;
+        }
+    }
+
+    /**
+     * Tracks the records read during a replay before handing them to the caller's visitor.
+     */
+    private final class Tracker implements JournalVisitor {
+
+        private final JournalVisitor delegate;
+        long offset;
+        int length;
+
+        Tracker(JournalVisitor delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void added(StoredEmail email) {
+            track(JournalCodec.ADDED, email.getId(), email.getMailbox(), offset, length);
+            delegate.added(email);
+        }
+
+        @Override
+        public void removed(UUID id) {
+            track(JournalCodec.REMOVED, id, null, offset, length);
+            delegate.removed(id);
+        }
+
+        @Override
+        public void cleared() {
+            track(JournalCodec.CLEARED, null, null, offset, length);
+            delegate.cleared();
+        }
+
+        @Override
+        public void mailboxCleared(String mailbox) {
+            track(JournalCodec.MAILBOX_CLEARED, null, mailbox, offset, length);
+            delegate.mailboxCleared(mailbox);
+        }
+    }
+}
@@ -0,0 +1,233 @@
+package com.example.smtpmock.journal;
+
+import com.example.smtpmock.model.EmailAttachment;
+import com.example.smtpmock.model.LazyContent;
+import com.example.smtpmock.model.RawMessage;
+import com.example.smtpmock.model.StoredEmail;
+import com.example.smtpmock.smtp.MimeContentParser;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.zip.CRC32;
+
+/**
+ * Record layout: {@code int length | int crc32 | byte type | body}, where length and
+ * checksum cover the type byte and the body.
+ */
+final class JournalCodec {
+
+    static final int HEADER_SIZE = 8;
+    static final byte ADDED = 1;
+    static final byte REMOVED = 2;
+    static final byte CLEARED = 3;
+    static final byte MAILBOX_CLEARED = 4;
+    private static final byte PARSED_CONTENT = 0;
+    private static final byte RAW_CONTENT = 1;
+
+    private final MimeContentParser contentParser = new MimeContentParser();
+
+    ByteBuffer encodeAdded(StoredEmail email) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(email.getRawSize() + 512);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(ADDED);
+            writeUuid(out, email.getId());
+            out.writeLong(email.getReceivedAt().getEpochSecond());
+            out.writeInt(email.getReceivedAt().getNano());
+            writeString(out, email.getFrom());
+            writeStrings(out, email.getTo());
+            writeStrings(out, email.getCc());
+            writeStrings(out, email.getBcc());
+            writeString(out, email.getSubject());
+            byte[] raw = email.getRawBytes();
+            if (raw != null) {
+                out.writeByte(RAW_CONTENT);
+                writeBytes(out, raw);
+            } else {
+                // Nothing to re-parse on replay, so body and attachments are recorded as they are.
+                out.writeByte(PARSED_CONTENT);
+                writeString(out, email.getBody());
+                List<EmailAttachment> attachments = email.getAttachments();
+                out.writeInt(attachments.size());
+                for (EmailAttachment attachment : attachments) {
+                    writeUuid(out, attachment.getId());
+                    writeString(out, attachment.getFileName());
+                    writeString(out, attachment.getContentType());
+                    byte[] data = attachment.getData();
+                    writeBytes(out, data != null ? data : new byte[0]);
+                }
+            }
+            writeString(out, email.getMailbox());
+            writeStrings(out, email.getEnvelopeRecipients());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return frame(bytes.toByteArray());
+    }
+
+    ByteBuffer encodeRemoved(UUID id) {
+        ByteBuffer body = ByteBuffer.allocate(17);
+        body.put(REMOVED).putLong(id.getMostSignificantBits()).putLong(id.getLeastSignificantBits());
+        return frame(body.array());
+    }
+
+    ByteBuffer encodeCleared() {
+        return frame(new byte[] {CLEARED});
+    }
+
+    ByteBuffer encodeMailboxCleared(String mailbox) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(MAILBOX_CLEARED);
+            writeString(out, mailbox);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return frame(bytes.toByteArray());
+    }
+
+    static int checksum(byte[] body) {
+        CRC32 crc = new CRC32();
+        crc.update(body, 0, body.length);
+        return (int) crc.getValue();
+    }
+
+    void decode(byte[] body, JournalVisitor visitor) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(body));
+        byte type = in.readByte();
+        switch (type) {
+            case ADDED:
+                visitor.added(readEmail(in));
+                break;
+            case REMOVED:
+                visitor.removed(readUuid(in));
+                break;
+            case CLEARED:
+                visitor.cleared();
+                break;
+            case MAILBOX_CLEARED:
+                visitor.mailboxCleared(readString(in));
+                break;
+            default:
+                throw new IOException("Unknown journal record type " + type);
+        }
+    }
+
+    /**
+     * Replayed emails are always parsed lazily so that startup only pays for metadata.
+     * Attachment ids are derived from the email id, so they match the ones handed out before
+     * the restart even when the email was never parsed.
+     */
+    private StoredEmail readEmail(DataInputStream in) throws IOException {
+        UUID id = readUuid(in);
+        Instant receivedAt = Instant.ofEpochSecond(in.readLong(), in.readInt());
+        String from = readString(in);
+        List<String> to = readStrings(in);
+        List<String> cc = readStrings(in);
+        List<String> bcc = readStrings(in);
+        String subject = readString(in);
+        StoredEmail email;
+        byte content = in.readByte();
+        if (content == RAW_CONTENT) {
+            RawMessage raw = new RawMessage(readBytes(in));
+            email = new StoredEmail(id, from, to, cc, bcc, subject, receivedAt, raw,
+                    new LazyContent(() -> contentParser.parse(raw, id)));
+        } else if (content == PARSED_CONTENT) {
+            String body = readString(in);
+            int attachmentCount = in.readInt();
+            List<EmailAttachment> attachments = new ArrayList<>(attachmentCount);
+            for (int i = 0; i < attachmentCount; i++) {
+                UUID attachmentId = readUuid(in);
+                String fileName = readString(in);
+                String contentType = readString(in);
+                byte[] data = readBytes(in);
+                attachments.add(new EmailAttachment(attachmentId, fileName, contentType, data.length, data));
+            }
+            email = new StoredEmail(id, from, to, cc, bcc, subject, body, receivedAt, null, attachments);
+        } else {
+            throw new IOException("Unknown journal content type " + content);
+        }
+        email.setMailbox(readString(in));
+        email.setEnvelopeRecipients(readStrings(in));
+        return email;
+    }
+
+    private static ByteBuffer frame(byte[] body) {
+        ByteBuffer record = ByteBuffer.allocate(HEADER_SIZE + body.length);
+        record.putInt(body.length).putInt(checksum(body)).put(body);
+        record.flip();
+        return record;
+    }
+
+    private static void writeUuid(DataOutputStream out, UUID id) throws IOException {
+        out.writeLong(id.getMostSignificantBits());
+        out.writeLong(id.getLeastSignificantBits());
+    }
+
+    private static UUID readUuid(DataInputStream in) throws IOException {
+        return new UUID(in.readLong(), in.readLong());
+    }
+
+    private static void writeBytes(DataOutputStream out, byte[] bytes) throws IOException {
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static byte[] readBytes(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return bytes;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeStrings(DataOutputStream out, List<String> values) throws IOException {
+        if (values == null) {
+            out.writeInt(-1);
+            return;
+        }
+        out.writeInt(values.size());
+        for (String value : values) {
+            writeString(out, value);
+        }
+    }
+
+    private static List<String> readStrings(DataInputStream in) throws IOException {
+        int count = in.readInt();
+        if (count < 0) {
+            return null;
+        }
+        List<String> values = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            values.add(readString(in));
+        }
+        return values;
+    }
+}
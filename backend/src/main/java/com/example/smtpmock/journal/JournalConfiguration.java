@@ -0,0 +1,20 @@
+package com.example.smtpmock.journal;
+
+import com.example.smtpmock.store.StoreJournal;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+
+@Configuration
+public class JournalConfiguration {
+
+    @Bean
+    public StoreJournal storeJournal(JournalProperties properties) throws IOException {
+        if (!properties.isEnabled()) {
+            return StoreJournal.NOOP;
+        }
+        return new FileJournal(Paths.get(properties.getPath()), properties.isWaitForSync());
+    }
+}
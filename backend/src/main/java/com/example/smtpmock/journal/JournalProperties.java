@@ -0,0 +1,37 @@
+package com.example.smtpmock.journal;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "smtp.mock.journal")
+public class JournalProperties {
+
+    private boolean enabled;
+    private String path = "data/smtp-mock.journal";
+    private boolean waitForSync = true;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public void setPath(String path) {
+        this.path = path;
+    }
+
+    public boolean isWaitForSync() {
+        return waitForSync;
+    }
+
+    public void setWaitForSync(boolean waitForSync) {
+        this.waitForSync = waitForSync;
+    }
+}
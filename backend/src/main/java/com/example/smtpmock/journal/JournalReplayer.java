@@ -0,0 +1,59 @@
+package com.example.smtpmock.journal;
+
+import com.example.smtpmock.model.StoredEmail;
+import com.example.smtpmock.service.EmailStoreService;
+import com.example.smtpmock.store.StoreJournal;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.UUID;
+
+/**
+ * Restores the mailbox once every singleton exists, which is before any lifecycle bean
+ * is started and therefore before the SMTP port is opened.
+ */
+@Component
+public class JournalReplayer implements SmartInitializingSingleton {
+
+    private final StoreJournal journal;
+    private final EmailStoreService emailStoreService;
+
+    public JournalReplayer(StoreJournal journal, EmailStoreService emailStoreService) {
+        this.journal = journal;
+        this.emailStoreService = emailStoreService;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (!(journal instanceof FileJournal)) {
+            return;
+        }
+        try {
+            ((FileJournal) journal).replay(new JournalVisitor() {
+                @Override
+                public void added(StoredEmail email) {
+                    emailStoreService.restore(email);
+                }
+
+                @Override
+                public void removed(UUID id) {
+                    emailStoreService.remove(id);
+                }
+
+                @Override
+                public void cleared() {
+                    emailStoreService.clear();
+                }
+
+                @Override
+                public void mailboxCleared(String mailbox) {
+                    emailStoreService.clear(mailbox);
+                }
+            });
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to replay the mail journal", e);
+        }
+    }
+}
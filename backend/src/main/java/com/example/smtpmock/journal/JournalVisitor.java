@@ -0,0 +1,16 @@
+package com.example.smtpmock.journal;
+
+import com.example.smtpmock.model.StoredEmail;
+
+import java.util.UUID;
+
+public interface JournalVisitor {
+
+    void added(StoredEmail email);
+
+    void removed(UUID id);
+
+    void cleared();
+
+    void mailboxCleared(String mailbox);
+}
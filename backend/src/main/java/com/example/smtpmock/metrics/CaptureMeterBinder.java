@@ -0,0 +1,78 @@
+package com.example.smtpmock.metrics;
+
+import com.example.smtpmock.model.ListenerStats;
+import com.example.smtpmock.service.EmailStoreService;
+import com.example.smtpmock.smtp.SmtpServerLifecycle;
+import com.example.smtpmock.websocket.EmailWebSocketHandler;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+
+import java.util.function.ToLongFunction;
+
+/**
+ * Exposes the counters the mock already keeps, read only when the registry is scraped: SMTP
+ * connections, messages and bytes summed over all listeners, store size, WebSocket sessions
+ * and dropped broadcasts. The sources are looked up lazily: the store itself records into
+ * {@link CaptureMetrics}, which needs the registry this binder is applied to.
+ */
+@Component
+public class CaptureMeterBinder implements MeterBinder {
+
+    private final ObjectProvider<SmtpServerLifecycle> smtpServer;
+    private final ObjectProvider<EmailStoreService> emailStoreService;
+    private final ObjectProvider<EmailWebSocketHandler> webSocketHandler;
+
+    public CaptureMeterBinder(ObjectProvider<SmtpServerLifecycle> smtpServer,
+                              ObjectProvider<EmailStoreService> emailStoreService,
+                              ObjectProvider<EmailWebSocketHandler> webSocketHandler) {
+        this.smtpServer = smtpServer;
+        this.emailStoreService = emailStoreService;
+        this.webSocketHandler = webSocketHandler;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("smtpmock.smtp.connections", this,
+                        binder -> binder.sumListeners(ListenerStats::getTotalConnections))
+                .description("SMTP connections accepted by all listeners")
+                .register(registry);
+        Gauge.builder("smtpmock.smtp.connections.active", this,
+                        binder -> binder.sumListeners(ListenerStats::getActiveConnections))
+                .description("SMTP sessions currently open on all listeners")
+                .register(registry);
+        FunctionCounter.builder("smtpmock.smtp.messages", this,
+                        binder -> binder.sumListeners(ListenerStats::getMessages))
+                .description("Messages received over SMTP")
+                .register(registry);
+        FunctionCounter.builder("smtpmock.smtp.bytes", this,
+                        binder -> binder.sumListeners(ListenerStats::getBytes))
+                .description("DATA bytes received over SMTP")
+                .baseUnit("bytes")
+                .register(registry);
+        Gauge.builder("smtpmock.store.messages", this,
+                        binder -> binder.emailStoreService.getObject().getStats().getMessages())
+                .description("Emails currently held in all mailboxes")
+                .register(registry);
+        Gauge.builder("smtpmock.store.size", this,
+                        binder -> binder.emailStoreService.getObject().getStats().getBytes())
+                .description("Payload bytes currently held in all mailboxes")
+                .baseUnit("bytes")
+                .register(registry);
+        Gauge.builder("smtpmock.websocket.sessions", this,
+                        binder -> binder.webSocketHandler.getObject().sessionCount())
+                .description("Connected WebSocket sessions")
+                .register(registry);
+        FunctionCounter.builder("smtpmock.websocket.broadcasts.dropped", this,
+                        binder -> binder.webSocketHandler.getObject().droppedBroadcasts())
+                .description("Broadcasts dropped because the WebSocket dispatch queue was full")
+                .register(registry);
+    }
+
+    private double sumListeners(ToLongFunction<ListenerStats> counter) {
+        return smtpServer.getObject().getListenerStats().stream().mapToLong(counter).sum();
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.smtpmock.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Meters recorded on the capture hot path: DATA sizes, MIME parsing, storing and WebSocket
+ * fan-out. Callers time with {@link System#nanoTime()} and hand over the elapsed nanos, so
+ * recording is a couple of adder increments per event.
+ */
+@Component
+public class CaptureMetrics {
+
+    /**
+     * Records nothing; used where no registry is wired in, such as plain unit tests.
+     */
+    public static final CaptureMetrics NOOP = new CaptureMetrics(new CompositeMeterRegistry());
+
+    private final DistributionSummary dataSize;
+    private final Timer parseTime;
+    private final Timer storeTime;
+    private final Timer broadcastTime;
+    private final Counter sendFailures;
+
+    public CaptureMetrics(MeterRegistry registry) {
+        this.dataSize = DistributionSummary.builder("smtpmock.smtp.data.size")
+                .description("Size of received DATA payloads")
+                .baseUnit("bytes")
+                .publishPercentileHistogram()
+                .register(registry);
+        this.parseTime = Timer.builder("smtpmock.parse")
+                .description("Time spent parsing a received message")
+                .publishPercentileHistogram()
+                .register(registry);
+        this.storeTime = Timer.builder("smtpmock.store.add")
+                .description("Time spent adding a parsed email to the store")
+                .publishPercentileHistogram()
+                .register(registry);
+        this.broadcastTime = Timer.builder("smtpmock.websocket.broadcast")
+                .description("Time from a broadcast request until every matching session has its frame queued")
+                .publishPercentileHistogram()
+                .register(registry);
+        this.sendFailures = Counter.builder("smtpmock.websocket.send.failures")
+                .description("WebSocket sends that failed or disconnected a slow session")
+                .register(registry);
+    }
+
+    public void recordData(long bytes) {
+        dataSize.record(bytes);
+    }
+
+    public void recordParse(long nanos) {
+        parseTime.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordStore(long nanos) {
+        storeTime.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordBroadcast(long nanos) {
+        broadcastTime.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordSendFailure() {
+        sendFailures.increment();
+    }
+}
@@ -0,0 +1,14 @@
+package com.example.smtpmock.model;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Decoded attachment content read on demand from storage owned elsewhere, typically a
+ * region of the raw message buffer.
+ */
+@FunctionalInterface
+public interface AttachmentSource {
+
+    InputStream openStream() throws IOException;
+}
@@ -2,6 +2,12 @@ package com.example.smtpmock.model;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.UUID;
 
 public class EmailAttachment {
@@ -11,6 +17,8 @@ public class EmailAttachment {
     private String contentType;
     private long size;
     private byte[] data;
+    private AttachmentSource source;
+    private volatile String contentHash;
 
     public EmailAttachment() {
     }
@@ -23,6 +31,14 @@ public class EmailAttachment {
         this.data = data;
     }
 
+    public EmailAttachment(UUID id, String fileName, String contentType, long size, AttachmentSource source) {
+        this.id = id;
+        this.fileName = fileName;
+        this.contentType = contentType;
+        this.size = size;
+        this.source = source;
+    }
+
     public UUID getId() {
         return id;
     }
@@ -55,12 +71,74 @@ public class EmailAttachment {
         this.size = size;
     }
 
+    /**
+     * Returns the decoded content. Attachments backed by a {@link AttachmentSource} decode a
+     * fresh copy on each call; prefer {@link #openStream()} to avoid materializing it.
+     */
     @JsonIgnore
     public byte[] getData() {
-        return data;
+        if (data != null || source == null) {
+            return data;
+        }
+        try (InputStream inputStream = source.openStream()) {
+            return inputStream.readAllBytes();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to read attachment " + id, e);
+        }
     }
 
     public void setData(byte[] data) {
         this.data = data;
+        this.source = null;
+        this.contentHash = null;
+    }
+
+    @JsonIgnore
+    public AttachmentSource getSource() {
+        return source;
+    }
+
+    public void setSource(AttachmentSource source) {
+        this.source = source;
+        this.data = null;
+        this.contentHash = null;
+    }
+
+    /**
+     * Hex SHA-256 of the decoded content, computed by streaming it once and then remembered.
+     */
+    @JsonIgnore
+    public String getContentHash() {
+        String hash = contentHash;
+        if (hash != null) {
+            return hash;
+        }
+        try (InputStream inputStream = openStream()) {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] chunk = new byte[8192];
+            int read;
+            while ((read = inputStream.read(chunk)) != -1) {
+                digest.update(chunk, 0, read);
+            }
+            StringBuilder hex = new StringBuilder(64);
+            for (byte b : digest.digest()) {
+                hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            hash = hex.toString();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to read attachment " + id, e);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+        contentHash = hash;
+        return hash;
+    }
+
+    @JsonIgnore
+    public InputStream openStream() throws IOException {
+        if (data == null && source != null) {
+            return source.openStream();
+        }
+        return new ByteArrayInputStream(data != null ? data : new byte[0]);
     }
 }
@@ -0,0 +1,25 @@
+package com.example.smtpmock.model;
+
+import java.util.Collections;
+import java.util.List;
+
+public class EmailContent {
+
+    public static final EmailContent EMPTY = new EmailContent("", Collections.emptyList());
+
+    private final String body;
+    private final List<EmailAttachment> attachments;
+
+    public EmailContent(String body, List<EmailAttachment> attachments) {
+        this.body = body != null ? body : "";
+        this.attachments = attachments != null ? attachments : Collections.emptyList();
+    }
+
+    public String getBody() {
+        return body;
+    }
+
+    public List<EmailAttachment> getAttachments() {
+        return attachments;
+    }
+}
@@ -0,0 +1,22 @@
+package com.example.smtpmock.model;
+
+import java.util.List;
+
+public class EmailPage {
+
+    private final List<EmailSummary> items;
+    private final String nextCursor;
+
+    public EmailPage(List<EmailSummary> items, String nextCursor) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<EmailSummary> getItems() {
+        return items;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+}
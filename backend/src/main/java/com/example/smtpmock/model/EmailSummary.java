@@ -0,0 +1,78 @@
+package com.example.smtpmock.model;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+public class EmailSummary {
+
+    private final UUID id;
+    private final String from;
+    private final List<String> to;
+    private final List<String> cc;
+    private final String subject;
+    @JsonFormat(shape = JsonFormat.Shape.STRING)
+    private final Instant receivedAt;
+    private final long size;
+    private final Integer attachmentCount;
+
+    public EmailSummary(UUID id, String from, List<String> to, List<String> cc, String subject,
+                        Instant receivedAt, long size, Integer attachmentCount) {
+        this.id = id;
+        this.from = from;
+        this.to = to;
+        this.cc = cc;
+        this.subject = subject;
+        this.receivedAt = receivedAt;
+        this.size = size;
+        this.attachmentCount = attachmentCount;
+    }
+
+    public static EmailSummary of(StoredEmail email) {
+        return new EmailSummary(email.getId(),
+                email.getFrom(),
+                email.getTo(),
+                email.getCc(),
+                email.getSubject(),
+                email.getReceivedAt(),
+                email.getRawSize(),
+                email.isContentLoaded() ? email.getAttachments().size() : null);
+    }
+
+    public UUID getId() {
+        return id;
+    }
+
+    public String getFrom() {
+        return from;
+    }
+
+    public List<String> getTo() {
+        return to;
+    }
+
+    public List<String> getCc() {
+        return cc;
+    }
+
+    public String getSubject() {
+        return subject;
+    }
+
+    public Instant getReceivedAt() {
+        return receivedAt;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    /**
+     * Null while the email has not been MIME-parsed yet (lazy ingest).
+     */
+    public Integer getAttachmentCount() {
+        return attachmentCount;
+    }
+}
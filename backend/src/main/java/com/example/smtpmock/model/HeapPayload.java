@@ -0,0 +1,28 @@
+package com.example.smtpmock.model;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+
+public final class HeapPayload implements RawPayload {
+
+    private final byte[] bytes;
+
+    public HeapPayload(byte[] bytes) {
+        this.bytes = bytes;
+    }
+
+    @Override
+    public int length() {
+        return bytes.length;
+    }
+
+    @Override
+    public InputStream openStream(int offset, int length) {
+        return new ByteArrayInputStream(bytes, offset, length);
+    }
+
+    @Override
+    public byte[] toByteArray() {
+        return bytes;
+    }
+}
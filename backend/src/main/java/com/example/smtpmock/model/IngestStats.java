@@ -0,0 +1,63 @@
+package com.example.smtpmock.model;
+
+public class IngestStats {
+
+    private final String mode;
+    private final int parseQueueDepth;
+    private final int parseQueueCapacity;
+    private final int notifyQueueDepth;
+    private final int notifyQueueCapacity;
+    private final long accepted;
+    private final long rejected;
+    private final long stored;
+    private final long failed;
+
+    public IngestStats(String mode, int parseQueueDepth, int parseQueueCapacity, int notifyQueueDepth,
+                       int notifyQueueCapacity, long accepted, long rejected, long stored, long failed) {
+        this.mode = mode;
+        this.parseQueueDepth = parseQueueDepth;
+        this.parseQueueCapacity = parseQueueCapacity;
+        this.notifyQueueDepth = notifyQueueDepth;
+        this.notifyQueueCapacity = notifyQueueCapacity;
+        this.accepted = accepted;
+        this.rejected = rejected;
+        this.stored = stored;
+        this.failed = failed;
+    }
+
+    public String getMode() {
+        return mode;
+    }
+
+    public int getParseQueueDepth() {
+        return parseQueueDepth;
+    }
+
+    public int getParseQueueCapacity() {
+        return parseQueueCapacity;
+    }
+
+    public int getNotifyQueueDepth() {
+        return notifyQueueDepth;
+    }
+
+    public int getNotifyQueueCapacity() {
+        return notifyQueueCapacity;
+    }
+
+    public long getAccepted() {
+        return accepted;
+    }
+
+    public long getRejected() {
+        return rejected;
+    }
+
+    public long getStored() {
+        return stored;
+    }
+
+    public long getFailed() {
+        return failed;
+    }
+}
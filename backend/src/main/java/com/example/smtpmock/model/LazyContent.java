@@ -0,0 +1,38 @@
+package com.example.smtpmock.model;
+
+import java.util.function.Supplier;
+
+/**
+ * Memoizes the body and attachments of an email whose MIME structure has not been parsed
+ * yet. The loader runs at most once; concurrent callers wait for the first one.
+ */
+public final class LazyContent {
+
+    private Supplier<EmailContent> loader;
+    private volatile EmailContent content;
+
+    public LazyContent(Supplier<EmailContent> loader) {
+        this.loader = loader;
+    }
+
+    public EmailContent get() {
+        EmailContent result = content;
+        if (result == null) {
+            synchronized (this) {
+                result = content;
+                if (result == null) {
+                    result = loader.get();
+                    content = result != null ? result : EmailContent.EMPTY;
+                    result = content;
+                    // Release whatever the loader captured (typically the raw bytes).
+                    loader = null;
+                }
+            }
+        }
+        return result;
+    }
+
+    public boolean isLoaded() {
+        return content != null;
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.smtpmock.model;
+
+public class ListenerStats {
+
+    private final String name;
+    private final String bindAddress;
+    private final int port;
+    private final int activeConnections;
+    private final long totalConnections;
+    private final long messages;
+    private final long bytes;
+
+    public ListenerStats(String name, String bindAddress, int port, int activeConnections, long totalConnections,
+                         long messages, long bytes) {
+        this.name = name;
+        this.bindAddress = bindAddress;
+        this.port = port;
+        this.activeConnections = activeConnections;
+        this.totalConnections = totalConnections;
+        this.messages = messages;
+        this.bytes = bytes;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getBindAddress() {
+        return bindAddress;
+    }
+
+    public int getPort() {
+        return port;
+    }
+
+    public int getActiveConnections() {
+        return activeConnections;
+    }
+
+    public long getTotalConnections() {
+        return totalConnections;
+    }
+
+    public long getMessages() {
+        return messages;
+    }
+
+    public long getBytes() {
+        return bytes;
+    }
+}
@@ -0,0 +1,38 @@
+package com.example.smtpmock.model;
+
+public class MailboxStats {
+
+    private final int messages;
+    private final long bytes;
+    private final long evictedByCount;
+    private final long evictedByBytes;
+    private final long evictedByAge;
+
+    public MailboxStats(int messages, long bytes, long evictedByCount, long evictedByBytes, long evictedByAge) {
+        this.messages = messages;
+        this.bytes = bytes;
+        this.evictedByCount = evictedByCount;
+        this.evictedByBytes = evictedByBytes;
+        this.evictedByAge = evictedByAge;
+    }
+
+    public int getMessages() {
+        return messages;
+    }
+
+    public long getBytes() {
+        return bytes;
+    }
+
+    public long getEvictedByCount() {
+        return evictedByCount;
+    }
+
+    public long getEvictedByBytes() {
+        return evictedByBytes;
+    }
+
+    public long getEvictedByAge() {
+        return evictedByAge;
+    }
+}
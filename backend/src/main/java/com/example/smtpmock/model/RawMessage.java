@@ -0,0 +1,46 @@
+package com.example.smtpmock.model;
+
+import java.io.InputStream;
+
+/**
+ * Stable handle on a payload that storage may relocate (heap to mapped segment, or between
+ * segments during compaction). Views such as {@link RawRegionSource} hold the handle rather
+ * than the bytes, so relocation never leaves a stale copy reachable.
+ */
+public final class RawMessage {
+
+    private volatile RawPayload payload;
+
+    public RawMessage(byte[] bytes) {
+        this(new HeapPayload(bytes));
+    }
+
+    public RawMessage(RawPayload payload) {
+        this.payload = payload;
+    }
+
+    public int length() {
+        return payload.length();
+    }
+
+    public byte[] toByteArray() {
+        return payload.toByteArray();
+    }
+
+    public InputStream openStream() {
+        RawPayload current = payload;
+        return current.openStream(0, current.length());
+    }
+
+    public InputStream openStream(int offset, int length) {
+        return payload.openStream(offset, length);
+    }
+
+    public RawPayload getPayload() {
+        return payload;
+    }
+
+    public void setPayload(RawPayload payload) {
+        this.payload = payload;
+    }
+}
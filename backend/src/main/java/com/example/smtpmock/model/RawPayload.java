@@ -0,0 +1,19 @@
+package com.example.smtpmock.model;
+
+import java.io.InputStream;
+
+/**
+ * Bytes of a raw message or attachment, wherever they live (heap array, mapped segment).
+ */
+public interface RawPayload {
+
+    int length();
+
+    InputStream openStream(int offset, int length);
+
+    /**
+     * Returns the content as a heap array. Heap-backed payloads return their own array,
+     * so callers must not modify it.
+     */
+    byte[] toByteArray();
+}
@@ -0,0 +1,66 @@
+package com.example.smtpmock.model;
+
+import javax.mail.MessagingException;
+import javax.mail.internet.MimeUtility;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Attachment content as a still-encoded region of a {@link RawMessage}, decoded with the
+ * part's Content-Transfer-Encoding each time it is opened.
+ */
+public final class RawRegionSource implements AttachmentSource {
+
+    private final RawMessage raw;
+    private final int offset;
+    private final int length;
+    private final String transferEncoding;
+
+    public RawRegionSource(RawMessage raw, int offset, int length, String transferEncoding) {
+        this.raw = raw;
+        this.offset = offset;
+        this.length = length;
+        this.transferEncoding = transferEncoding;
+    }
+
+    public RawMessage getRaw() {
+        return raw;
+    }
+
+    public int getOffset() {
+        return offset;
+    }
+
+    public int getLength() {
+        return length;
+    }
+
+    public String getTransferEncoding() {
+        return transferEncoding;
+    }
+
+    @Override
+    public InputStream openStream() throws IOException {
+        InputStream region = raw.openStream(offset, length);
+        if (transferEncoding == null) {
+            return region;
+        }
+        try {
+            return MimeUtility.decode(region, transferEncoding);
+        } catch (MessagingException e) {
+            throw new IOException("Unsupported transfer encoding " + transferEncoding, e);
+        }
+    }
+
+    public long decodedSize() throws IOException {
+        long size = 0;
+        byte[] chunk = new byte[8192];
+        try (InputStream inputStream = openStream()) {
+            int read;
+            while ((read = inputStream.read(chunk)) != -1) {
+                size += read;
+            }
+        }
+        return size;
+    }
+}
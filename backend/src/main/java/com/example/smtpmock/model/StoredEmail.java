@@ -1,7 +1,9 @@
 package com.example.smtpmock.model;
 
 import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 
+import java.nio.charset.StandardCharsets;
 import java.time.Instant;
 import java.util.Collections;
 import java.util.List;
@@ -18,8 +20,11 @@ public class StoredEmail {
     private String body;
     @JsonFormat(shape = JsonFormat.Shape.STRING)
     private Instant receivedAt;
-    private String rawMessage;
+    private String mailbox;
+    private List<String> envelopeRecipients = Collections.emptyList();
+    private RawMessage raw;
     private List<EmailAttachment> attachments = Collections.emptyList();
+    private volatile LazyContent lazyContent;
 
     public StoredEmail() {
     }
@@ -35,10 +40,17 @@ public class StoredEmail {
         this.subject = subject;
         this.body = body;
         this.receivedAt = receivedAt;
-        this.rawMessage = rawMessage;
+        this.raw = encode(rawMessage);
         this.attachments = attachments != null ? attachments : Collections.emptyList();
     }
 
+    public StoredEmail(UUID id, String from, List<String> to, List<String> cc, List<String> bcc,
+                       String subject, Instant receivedAt, RawMessage raw, LazyContent lazyContent) {
+        this(id, from, to, cc, bcc, subject, null, receivedAt, null, null);
+        this.raw = raw;
+        this.lazyContent = lazyContent;
+    }
+
     public UUID getId() {
         return id;
     }
@@ -88,10 +100,12 @@ public class StoredEmail {
     }
 
     public String getBody() {
-        return body;
+        LazyContent lazy = lazyContent;
+        return lazy != null ? lazy.get().getBody() : body;
     }
 
     public void setBody(String body) {
+        materialize();
         this.body = body;
     }
 
@@ -103,19 +117,92 @@ public class StoredEmail {
         this.receivedAt = receivedAt;
     }
 
+    public String getMailbox() {
+        return mailbox;
+    }
+
+    public void setMailbox(String mailbox) {
+        this.mailbox = mailbox;
+    }
+
+    /**
+     * RCPT TO addresses this copy was delivered for, including ones absent from the headers.
+     */
+    public List<String> getEnvelopeRecipients() {
+        return envelopeRecipients;
+    }
+
+    public void setEnvelopeRecipients(List<String> envelopeRecipients) {
+        this.envelopeRecipients = envelopeRecipients != null ? envelopeRecipients : Collections.emptyList();
+    }
+
+    /**
+     * Decoded on every call from the raw payload, which is the only copy kept in memory.
+     */
     public String getRawMessage() {
-        return rawMessage;
+        RawMessage current = raw;
+        return current != null ? new String(current.toByteArray(), StandardCharsets.UTF_8) : null;
     }
 
     public void setRawMessage(String rawMessage) {
-        this.rawMessage = rawMessage;
+        this.raw = encode(rawMessage);
+    }
+
+    @JsonIgnore
+    public byte[] getRawBytes() {
+        RawMessage current = raw;
+        return current != null ? current.toByteArray() : null;
+    }
+
+    public void setRawBytes(byte[] rawBytes) {
+        this.raw = rawBytes != null ? new RawMessage(rawBytes) : null;
+    }
+
+    @JsonIgnore
+    public RawMessage getRaw() {
+        return raw;
+    }
+
+    public void setRaw(RawMessage raw) {
+        this.raw = raw;
+    }
+
+    @JsonIgnore
+    public int getRawSize() {
+        RawMessage current = raw;
+        return current != null ? current.length() : 0;
     }
 
     public List<EmailAttachment> getAttachments() {
-        return attachments;
+        LazyContent lazy = lazyContent;
+        return lazy != null ? lazy.get().getAttachments() : attachments;
     }
 
     public void setAttachments(List<EmailAttachment> attachments) {
+        materialize();
         this.attachments = attachments != null ? attachments : Collections.emptyList();
     }
+
+    /**
+     * Whether body and attachments are available without parsing the raw message.
+     */
+    @JsonIgnore
+    public boolean isContentLoaded() {
+        LazyContent lazy = lazyContent;
+        return lazy == null || lazy.isLoaded();
+    }
+
+    private synchronized void materialize() {
+        LazyContent lazy = lazyContent;
+        if (lazy != null) {
+            EmailContent content = lazy.get();
+            this.body = content.getBody();
+            this.attachments = content.getAttachments();
+            this.lazyContent = null;
+        }
+    }
+
+    private static RawMessage encode(String rawMessage) {
+        return rawMessage != null ? new RawMessage(rawMessage.getBytes(StandardCharsets.UTF_8)) : null;
+    }
 }
@@ -1,45 +1,241 @@
 package com.example.smtpmock.service;
 
 import com.example.smtpmock.event.EmailAddedEvent;
+import com.example.smtpmock.metrics.CaptureMetrics;
 import com.example.smtpmock.model.EmailAttachment;
+import com.example.smtpmock.model.EmailPage;
+import com.example.smtpmock.model.EmailSummary;
+import com.example.smtpmock.model.MailboxStats;
 import com.example.smtpmock.model.StoredEmail;
+import com.example.smtpmock.store.Mailbox;
+import com.example.smtpmock.store.PageCursor;
+import com.example.smtpmock.store.PagedEmail;
+import com.example.smtpmock.store.PayloadStorage;
+import com.example.smtpmock.store.RetentionPolicy;
+import com.example.smtpmock.store.SearchQuery;
+import com.example.smtpmock.store.StoreJournal;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 
+import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
 import java.util.UUID;
-import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 public class EmailStoreService {
 
-    private final CopyOnWriteArrayList<StoredEmail> emails = new CopyOnWriteArrayList<>();
+    public static final String DEFAULT_MAILBOX = "default";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(EmailStoreService.class);
+    private static final int MAX_PAGE_SIZE = 1000;
+    private static final Comparator<StoredEmail> NEWEST_FIRST =
+            Comparator.comparing(StoredEmail::getReceivedAt).reversed();
+
+    private final Map<String, Mailbox> mailboxes = new ConcurrentHashMap<>();
+    private final Map<UUID, Mailbox> locations = new ConcurrentHashMap<>();
+    // Stores share these; a clear takes the write side so that its CLEARED record can never
+    // land between an email's ADDED record and the insert it journals.
+    private final ReadWriteLock clearLock = new ReentrantReadWriteLock();
+    private final Map<String, ReadWriteLock> mailboxClearLocks = new ConcurrentHashMap<>();
+    private final RetentionPolicy retentionPolicy;
+    private final PayloadStorage payloadStorage;
+    private final StoreJournal journal;
     private final ApplicationEventPublisher eventPublisher;
+    private final CaptureMetrics metrics;
 
     public EmailStoreService(ApplicationEventPublisher eventPublisher) {
+        this(eventPublisher, RetentionPolicy.UNBOUNDED);
+    }
+
+    @Autowired
+    public EmailStoreService(ApplicationEventPublisher eventPublisher, RetentionProperties retentionProperties,
+                             PayloadStorage payloadStorage, StoreJournal journal, CaptureMetrics metrics) {
+        this(eventPublisher, retentionProperties.toPolicy(), payloadStorage, journal, metrics);
+    }
+
+    public EmailStoreService(ApplicationEventPublisher eventPublisher, RetentionPolicy retentionPolicy) {
+        this(eventPublisher, retentionPolicy, PayloadStorage.HEAP);
+    }
+
+    public EmailStoreService(ApplicationEventPublisher eventPublisher, RetentionPolicy retentionPolicy,
+                             PayloadStorage payloadStorage) {
+        this(eventPublisher, retentionPolicy, payloadStorage, StoreJournal.NOOP);
+    }
+
+    public EmailStoreService(ApplicationEventPublisher eventPublisher, RetentionPolicy retentionPolicy,
+                             PayloadStorage payloadStorage, StoreJournal journal) {
+        this(eventPublisher, retentionPolicy, payloadStorage, journal, CaptureMetrics.NOOP);
+    }
+
+    public EmailStoreService(ApplicationEventPublisher eventPublisher, RetentionPolicy retentionPolicy,
+                             PayloadStorage payloadStorage, StoreJournal journal, CaptureMetrics metrics) {
         this.eventPublisher = eventPublisher;
+        this.retentionPolicy = retentionPolicy;
+        this.payloadStorage = payloadStorage;
+        this.journal = journal;
+        this.metrics = metrics;
     }
 
     public List<StoredEmail> findAll() {
-        return Collections.unmodifiableList(emails);
+        if (mailboxes.size() <= 1) {
+            return mailboxes.isEmpty() ? Collections.emptyList() : mailboxes.values().iterator().next().findAll();
+        }
+        List<StoredEmail> result = new ArrayList<>();
+        mailboxes.values().forEach(mailbox -> result.addAll(mailbox.findAll()));
+        result.sort(NEWEST_FIRST);
+        return Collections.unmodifiableList(result);
+    }
+
+    public List<StoredEmail> findAll(String mailbox) {
+        return existing(mailbox).map(Mailbox::findAll).orElse(Collections.emptyList());
+    }
+
+    /**
+     * Pages across every mailbox by merging each mailbox's own page.
+     */
+    public EmailPage findPage(String cursor, int limit) {
+        return page(new ArrayList<>(mailboxes.values()), cursor, limit);
+    }
+
+    public EmailPage findPage(String mailbox, String cursor, int limit) {
+        return page(existing(mailbox).map(Collections::singletonList).orElse(Collections.emptyList()), cursor, limit);
+    }
+
+    public Iterator<StoredEmail> iterator() {
+        List<Iterator<StoredEmail>> iterators = mailboxes.values().stream()
+                .map(Mailbox::iterator)
+                .collect(Collectors.toList());
+        return iterators.size() == 1 ? iterators.get(0) : new MergingIterator(iterators);
     }
 
     public Optional<StoredEmail> findById(UUID id) {
-        return emails.stream()
-                .filter(email -> email.getId().equals(id))
-                .findFirst();
+        Mailbox mailbox = locations.get(id);
+        return mailbox != null ? mailbox.findById(id) : Optional.empty();
+    }
+
+    public Optional<StoredEmail> findById(String mailbox, UUID id) {
+        return existing(mailbox).flatMap(box -> box.findById(id));
     }
 
     public StoredEmail addEmail(StoredEmail email) {
-        emails.add(0, email);
+        store(email);
         eventPublisher.publishEvent(new EmailAddedEvent(email));
         return email;
     }
 
+    /**
+     * Stores an email without publishing {@link EmailAddedEvent}; the caller announces it.
+     */
+    public StoredEmail store(StoredEmail email) {
+        long start = System.nanoTime();
+        if (email.getReceivedAt() == null) {
+            email.setReceivedAt(Instant.now());
+        }
+        if (email.getMailbox() == null) {
+            email.setMailbox(DEFAULT_MAILBOX);
+        }
+        Lock all = clearLock.readLock();
+        Lock own = mailboxClearLock(email.getMailbox()).readLock();
+        all.lock();
+        own.lock();
+        try {
+            journal.added(email);
+            try {
+                insert(email);
+            } catch (RuntimeException e) {
+                // Keeps a restart from restoring an email that was never stored.
+                journal.removed(email.getId());
+                throw e;
+            }
+        } finally {
+            own.unlock();
+            all.unlock();
+        }
+        metrics.recordStore(System.nanoTime() - start);
+        return email;
+    }
+
+    /**
+     * Re-inserts an email recovered from the journal without announcing it as new mail.
+     */
+    public void restore(StoredEmail email) {
+        if (email.getMailbox() == null) {
+            email.setMailbox(DEFAULT_MAILBOX);
+        }
+        insert(email);
+    }
+
+    private void insert(StoredEmail email) {
+        Mailbox mailbox = mailboxes.computeIfAbsent(email.getMailbox(), name -> new Mailbox(name, retentionPolicy));
+        payloadStorage.store(email);
+        locations.put(email.getId(), mailbox);
+        List<StoredEmail> evicted = mailbox.add(email, Instant.now(), previous -> {
+            // Same id stored again: the new email keeps the location, the old payload goes.
+            if (previous != email) {
+                payloadStorage.release(previous);
+            }
+        });
+        if (!evicted.isEmpty()) {
+            evicted.forEach(evictedEmail -> {
+                onRemoved(evictedEmail);
+                journal.removed(evictedEmail.getId());
+            });
+            LOGGER.debug("Evicted {} email(s) from mailbox {} to honour retention limits",
+                    evicted.size(), mailbox.getName());
+        }
+    }
+
     public void remove(UUID id) {
-        emails.removeIf(email -> email.getId().equals(id));
+        Mailbox mailbox = locations.get(id);
+        if (mailbox != null) {
+            remove(mailbox, id);
+        }
+    }
+
+    public void remove(String mailbox, UUID id) {
+        existing(mailbox).ifPresent(box -> remove(box, id));
+    }
+
+    private void remove(Mailbox mailbox, UUID id) {
+        mailbox.remove(id).ifPresent(email -> {
+            onRemoved(email);
+            journal.removed(id);
+        });
+    }
+
+    public List<StoredEmail> search(SearchQuery query, int limit) {
+        int max = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        if (mailboxes.size() == 1) {
+            return mailboxes.values().iterator().next().search(query, max);
+        }
+        return mailboxes.values().stream()
+                .flatMap(mailbox -> mailbox.search(query, max).stream())
+                .sorted(NEWEST_FIRST)
+                .limit(max)
+                .collect(Collectors.toList());
+    }
+
+    public List<StoredEmail> search(String mailbox, SearchQuery query, int limit) {
+        int max = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        return existing(mailbox).map(box -> box.search(query, max)).orElse(Collections.emptyList());
     }
 
     public Optional<EmailAttachment> findAttachment(UUID emailId, UUID attachmentId) {
@@ -50,6 +246,134 @@ public class EmailStoreService {
     }
 
     public void clear() {
-        emails.clear();
+        Lock lock = clearLock.writeLock();
+        lock.lock();
+        try {
+            mailboxes.values().forEach(mailbox -> mailbox.clear().forEach(this::onRemoved));
+            journal.cleared();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Empties a single mailbox; other mailboxes are neither touched nor blocked.
+     */
+    public void clear(String mailbox) {
+        existing(mailbox).ifPresent(box -> {
+            Lock lock = mailboxClearLock(box.getName()).writeLock();
+            lock.lock();
+            try {
+                box.clear().forEach(this::onRemoved);
+                journal.mailboxCleared(box.getName());
+            } finally {
+                lock.unlock();
+            }
+        });
+    }
+
+    private ReadWriteLock mailboxClearLock(String mailbox) {
+        return mailboxClearLocks.computeIfAbsent(mailbox, name -> new ReentrantReadWriteLock());
+    }
+
+    private void onRemoved(StoredEmail email) {
+        locations.remove(email.getId());
+        payloadStorage.release(email);
+    }
+
+    public MailboxStats getStats() {
+        long messages = 0;
+        long bytes = 0;
+        long evictedByCount = 0;
+        long evictedByBytes = 0;
+        long evictedByAge = 0;
+        for (Mailbox mailbox : mailboxes.values()) {
+            MailboxStats stats = mailbox.getStats();
+            messages += stats.getMessages();
+            bytes += stats.getBytes();
+            evictedByCount += stats.getEvictedByCount();
+            evictedByBytes += stats.getEvictedByBytes();
+            evictedByAge += stats.getEvictedByAge();
+        }
+        return new MailboxStats((int) messages, bytes, evictedByCount, evictedByBytes, evictedByAge);
+    }
+
+    public Optional<MailboxStats> getStats(String mailbox) {
+        return existing(mailbox).map(Mailbox::getStats);
+    }
+
+    public Map<String, MailboxStats> getMailboxStats() {
+        return mailboxes.values().stream()
+                .collect(Collectors.toMap(Mailbox::getName, Mailbox::getStats, (left, right) -> left, TreeMap::new));
+    }
+
+    private Optional<Mailbox> existing(String mailbox) {
+        return Optional.ofNullable(mailboxes.get(mailbox));
+    }
+
+    private EmailPage page(List<Mailbox> sources, String cursor, int limit) {
+        PageCursor after = cursor != null && !cursor.isEmpty() ? PageCursor.decode(cursor) : null;
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        List<PagedEmail> emails;
+        if (sources.size() == 1) {
+            emails = sources.get(0).page(after, pageSize + 1);
+        } else {
+            // Same total order as each mailbox's probe, so ties across mailboxes never repeat.
+            emails = sources.stream()
+                    .flatMap(mailbox -> mailbox.page(after, pageSize + 1).stream())
+                    .sorted(Comparator.comparing(PagedEmail::getPosition, PageCursor.NEWEST_FIRST))
+                    .limit(pageSize + 1)
+                    .collect(Collectors.toList());
+        }
+        boolean hasMore = emails.size() > pageSize;
+        List<PagedEmail> items = hasMore ? emails.subList(0, pageSize) : emails;
+        String nextCursor = hasMore ? items.get(items.size() - 1).getPosition().encode() : null;
+        return new EmailPage(items.stream().map(item -> EmailSummary.of(item.getEmail())).collect(Collectors.toList()),
+                nextCursor);
+    }
+
+    /**
+     * Newest-first merge of the per-mailbox iterators.
+     */
+    private static final class MergingIterator implements Iterator<StoredEmail> {
+
+        private final PriorityQueue<Head> heads = new PriorityQueue<>(
+                Comparator.comparing((Function<Head, StoredEmail>) head -> head.email, NEWEST_FIRST));
+
+        MergingIterator(List<Iterator<StoredEmail>> iterators) {
+            iterators.forEach(this::advance);
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !heads.isEmpty();
+        }
+
+        @Override
+        public StoredEmail next() {
+            Head head = heads.poll();
+            if (head == null) {
+                throw new NoSuchElementException();
+            }
+            advance(head.source);
+            return head.email;
+        }
+
+        private void advance(Iterator<StoredEmail> source) {
+            if (source.hasNext()) {
+                heads.add(new Head(source.next(), source));
+            }
+        }
+    }
+
+    private static final class Head {
+
+        final StoredEmail email;
+        final Iterator<StoredEmail> source;
+
+        Head(StoredEmail email, Iterator<StoredEmail> source) {
+            this.email = email;
+            this.source = source;
+        }
     }
 }
@@ -0,0 +1,118 @@
+package com.example.smtpmock.service;
+
+import com.example.smtpmock.event.EmailAddedEvent;
+import com.example.smtpmock.model.StoredEmail;
+import com.example.smtpmock.store.SearchIndex;
+import com.example.smtpmock.store.SearchQuery;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * Parks callers until an email matching their query arrives. Waiters with a recipient are
+ * indexed by that address so each new email is only checked against the waiters that
+ * could possibly match it.
+ */
+@Service
+public class EmailWaitService {
+
+    private final EmailStoreService emailStoreService;
+    private final Map<String, Set<Waiter>> byRecipient = new ConcurrentHashMap<>();
+    private final Set<Waiter> unscoped = ConcurrentHashMap.newKeySet();
+
+    public EmailWaitService(EmailStoreService emailStoreService) {
+        this.emailStoreService = emailStoreService;
+    }
+
+    /**
+     * Registers {@code onMatch} to be called once with the first email matching the query,
+     * which may be one already stored. The returned handle cancels the wait.
+     */
+    public Runnable await(SearchQuery query, Consumer<StoredEmail> onMatch) {
+        Waiter waiter = new Waiter(query, onMatch);
+        register(waiter);
+        // Registering before the lookup means an email landing in between is seen by
+        // one path or the other; the waiter itself guarantees a single completion.
+        List<StoredEmail> existing = emailStoreService.search(query, 1);
+        if (!existing.isEmpty()) {
+            complete(waiter, existing.get(0));
+        }
+        return () -> unregister(waiter);
+    }
+
+    public int pendingCount() {
+        int count = unscoped.size();
+        for (Set<Waiter> waiters : byRecipient.values()) {
+            count += waiters.size();
+        }
+        return count;
+    }
+
+    @EventListener
+    public void onEmailAdded(EmailAddedEvent event) {
+        StoredEmail email = event.getEmail();
+        List<Waiter> candidates = new ArrayList<>(unscoped);
+        for (String recipient : SearchIndex.recipientsOf(email)) {
+            Set<Waiter> waiters = byRecipient.get(recipient);
+            if (waiters != null) {
+                candidates.addAll(waiters);
+            }
+        }
+        for (Waiter waiter : candidates) {
+            if (SearchIndex.matches(waiter.query, email)) {
+                complete(waiter, email);
+            }
+        }
+    }
+
+    private void complete(Waiter waiter, StoredEmail email) {
+        if (waiter.done.compareAndSet(false, true)) {
+            unregister(waiter);
+            waiter.onMatch.accept(email);
+        }
+    }
+
+    private void register(Waiter waiter) {
+        if (waiter.recipient == null) {
+            unscoped.add(waiter);
+            return;
+        }
+        byRecipient.compute(waiter.recipient, (key, waiters) -> {
+            Set<Waiter> result = waiters != null ? waiters : ConcurrentHashMap.newKeySet();
+            result.add(waiter);
+            return result;
+        });
+    }
+
+    private void unregister(Waiter waiter) {
+        if (waiter.recipient == null) {
+            unscoped.remove(waiter);
+            return;
+        }
+        byRecipient.computeIfPresent(waiter.recipient, (key, waiters) -> {
+            waiters.remove(waiter);
+            return waiters.isEmpty() ? null : waiters;
+        });
+    }
+
+    private static final class Waiter {
+
+        final SearchQuery query;
+        final String recipient;
+        final Consumer<StoredEmail> onMatch;
+        final AtomicBoolean done = new AtomicBoolean();
+
+        Waiter(SearchQuery query, Consumer<StoredEmail> onMatch) {
+            this.query = query;
+            this.recipient = query.getTo() != null ? SearchIndex.normalizeAddress(query.getTo()) : null;
+            this.onMatch = onMatch;
+        }
+    }
+}
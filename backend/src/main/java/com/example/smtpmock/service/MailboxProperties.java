@@ -0,0 +1,26 @@
+package com.example.smtpmock.service;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "smtp.mock.mailboxes")
+public class MailboxProperties {
+
+    public enum Partitioning {
+        NONE,
+        RECIPIENT_DOMAIN,
+        RECIPIENT,
+        PORT
+    }
+
+    private Partitioning partitionBy = Partitioning.NONE;
+
+    public Partitioning getPartitionBy() {
+        return partitionBy;
+    }
+
+    public void setPartitionBy(Partitioning partitionBy) {
+        this.partitionBy = partitionBy;
+    }
+}
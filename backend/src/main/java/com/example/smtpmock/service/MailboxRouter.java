@@ -0,0 +1,35 @@
+package com.example.smtpmock.service;
+
+import com.example.smtpmock.store.SearchIndex;
+import org.springframework.stereotype.Component;
+
+/**
+ * Chooses the mailbox a delivery lands in from its envelope recipient or listening port.
+ */
+@Component
+public class MailboxRouter {
+
+    private final MailboxProperties.Partitioning partitioning;
+
+    public MailboxRouter(MailboxProperties properties) {
+        this.partitioning = properties.getPartitionBy();
+    }
+
+    public String route(int port, String recipient) {
+        switch (partitioning) {
+            case RECIPIENT:
+                return recipient != null ? SearchIndex.normalizeAddress(recipient) : EmailStoreService.DEFAULT_MAILBOX;
+            case RECIPIENT_DOMAIN:
+                if (recipient == null) {
+                    return EmailStoreService.DEFAULT_MAILBOX;
+                }
+                String address = SearchIndex.normalizeAddress(recipient);
+                int at = address.lastIndexOf('@');
+                return at >= 0 && at < address.length() - 1 ? address.substring(at + 1) : EmailStoreService.DEFAULT_MAILBOX;
+            case PORT:
+                return String.valueOf(port);
+            default:
+                return EmailStoreService.DEFAULT_MAILBOX;
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.smtpmock.service;
+
+import com.example.smtpmock.store.EvictionPolicy;
+import com.example.smtpmock.store.RetentionPolicy;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+@Component
+@ConfigurationProperties(prefix = "smtp.mock.retention")
+public class RetentionProperties {
+
+    private int maxMessages;
+    private DataSize maxBytes = DataSize.ofBytes(0);
+    private Duration maxAge = Duration.ZERO;
+    private EvictionPolicy eviction = EvictionPolicy.OLDEST_FIRST;
+    private int evictionBatchSize = 32;
+
+    public int getMaxMessages() {
+        return maxMessages;
+    }
+
+    public void setMaxMessages(int maxMessages) {
+        this.maxMessages = maxMessages;
+    }
+
+    public DataSize getMaxBytes() {
+        return maxBytes;
+    }
+
+    public void setMaxBytes(DataSize maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    public Duration getMaxAge() {
+        return maxAge;
+    }
+
+    public void setMaxAge(Duration maxAge) {
+        this.maxAge = maxAge;
+    }
+
+    public EvictionPolicy getEviction() {
+        return eviction;
+    }
+
+    public void setEviction(EvictionPolicy eviction) {
+        this.eviction = eviction;
+    }
+
+    public int getEvictionBatchSize() {
+        return evictionBatchSize;
+    }
+
+    public void setEvictionBatchSize(int evictionBatchSize) {
+        this.evictionBatchSize = evictionBatchSize;
+    }
+
+    public RetentionPolicy toPolicy() {
+        return new RetentionPolicy(maxMessages,
+                maxBytes != null ? maxBytes.toBytes() : 0,
+                maxAge,
+                eviction,
+                evictionBatchSize);
+    }
+}
@@ -0,0 +1,37 @@
+package com.example.smtpmock.service;
+
+import com.example.smtpmock.store.DeduplicatingPayloadStorage;
+import com.example.smtpmock.store.MappedPayloadStorage;
+import com.example.smtpmock.store.PayloadStorage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+@Configuration
+public class StorageConfiguration {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(StorageConfiguration.class);
+
+    @Bean(destroyMethod = "close")
+    public PayloadStorage payloadStorage(StorageProperties properties) throws IOException {
+        if (properties.getPayloads() != StorageProperties.PayloadMode.MAPPED) {
+            return properties.isDeduplicateAttachments()
+                    ? new DeduplicatingPayloadStorage((int) Math.min(properties.getDeduplicationMinSize().toBytes(), Integer.MAX_VALUE))
+                    : PayloadStorage.HEAP;
+        }
+        if (properties.isDeduplicateAttachments()) {
+            LOGGER.warn("Attachment deduplication only applies to heap payloads and is ignored in mapped mode");
+        }
+        Path directory = properties.getDirectory() != null && !properties.getDirectory().isBlank()
+                ? Paths.get(properties.getDirectory())
+                : Files.createTempDirectory("smtp-mock-segments");
+        long segmentSize = Math.min(properties.getSegmentSize().toBytes(), Integer.MAX_VALUE);
+        return new MappedPayloadStorage(directory, (int) segmentSize, properties.getCompactionThreshold());
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.smtpmock.service;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+@Component
+@ConfigurationProperties(prefix = "smtp.mock.storage")
+public class StorageProperties {
+
+    public enum PayloadMode {
+        HEAP,
+        MAPPED
+    }
+
+    private PayloadMode payloads = PayloadMode.HEAP;
+    private String directory;
+    private DataSize segmentSize = DataSize.ofMegabytes(64);
+    private double compactionThreshold = 0.5;
+    private boolean deduplicateAttachments;
+    private DataSize deduplicationMinSize = DataSize.ofKilobytes(4);
+
+    public PayloadMode getPayloads() {
+        return payloads;
+    }
+
+    public void setPayloads(PayloadMode payloads) {
+        this.payloads = payloads;
+    }
+
+    public String getDirectory() {
+        return directory;
+    }
+
+    public void setDirectory(String directory) {
+        this.directory = directory;
+    }
+
+    public DataSize getSegmentSize() {
+        return segmentSize;
+    }
+
+    public void setSegmentSize(DataSize segmentSize) {
+        this.segmentSize = segmentSize;
+    }
+
+    public double getCompactionThreshold() {
+        return compactionThreshold;
+    }
+
+    public void setCompactionThreshold(double compactionThreshold) {
+        this.compactionThreshold = compactionThreshold;
+    }
+
+    public boolean isDeduplicateAttachments() {
+        return deduplicateAttachments;
+    }
+
+    public void setDeduplicateAttachments(boolean deduplicateAttachments) {
+        this.deduplicateAttachments = deduplicateAttachments;
+    }
+
+    public DataSize getDeduplicationMinSize() {
+        return deduplicationMinSize;
+    }
+
+    public void setDeduplicationMinSize(DataSize deduplicationMinSize) {
+        this.deduplicationMinSize = deduplicationMinSize;
+    }
+}
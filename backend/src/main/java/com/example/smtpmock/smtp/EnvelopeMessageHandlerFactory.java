@@ -0,0 +1,83 @@
+package com.example.smtpmock.smtp;
+
+import org.subethamail.smtp.MessageContext;
+import org.subethamail.smtp.MessageHandler;
+import org.subethamail.smtp.MessageHandlerFactory;
+import org.subethamail.smtp.RejectException;
+import org.subethamail.smtp.TooMuchDataException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Session handler that captures the whole envelope (MAIL FROM and every RCPT TO) and reads
+ * DATA once, so a message is parsed once rather than once per recipient. In asynchronous
+ * ingest mode the message is handed to the {@link IngestPipeline} and the 250 reply only
+ * waits for a queue slot; otherwise it is stored before replying.
+ */
+public class EnvelopeMessageHandlerFactory implements MessageHandlerFactory {
+
+    private final MockMessageListener messageListener;
+    private final IngestPipeline pipeline;
+    private final MessageDataReader dataReader;
+    private final int port;
+    private final long maxMessageSize;
+
+    public EnvelopeMessageHandlerFactory(MockMessageListener messageListener, IngestPipeline pipeline,
+                                         MessageDataReader dataReader, int port, long maxMessageSize) {
+        this.messageListener = messageListener;
+        this.pipeline = pipeline;
+        this.dataReader = dataReader;
+        this.port = port;
+        this.maxMessageSize = maxMessageSize;
+    }
+
+    @Override
+    public MessageHandler create(MessageContext context) {
+        return new EnvelopeMessageHandler();
+    }
+
+    private class EnvelopeMessageHandler implements MessageHandler {
+
+        private String from;
+        private final List<String> recipients = new ArrayList<>();
+
+        @Override
+        public void from(String from) throws RejectException {
+            this.from = from;
+        }
+
+        @Override
+        public void recipient(String recipient) throws RejectException {
+            if (!messageListener.accept(from, recipient)) {
+                throw new RejectException(553, "<" + recipient + "> address unknown.");
+            }
+            recipients.add(recipient);
+        }
+
+        @Override
+        public void data(InputStream data) throws RejectException, TooMuchDataException, IOException {
+            byte[] rawBytes = dataReader.read(data, maxMessageSize);
+            if (!pipeline.isAsync()) {
+                messageListener.store(port, recipients, rawBytes);
+                return;
+            }
+            boolean queued;
+            try {
+                queued = pipeline.submit(port, from, new ArrayList<>(recipients), rawBytes);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                queued = false;
+            }
+            if (!queued) {
+                throw new RejectException(451, "Requested action aborted: mail queue full, try again later");
+            }
+        }
+
+        @Override
+        public void done() {
+        }
+    }
+}
@@ -0,0 +1,220 @@
+package com.example.smtpmock.smtp;
+
+import com.example.smtpmock.event.EmailAddedEvent;
+import com.example.smtpmock.model.IngestStats;
+import com.example.smtpmock.model.StoredEmail;
+import com.example.smtpmock.service.EmailStoreService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Decouples SMTP acceptance from everything after it. Session threads only hand raw bytes
+ * to a bounded parse queue; parse workers build and store the emails and pass them to a
+ * single notifier thread, so slow listeners (browser tabs) never hold up storage or the
+ * SMTP reply. Workers finish in any order, so every job carries its arrival sequence and
+ * the notifier holds early completions back until the gap before them is filled, publishing
+ * {@link EmailAddedEvent} in arrival order. A job only gets its sequence once it holds a
+ * queue slot, so a submitter still waiting for room never holds back later notifications.
+ */
+@Component
+public class IngestPipeline implements DisposableBean {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(IngestPipeline.class);
+
+    private final MockMessageListener messageListener;
+    private final EmailStoreService emailStoreService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final IngestProperties properties;
+    private final BlockingQueue<IngestJob> parseQueue;
+    private final BlockingQueue<Completion> notifyQueue;
+    // One permit per free parse queue slot; workers return it when they take a job.
+    private final Semaphore parseSlots;
+    // Guards nextSequence so that sequences follow the order jobs enter the queue.
+    private final Object enqueueLock = new Object();
+    private long nextSequence;
+    private final List<Thread> threads = new ArrayList<>();
+    private final LongAdder accepted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder stored = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private volatile boolean running = true;
+
+    public IngestPipeline(MockMessageListener messageListener, EmailStoreService emailStoreService,
+                          ApplicationEventPublisher eventPublisher, IngestProperties properties) {
+        this.messageListener = messageListener;
+        this.emailStoreService = emailStoreService;
+        this.eventPublisher = eventPublisher;
+        this.properties = properties;
+        this.parseQueue = new ArrayBlockingQueue<>(Math.max(1, properties.getQueueCapacity()));
+        this.parseSlots = new Semaphore(Math.max(1, properties.getQueueCapacity()));
+        this.notifyQueue = new ArrayBlockingQueue<>(Math.max(1, properties.getNotifyQueueCapacity()));
+        if (isAsync()) {
+            for (int i = 0; i < Math.max(1, properties.getWorkers()); i++) {
+                startThread("smtp-mock-parse-" + i, this::parseLoop);
+            }
+            startThread("smtp-mock-notify", this::notifyLoop);
+        }
+    }
+
+    public boolean isAsync() {
+        return properties.getMode() == IngestProperties.Mode.ASYNC;
+    }
+
+    /**
+     * Queues a received message, parsed once for all envelope recipients like the
+     * synchronous listener does. Returns false when the queue stayed full, in which case
+     * the caller should answer with a transient failure.
+     */
+    public boolean submit(int port, String from, List<String> recipients, byte[] rawBytes) throws InterruptedException {
+        boolean queued = running && (properties.getBackpressure() == IngestProperties.Backpressure.BLOCK
+                ? parseSlots.tryAcquire(properties.getBlockTimeout().toMillis(), TimeUnit.MILLISECONDS)
+                : parseSlots.tryAcquire());
+        if (queued) {
+            synchronized (enqueueLock) {
+                // Never full: the slot is already held.
+                parseQueue.add(new IngestJob(nextSequence++, port, from, recipients, rawBytes));
+            }
+        }
+        (queued ? accepted : rejected).increment();
+        return queued;
+    }
+
+    public IngestStats getStats() {
+        return new IngestStats(properties.getMode().name(),
+                parseQueue.size(), parseQueue.size() + parseQueue.remainingCapacity(),
+                notifyQueue.size(), notifyQueue.size() + notifyQueue.remainingCapacity(),
+                accepted.sum(), rejected.sum(), stored.sum(), failed.sum());
+    }
+
+    @Override
+    public void destroy() throws InterruptedException {
+        // The SMTP server is already stopped here; let the workers drain what was accepted.
+        running = false;
+        for (Thread thread : threads) {
+            thread.join(TimeUnit.SECONDS.toMillis(30));
+        }
+    }
+
+    private void startThread(String name, Runnable loop) {
+        Thread thread = new Thread(loop, name);
+        thread.setDaemon(true);
+        thread.start();
+        threads.add(thread);
+    }
+
+    private void parseLoop() {
+        try {
+            while (running || !parseQueue.isEmpty()) {
+                IngestJob job = parseQueue.poll(100, TimeUnit.MILLISECONDS);
+                if (job != null) {
+                    parseSlots.release();
+                    process(job);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void process(IngestJob job) throws InterruptedException {
+        List<StoredEmail> captured = new ArrayList<>();
+        try {
+            List<StoredEmail> emails;
+            try {
+                emails = messageListener.receive(job.port, job.recipients, job.rawBytes);
+            } catch (Exception e) {
+                failed.increment();
+                LOGGER.error("Failed to process incoming email from {}", job.from, e);
+                return;
+            }
+            for (StoredEmail email : emails) {
+                try {
+                    emailStoreService.store(email);
+                } catch (RuntimeException e) {
+                    failed.increment();
+                    LOGGER.error("Failed to store incoming email from {}", job.from, e);
+                    continue;
+                }
+                stored.increment();
+                LOGGER.info("Captured email from {} with subject {}", email.getFrom(), email.getSubject());
+                captured.add(email);
+            }
+        } finally {
+            // Failed jobs complete too, or the notifier would wait for them forever.
+            notifyQueue.put(new Completion(job.sequence, captured));
+        }
+    }
+
+    private void notifyLoop() {
+        // Holds completions that overtook an earlier job; bounded by the jobs in flight.
+        Map<Long, List<StoredEmail>> early = new HashMap<>();
+        long next = 0;
+        try {
+            while (running || !notifyQueue.isEmpty() || !parseQueue.isEmpty()) {
+                Completion completion = notifyQueue.poll(100, TimeUnit.MILLISECONDS);
+                if (completion != null) {
+                    early.put(completion.sequence, completion.emails);
+                }
+                List<StoredEmail> emails;
+                while ((emails = early.remove(next)) != null) {
+                    emails.forEach(this::publish);
+                    next++;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // Shutting down: whatever is still held goes out in order.
+        new TreeMap<>(early).values().forEach(emails -> emails.forEach(this::publish));
+    }
+
+    private void publish(StoredEmail email) {
+        try {
+            eventPublisher.publishEvent(new EmailAddedEvent(email));
+        } catch (RuntimeException e) {
+            LOGGER.warn("Failed to notify listeners about email {}", email.getId(), e);
+        }
+    }
+
+    private static final class IngestJob {
+
+        final long sequence;
+        final int port;
+        final String from;
+        final List<String> recipients;
+        final byte[] rawBytes;
+
+        IngestJob(long sequence, int port, String from, List<String> recipients, byte[] rawBytes) {
+            this.sequence = sequence;
+            this.port = port;
+            this.from = from;
+            this.recipients = recipients;
+            this.rawBytes = rawBytes;
+        }
+    }
+
+    private static final class Completion {
+
+        final long sequence;
+        final List<StoredEmail> emails;
+
+        Completion(long sequence, List<StoredEmail> emails) {
+            this.sequence = sequence;
+            this.emails = emails;
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.smtpmock.smtp;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+@Component
+@ConfigurationProperties(prefix = "smtp.mock.ingest")
+public class IngestProperties {
+
+    public enum Mode {
+        SYNC,
+        ASYNC
+    }
+
+    public enum Backpressure {
+        BLOCK,
+        REJECT
+    }
+
+    private Mode mode = Mode.SYNC;
+    private int queueCapacity = 1000;
+    private int workers = Math.max(1, Runtime.getRuntime().availableProcessors());
+    private Backpressure backpressure = Backpressure.BLOCK;
+    private Duration blockTimeout = Duration.ofSeconds(30);
+    private int notifyQueueCapacity = 1000;
+    private DataSize maxMessageSize = DataSize.ofMegabytes(25);
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    public void setMode(Mode mode) {
+        this.mode = mode;
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    public void setQueueCapacity(int queueCapacity) {
+        this.queueCapacity = queueCapacity;
+    }
+
+    public int getWorkers() {
+        return workers;
+    }
+
+    public void setWorkers(int workers) {
+        this.workers = workers;
+    }
+
+    public Backpressure getBackpressure() {
+        return backpressure;
+    }
+
+    public void setBackpressure(Backpressure backpressure) {
+        this.backpressure = backpressure;
+    }
+
+    public Duration getBlockTimeout() {
+        return blockTimeout;
+    }
+
+    public void setBlockTimeout(Duration blockTimeout) {
+        this.blockTimeout = blockTimeout;
+    }
+
+    public int getNotifyQueueCapacity() {
+        return notifyQueueCapacity;
+    }
+
+    public void setNotifyQueueCapacity(int notifyQueueCapacity) {
+        this.notifyQueueCapacity = notifyQueueCapacity;
+    }
+
+    public DataSize getMaxMessageSize() {
+        return maxMessageSize;
+    }
+
+    public void setMaxMessageSize(DataSize maxMessageSize) {
+        this.maxMessageSize = maxMessageSize;
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.smtpmock.smtp;
+
+import org.springframework.stereotype.Component;
+import org.subethamail.smtp.TooMuchDataException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Reads a DATA stream into a pooled scratch buffer, failing as soon as it exceeds the
+ * maximum message size (the listener's own, or the ingest default), and returns a single
+ * exact-size copy. The scratch buffer is pre-sized from {@link InputStream#available()}
+ * when the stream knows its length.
+ */
+@Component
+public class MessageDataReader {
+
+    private static final int INITIAL_BUFFER_SIZE = 64 * 1024;
+    private static final int RETAINED_BUFFER_SIZE = 1024 * 1024;
+    private static final int MAX_ARRAY_SIZE = Integer.MAX_VALUE - 8;
+
+    private final long maxMessageSize;
+    private final BlockingQueue<byte[]> pool =
+            new ArrayBlockingQueue<>(Math.max(2, Runtime.getRuntime().availableProcessors() * 2));
+
+    public MessageDataReader(IngestProperties properties) {
+        this.maxMessageSize = properties.getMaxMessageSize().toBytes();
+    }
+
+    public long getMaxMessageSize() {
+        return maxMessageSize;
+    }
+
+    public byte[] read(InputStream data) throws IOException {
+        return read(data, maxMessageSize);
+    }
+
+    /**
+     * Reads with the given limit instead of the default; 0 disables the limit.
+     */
+    public byte[] read(InputStream data, long maxMessageSize) throws IOException {
+        // One byte past the limit is enough to tell that the limit was exceeded.
+        int capacityLimit = maxMessageSize > 0 ? (int) Math.min(maxMessageSize + 1, MAX_ARRAY_SIZE) : MAX_ARRAY_SIZE;
+        byte[] buffer = pool.poll();
+        if (buffer == null) {
+            buffer = new byte[INITIAL_BUFFER_SIZE];
+        }
+        int expected = data.available();
+        if (expected >= buffer.length) {
+            pool.offer(buffer);
+            buffer = new byte[(int) Math.min((long) expected + 1, capacityLimit)];
+        }
+        int count = 0;
+        try {
+            while (true) {
+                if (count == buffer.length) {
+                    if (buffer.length >= capacityLimit) {
+                        throw tooMuchData(maxMessageSize);
+                    }
+                    buffer = Arrays.copyOf(buffer, (int) Math.min((long) buffer.length * 2, capacityLimit));
+                }
+                int read = data.read(buffer, count, buffer.length - count);
+                if (read < 0) {
+                    break;
+                }
+                count += read;
+            }
+            if (maxMessageSize > 0 && count > maxMessageSize) {
+                throw tooMuchData(maxMessageSize);
+            }
+            return Arrays.copyOf(buffer, count);
+        } finally {
+            if (buffer.length <= RETAINED_BUFFER_SIZE) {
+                pool.offer(buffer);
+            }
+        }
+    }
+
+    private static TooMuchDataException tooMuchData(long maxMessageSize) {
+        return new TooMuchDataException("Message exceeds the maximum size of " + maxMessageSize + " bytes");
+    }
+}
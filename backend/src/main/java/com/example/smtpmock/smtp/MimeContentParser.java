@@ -0,0 +1,184 @@
+package com.example.smtpmock.smtp;
+
+import com.example.smtpmock.model.AttachmentSource;
+import com.example.smtpmock.model.EmailAttachment;
+import com.example.smtpmock.model.EmailContent;
+import com.example.smtpmock.model.RawMessage;
+import com.example.smtpmock.model.RawRegionSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.mail.MessagingException;
+import javax.mail.Part;
+import javax.mail.Session;
+import javax.mail.internet.MimeBodyPart;
+import javax.mail.internet.MimeMessage;
+import javax.mail.internet.MimeMultipart;
+import javax.mail.internet.MimePart;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.UUID;
+
+public class MimeContentParser {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(MimeContentParser.class);
+
+    private final Session session = Session.getDefaultInstance(new Properties());
+
+    public MimeMessage toMimeMessage(byte[] rawBytes) throws MessagingException {
+        return new MimeMessage(session, new RawBufferInputStream(rawBytes));
+    }
+
+    public EmailContent parse(RawMessage raw, UUID emailId) {
+        try {
+            return parse(toMimeMessage(raw.toByteArray()), raw, emailId);
+        } catch (MessagingException | IOException e) {
+            LOGGER.error("Failed to parse email content", e);
+            return EmailContent.EMPTY;
+        }
+    }
+
+    /**
+     * Parses a message built with {@link #toMimeMessage(byte[])} from the bytes of {@code raw};
+     * attachments become regions of {@code raw} rather than copies. Attachment ids are derived
+     * from the email id and the attachment's position, so parsing the same message again, as
+     * lazy content or after a journal replay, yields the same download links.
+     */
+    public EmailContent parse(MimeMessage message, RawMessage raw, UUID emailId)
+            throws MessagingException, IOException {
+        ParsedEmailContent result = new ParsedEmailContent(raw, emailId);
+        parsePart(message, result);
+        if (result.body == null) {
+            result.body = "";
+        }
+        return new EmailContent(result.body, result.attachments);
+    }
+
+    private void parsePart(Part part, ParsedEmailContent result) throws MessagingException, IOException {
+        Object content = part.getContent();
+        if (content instanceof MimeMultipart) {
+            MimeMultipart multipart = (MimeMultipart) content;
+            for (int i = 0; i < multipart.getCount(); i++) {
+                parsePart(multipart.getBodyPart(i), result);
+            }
+            return;
+        }
+
+        String disposition = part.getDisposition();
+        String fileName = part.getFileName();
+        boolean isAttachment = disposition != null && Part.ATTACHMENT.equalsIgnoreCase(disposition);
+        if (!isAttachment) {
+            isAttachment = disposition != null && Part.INLINE.equalsIgnoreCase(disposition) && fileName != null;
+        }
+
+        if (isAttachment || (fileName != null && !part.isMimeType("text/plain") && !part.isMimeType("text/html"))) {
+            result.attachments.add(toAttachment(part, fileName, result));
+            return;
+        }
+
+        if (part.isMimeType("text/plain")) {
+            if (result.body == null || result.body.isBlank()) {
+                result.body = content != null ? content.toString() : "";
+            }
+            return;
+        }
+
+        if (part.isMimeType("text/html") && (result.body == null || result.body.isBlank())) {
+            result.body = content != null ? content.toString() : "";
+            return;
+        }
+
+        if (content instanceof String && (result.body == null || result.body.isBlank())) {
+            result.body = (String) content;
+        } else if (!(content instanceof String)) {
+            result.attachments.add(toAttachment(part, fileName, result));
+        }
+    }
+
+    private EmailAttachment toAttachment(Part part, String fileName, ParsedEmailContent result)
+            throws MessagingException, IOException {
+        String name = fileName != null ? fileName : "attachment-" + (result.attachments.size() + 1);
+        UUID id = attachmentId(result.emailId, result.attachments.size());
+        RawRegionSource source = rawSource(part, result.raw);
+        if (source != null) {
+            return new EmailAttachment(id, name, part.getContentType(), source.decodedSize(), source);
+        }
+        byte[] data = toByteArray(part.getInputStream());
+        return new EmailAttachment(id, name, part.getContentType(), data.length, data);
+    }
+
+    /**
+     * Re-homes parsed content on another copy of the same message bytes: the body is shared,
+     * attachment regions of {@code parsedFrom} are re-pointed at {@code raw} and ids are derived
+     * from {@code emailId}, so a copy never shares payload handles with the email it came from.
+     */
+    public EmailContent copy(EmailContent content, RawMessage parsedFrom, RawMessage raw, UUID emailId) {
+        List<EmailAttachment> attachments = new ArrayList<>(content.getAttachments().size());
+        for (EmailAttachment attachment : content.getAttachments()) {
+            UUID id = attachmentId(emailId, attachments.size());
+            AttachmentSource source = attachment.getSource();
+            if (source instanceof RawRegionSource && ((RawRegionSource) source).getRaw() == parsedFrom) {
+                RawRegionSource region = (RawRegionSource) source;
+                attachments.add(new EmailAttachment(id, attachment.getFileName(), attachment.getContentType(),
+                        attachment.getSize(), new RawRegionSource(raw, region.getOffset(), region.getLength(),
+                        region.getTransferEncoding())));
+            } else {
+                attachments.add(new EmailAttachment(id, attachment.getFileName(), attachment.getContentType(),
+                        attachment.getSize(), attachment.getData()));
+            }
+        }
+        return new EmailContent(content.getBody(), attachments);
+    }
+
+    static UUID attachmentId(UUID emailId, int index) {
+        return UUID.nameUUIDFromBytes((emailId + "/" + index).getBytes(StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * Returns a view of the part's encoded bytes inside the raw message buffer, or null when
+     * the part was not parsed from a {@link RawBufferInputStream}.
+     */
+    private RawRegionSource rawSource(Part part, RawMessage raw) throws MessagingException {
+        InputStream rawStream;
+        if (part instanceof MimeBodyPart) {
+            rawStream = ((MimeBodyPart) part).getRawInputStream();
+        } else if (part instanceof MimeMessage) {
+            rawStream = ((MimeMessage) part).getRawInputStream();
+        } else {
+            return null;
+        }
+        if (!(rawStream instanceof RawBufferInputStream)) {
+            return null;
+        }
+        RawBufferInputStream region = (RawBufferInputStream) rawStream;
+        String encoding = part instanceof MimePart ? ((MimePart) part).getEncoding() : null;
+        return new RawRegionSource(raw, region.regionOffset(), region.regionLength(), encoding);
+    }
+
+    static byte[] toByteArray(InputStream inputStream) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        int length;
+        while ((length = inputStream.read(buffer)) != -1) {
+            outputStream.write(buffer, 0, length);
+        }
+        return outputStream.toByteArray();
+    }
+
+    private static class ParsedEmailContent {
+        final RawMessage raw;
+        final UUID emailId;
+        String body = "";
+        List<EmailAttachment> attachments = new ArrayList<>();
+
+        ParsedEmailContent(RawMessage raw, UUID emailId) {
+            this.raw = raw;
+            this.emailId = emailId;
+        }
+    }
+}
@@ -1,33 +1,41 @@
 package com.example.smtpmock.smtp;
 
-import com.example.smtpmock.model.EmailAttachment;
+import com.example.smtpmock.metrics.CaptureMetrics;
+import com.example.smtpmock.model.EmailContent;
+import com.example.smtpmock.model.LazyContent;
+import com.example.smtpmock.model.RawMessage;
 import com.example.smtpmock.model.StoredEmail;
 import com.example.smtpmock.service.EmailStoreService;
+import com.example.smtpmock.service.MailboxProperties;
+import com.example.smtpmock.service.MailboxRouter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import javax.mail.Address;
 import javax.mail.Message;
 import javax.mail.MessagingException;
-import javax.mail.Part;
-import javax.mail.Session;
+import javax.mail.internet.InternetAddress;
+import javax.mail.internet.InternetHeaders;
 import javax.mail.internet.MimeMessage;
-import javax.mail.internet.MimeMultipart;
+import javax.mail.internet.MimeUtility;
 import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.nio.charset.StandardCharsets;
+import java.io.UnsupportedEncodingException;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Properties;
+import java.util.Map;
 import java.util.UUID;
 import java.util.stream.Collectors;
 
+import org.subethamail.smtp.TooMuchDataException;
 import org.subethamail.smtp.helper.SimpleMessageListener;
 
 @Component
@@ -36,9 +44,28 @@ public class MockMessageListener implements SimpleMessageListener {
     private static final Logger LOGGER = LoggerFactory.getLogger(MockMessageListener.class);
 
     private final EmailStoreService emailStoreService;
+    private final MailboxRouter mailboxRouter;
+    private final MessageDataReader dataReader;
+    private final CaptureMetrics metrics;
+    private final MimeContentParser contentParser = new MimeContentParser();
+    private final int port;
+    private final boolean lazyParsing;
+
+    public MockMessageListener(EmailStoreService emailStoreService, boolean lazyParsing) {
+        this(emailStoreService, new MailboxRouter(new MailboxProperties()),
+                new MessageDataReader(new IngestProperties()), CaptureMetrics.NOOP, 0, lazyParsing);
+    }
 
-    public MockMessageListener(EmailStoreService emailStoreService) {
+    @Autowired
+    public MockMessageListener(EmailStoreService emailStoreService, MailboxRouter mailboxRouter,
+                               MessageDataReader dataReader, CaptureMetrics metrics, @Value("${smtp.mock.port:2525}") int port,
+                               @Value("${smtp.mock.ingest.lazy-parsing:false}") boolean lazyParsing) {
         this.emailStoreService = emailStoreService;
+        this.mailboxRouter = mailboxRouter;
+        this.dataReader = dataReader;
+        this.metrics = metrics;
+        this.port = port;
+        this.lazyParsing = lazyParsing;
     }
 
     @Override
@@ -46,118 +73,164 @@ public class MockMessageListener implements SimpleMessageListener {
         return true;
     }
 
+    /**
+     * Per-recipient {@link SimpleMessageListener} entry point; the SMTP listeners capture the
+     * whole envelope and call {@link #store} once instead.
+     */
     @Override
-    public void deliver(String from, String recipient, InputStream data) {
+    public void deliver(String from, String recipient, InputStream data) throws TooMuchDataException {
         try {
-            byte[] rawBytes = toByteArray(data);
-            MimeMessage message = new MimeMessage(Session.getDefaultInstance(new Properties()), new ByteArrayInputStream(rawBytes));
-            StoredEmail email = toStoredEmail(message, rawBytes);
-            emailStoreService.addEmail(email);
-            LOGGER.info("Captured email from {} with subject {}", email.getFrom(), email.getSubject());
+            store(port, Collections.singletonList(recipient), dataReader.read(data));
+        } catch (TooMuchDataException e) {
+            throw e;
+        } catch (IOException e) {
+            LOGGER.error("Failed to read incoming email", e);
+        }
+    }
+
+    /**
+     * Parses and stores a message once for all of its envelope recipients.
+     */
+    public List<StoredEmail> store(int port, List<String> recipients, byte[] rawBytes) {
+        try {
+            List<StoredEmail> emails = receive(port, recipients, rawBytes);
+            for (StoredEmail email : emails) {
+                emailStoreService.addEmail(email);
+                LOGGER.info("Captured email from {} with subject {}", email.getFrom(), email.getSubject());
+            }
+            return emails;
         } catch (MessagingException | IOException e) {
             LOGGER.error("Failed to process incoming email", e);
+            return Collections.emptyList();
         }
     }
 
-    private StoredEmail toStoredEmail(MimeMessage message, byte[] rawBytes) throws MessagingException, IOException {
-        ParsedEmailContent parsedEmailContent = extractContent(message);
+    /**
+     * Builds the stored copies of one message: a single email per destination mailbox, carrying
+     * the envelope recipients routed there. Without recipient partitioning that is one email
+     * however many RCPT TO commands the client sent. The message is parsed once; the other
+     * mailboxes get copies sharing its headers, timestamp and content.
+     */
+    public List<StoredEmail> receive(int port, List<String> recipients, byte[] rawBytes)
+            throws MessagingException, IOException {
+        metrics.recordData(rawBytes.length);
+        Map<String, List<String>> byMailbox = new LinkedHashMap<>();
+        for (String recipient : recipients) {
+            byMailbox.computeIfAbsent(mailboxRouter.route(port, recipient), mailbox -> new ArrayList<>()).add(recipient);
+        }
+        StoredEmail parsed = parse(rawBytes);
+        List<StoredEmail> emails = new ArrayList<>(byMailbox.size());
+        for (Map.Entry<String, List<String>> entry : byMailbox.entrySet()) {
+            StoredEmail email = emails.isEmpty() ? parsed : copyOf(parsed, rawBytes);
+            email.setMailbox(entry.getKey());
+            email.setEnvelopeRecipients(entry.getValue());
+            emails.add(email);
+        }
+        return emails;
+    }
+
+    public StoredEmail parse(byte[] rawBytes) throws MessagingException, IOException {
+        long start = System.nanoTime();
+        try {
+            return lazyParsing ? toLazyStoredEmail(rawBytes) : toStoredEmail(rawBytes);
+        } finally {
+            metrics.recordParse(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Copies a parsed email for another mailbox. The copy has its own id and payload handle over
+     * the same bytes, so payload storage, retention and removal treat the two independently.
+     */
+    private StoredEmail copyOf(StoredEmail parsed, byte[] rawBytes) {
+        UUID id = UUID.randomUUID();
+        RawMessage raw = new RawMessage(rawBytes);
+        RawMessage parsedFrom = parsed.getRaw();
+        if (lazyParsing) {
+            return new StoredEmail(id, parsed.getFrom(), parsed.getTo(), parsed.getCc(), parsed.getBcc(),
+                    parsed.getSubject(), parsed.getReceivedAt(), raw,
+                    new LazyContent(() -> contentParser.copy(
+                            new EmailContent(parsed.getBody(), parsed.getAttachments()), parsedFrom, raw, id)));
+        }
+        EmailContent content = contentParser.copy(
+                new EmailContent(parsed.getBody(), parsed.getAttachments()), parsedFrom, raw, id);
+        StoredEmail email = new StoredEmail(id, parsed.getFrom(), parsed.getTo(), parsed.getCc(), parsed.getBcc(),
+                parsed.getSubject(), content.getBody(), parsed.getReceivedAt(), null, content.getAttachments());
+        email.setRaw(raw);
+        return email;
+    }
+
+    private StoredEmail toStoredEmail(byte[] rawBytes) throws MessagingException, IOException {
+        UUID id = UUID.randomUUID();
+        RawMessage raw = new RawMessage(rawBytes);
+        MimeMessage message = contentParser.toMimeMessage(rawBytes);
+        EmailContent content = contentParser.parse(message, raw, id);
         String subject = message.getSubject();
         List<String> to = addressesToStrings(message.getRecipients(Message.RecipientType.TO));
         List<String> cc = addressesToStrings(message.getRecipients(Message.RecipientType.CC));
         List<String> bcc = addressesToStrings(message.getRecipients(Message.RecipientType.BCC));
-        String raw = new String(rawBytes, StandardCharsets.UTF_8);
-        return new StoredEmail(UUID.randomUUID(),
+        StoredEmail email = new StoredEmail(id,
                 message.getFrom() != null && message.getFrom().length > 0 ? message.getFrom()[0].toString() : null,
                 to,
                 cc,
                 bcc,
                 subject,
-                parsedEmailContent.body,
+                content.getBody(),
+                Instant.now(),
+                null,
+                content.getAttachments());
+        email.setRaw(raw);
+        return email;
+    }
+
+    /**
+     * Reads only the header block; body and attachments are parsed on first access.
+     */
+    private StoredEmail toLazyStoredEmail(byte[] rawBytes) throws MessagingException {
+        InternetHeaders headers = new InternetHeaders(new ByteArrayInputStream(rawBytes));
+        List<String> from = parseAddresses(headers.getHeader("From", ","));
+        UUID id = UUID.randomUUID();
+        RawMessage raw = new RawMessage(rawBytes);
+        return new StoredEmail(id,
+                from.isEmpty() ? null : from.get(0),
+                parseAddresses(headers.getHeader("To", ",")),
+                parseAddresses(headers.getHeader("Cc", ",")),
+                parseAddresses(headers.getHeader("Bcc", ",")),
+                decodeSubject(headers.getHeader("Subject", null)),
                 Instant.now(),
                 raw,
-                parsedEmailContent.attachments);
+                new LazyContent(() -> contentParser.parse(raw, id)));
     }
 
-    private List<String> addressesToStrings(Address[] addresses) {
-        if (addresses == null) {
+    private List<String> parseAddresses(String header) {
+        if (header == null) {
             return Collections.emptyList();
         }
-        return Arrays.stream(addresses)
-                .map(Address::toString)
-                .collect(Collectors.toList());
-    }
-
-    private ParsedEmailContent extractContent(Part part) throws MessagingException, IOException {
-        ParsedEmailContent result = new ParsedEmailContent();
-        parsePart(part, result);
-        if (result.body == null) {
-            result.body = "";
+        try {
+            return addressesToStrings(InternetAddress.parseHeader(header, false));
+        } catch (MessagingException e) {
+            LOGGER.debug("Unable to parse address header {}", header, e);
+            return Collections.emptyList();
         }
-        return result;
     }
 
-    private void parsePart(Part part, ParsedEmailContent result) throws MessagingException, IOException {
-        Object content = part.getContent();
-        if (content instanceof MimeMultipart) {
-            MimeMultipart multipart = (MimeMultipart) content;
-            for (int i = 0; i < multipart.getCount(); i++) {
-                parsePart(multipart.getBodyPart(i), result);
-            }
-            return;
-        }
-
-        String disposition = part.getDisposition();
-        String fileName = part.getFileName();
-        boolean isAttachment = disposition != null && Part.ATTACHMENT.equalsIgnoreCase(disposition);
-        if (!isAttachment) {
-            isAttachment = disposition != null && Part.INLINE.equalsIgnoreCase(disposition) && fileName != null;
-        }
-
-        if (isAttachment || (fileName != null && !part.isMimeType("text/plain") && !part.isMimeType("text/html"))) {
-            byte[] data = toByteArray(part.getInputStream());
-            result.attachments.add(new EmailAttachment(UUID.randomUUID(),
-                    fileName != null ? fileName : "attachment-" + (result.attachments.size() + 1),
-                    part.getContentType(),
-                    data.length,
-                    data));
-            return;
-        }
-
-        if (part.isMimeType("text/plain")) {
-            if (result.body == null || result.body.isBlank()) {
-                result.body = content != null ? content.toString() : "";
-            }
-            return;
-        }
-
-        if (part.isMimeType("text/html") && (result.body == null || result.body.isBlank())) {
-            result.body = content != null ? content.toString() : "";
-            return;
+    private String decodeSubject(String subject) {
+        if (subject == null) {
+            return null;
         }
-
-        if (content instanceof String && (result.body == null || result.body.isBlank())) {
-            result.body = (String) content;
-        } else if (!(content instanceof String)) {
-            byte[] data = toByteArray(part.getInputStream());
-            result.attachments.add(new EmailAttachment(UUID.randomUUID(),
-                    fileName != null ? fileName : "attachment-" + (result.attachments.size() + 1),
-                    part.getContentType(),
-                    data.length,
-                    data));
+        try {
+            return MimeUtility.decodeText(MimeUtility.unfold(subject));
+        } catch (UnsupportedEncodingException e) {
+            return subject;
         }
     }
 
-    private byte[] toByteArray(InputStream inputStream) throws IOException {
-        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-        byte[] buffer = new byte[4096];
-        int length;
-        while ((length = inputStream.read(buffer)) != -1) {
-            outputStream.write(buffer, 0, length);
+    private List<String> addressesToStrings(Address[] addresses) {
+        if (addresses == null) {
+            return Collections.emptyList();
         }
-        return outputStream.toByteArray();
-    }
-    private static class ParsedEmailContent {
-        String body = "";
-        List<EmailAttachment> attachments = new ArrayList<>();
+        return Arrays.stream(addresses)
+                .map(Address::toString)
+                .collect(Collectors.toList());
     }
 }
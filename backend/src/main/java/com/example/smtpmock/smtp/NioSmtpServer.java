@@ -0,0 +1,812 @@
+package com.example.smtpmock.smtp;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.subethamail.smtp.AuthenticationHandler;
+import org.subethamail.smtp.MessageContext;
+import org.subethamail.smtp.MessageHandler;
+import org.subethamail.smtp.MessageHandlerFactory;
+import org.subethamail.smtp.RejectException;
+import org.subethamail.smtp.TooMuchDataException;
+import org.subethamail.smtp.server.SMTPServer;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardSocketOptions;
+import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.security.cert.Certificate;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Event-loop SMTP front end: a single selector thread multiplexes every connection of a
+ * listener, so an idle or slow session costs a small state object instead of a thread.
+ * Only the hand-off of a complete DATA payload runs on worker threads; its reply is posted
+ * back to the loop, which owns all channel I/O.
+ * <p>
+ * Implements the subset of SMTP the mock needs (HELO/EHLO, MAIL, RCPT, DATA, BDAT, RSET,
+ * NOOP, VRFY, QUIT) and drives the same {@link MessageHandlerFactory} as the
+ * thread-per-connection server. PIPELINING (RFC 2920) and CHUNKING (RFC 3030) are advertised:
+ * replies to a batch of commands go out in one write, and BDAT chunks are copied straight into
+ * the message buffer without the line scanning and dot-unstuffing DATA needs.
+ */
+class NioSmtpServer {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(NioSmtpServer.class);
+
+    private static final int MAX_COMMAND_LINE = 4096;
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+    private static final long TIMEOUT_CHECK_MILLIS = 1000;
+    private static final int MAX_INITIAL_CHUNK_BUFFER = 16 * 1024 * 1024;
+
+    private final String name;
+    private final InetSocketAddress address;
+    private final MessageHandlerFactory handlerFactory;
+    private final ExecutorService workers;
+    private final int maxConnections;
+    private final long connectionTimeoutMillis;
+    private final long maxMessageSize;
+    private final String hostName;
+    private final ByteBuffer readBuffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+    private final Set<Session> sessions = new HashSet<>();
+    private final AtomicInteger activeConnections = new AtomicInteger();
+    private final AtomicLong totalConnections = new AtomicLong();
+    private volatile boolean running;
+    private Selector selector;
+    private ServerSocketChannel serverChannel;
+    private Thread loop;
+
+    NioSmtpServer(String name, InetSocketAddress address, MessageHandlerFactory handlerFactory, ExecutorService workers,
+                  int maxConnections, long connectionTimeoutMillis, long maxMessageSize) {
+        this.name = name;
+        this.address = address;
+        this.handlerFactory = handlerFactory;
+        this.workers = workers;
+        this.maxConnections = maxConnections;
+        this.connectionTimeoutMillis = connectionTimeoutMillis;
+        this.maxMessageSize = maxMessageSize;
+        this.hostName = localHostName();
+    }
+
+    void start() {
+        try {
+            selector = Selector.open();
+            serverChannel = ServerSocketChannel.open();
+            serverChannel.configureBlocking(false);
+            serverChannel.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+            serverChannel.bind(address, 1024);
+            serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+        } catch (IOException e) {
+            closeQuietly();
+            throw new UncheckedIOException("Unable to bind SMTP listener " + name + " on " + address, e);
+        }
+        running = true;
+        loop = new Thread(this::run, "smtp-mock-" + name + "-nio");
+        loop.setDaemon(true);
+        loop.start();
+    }
+
+    void stop() {
+        running = false;
+        if (selector != null) {
+            selector.wakeup();
+        }
+        if (loop != null) {
+            try {
+                loop.join(TimeUnit.SECONDS.toMillis(10));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    int activeConnections() {
+        return activeConnections.get();
+    }
+
+    long totalConnections() {
+        return totalConnections.get();
+    }
+
+    private void run() {
+        long nextTimeoutCheck = System.currentTimeMillis() + TIMEOUT_CHECK_MILLIS;
+        try {
+            while (running) {
+                selector.select(TIMEOUT_CHECK_MILLIS);
+                runTasks();
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    handle(key);
+                }
+                long now = System.currentTimeMillis();
+                if (now >= nextTimeoutCheck) {
+                    expireIdle(now);
+                    nextTimeoutCheck = now + TIMEOUT_CHECK_MILLIS;
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            LOGGER.error("SMTP listener {} event loop failed", name, e);
+        } finally {
+            for (Session session : new ArrayList<>(sessions)) {
+                session.close();
+            }
+            closeQuietly();
+        }
+    }
+
+    private void handle(SelectionKey key) {
+        if (!key.isValid()) {
+            return;
+        }
+        if (key.isAcceptable()) {
+            acceptAll();
+            return;
+        }
+        Session session = (Session) key.attachment();
+        try {
+            if (key.isWritable()) {
+                session.flush();
+            }
+            if (key.isValid() && key.isReadable()) {
+                session.read();
+            }
+        } catch (IOException | CancelledKeyException e) {
+            LOGGER.debug("Closing SMTP session {}", session.remote, e);
+            session.close();
+        } catch (RuntimeException e) {
+            LOGGER.warn("Closing SMTP session {} after an unexpected error", session.remote, e);
+            session.close();
+        }
+    }
+
+    private void acceptAll() {
+        SocketChannel channel;
+        try {
+            while ((channel = serverChannel.accept()) != null) {
+                accept(channel);
+            }
+        } catch (IOException e) {
+            LOGGER.warn("SMTP listener {} failed to accept a connection", name, e);
+        }
+    }
+
+    private void accept(SocketChannel channel) throws IOException {
+        channel.configureBlocking(false);
+        channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+        if (sessions.size() >= maxConnections) {
+            // Best effort, like the threaded server: the reply fits in an empty socket buffer.
+            channel.write(ByteBuffer.wrap("421 Too many connections, try again later\r\n"
+                    .getBytes(StandardCharsets.US_ASCII)));
+            channel.close();
+            return;
+        }
+        Session session = new Session(channel);
+        session.key = channel.register(selector, SelectionKey.OP_READ, session);
+        sessions.add(session);
+        activeConnections.incrementAndGet();
+        totalConnections.incrementAndGet();
+        session.reply("220 " + hostName + " ESMTP Spring SMTP Mock");
+        session.flush();
+    }
+
+    private void runTasks() {
+        Runnable task;
+        while ((task = tasks.poll()) != null) {
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                LOGGER.warn("SMTP listener {} task failed", name, e);
+            }
+        }
+    }
+
+    private void expireIdle(long now) {
+        for (Session session : new ArrayList<>(sessions)) {
+            if (session.state == State.BUSY || now - session.lastActivity <= connectionTimeoutMillis) {
+                continue;
+            }
+            if (session.closing) {
+                // The client stopped reading its replies.
+                session.close();
+            } else {
+                try {
+                    session.reply("421 Timeout waiting for data from client.");
+                    session.closing = true;
+                    session.flush();
+                } catch (IOException e) {
+                    session.close();
+                }
+            }
+        }
+    }
+
+    private void closeQuietly() {
+        try {
+            if (serverChannel != null) {
+                serverChannel.close();
+            }
+            if (selector != null) {
+                selector.close();
+            }
+        } catch (IOException e) {
+            LOGGER.debug("Unable to close SMTP listener {}", name, e);
+        }
+    }
+
+    private static String localHostName() {
+        try {
+            return InetAddress.getLocalHost().getCanonicalHostName();
+        } catch (UnknownHostException e) {
+            return "localhost";
+        }
+    }
+
+    private enum State {
+        COMMAND, DATA, CHUNK, BUSY
+    }
+
+    /**
+     * Per-connection state. It is also the {@link MessageContext} handed to handlers: there is
+     * no subethasmtp server, AUTH or TLS behind it, so only the remote address and HELO are set.
+     */
+    private final class Session implements MessageContext {
+
+        final SocketChannel channel;
+        final SocketAddress remote;
+        final ArrayDeque<ByteBuffer> output = new ArrayDeque<>();
+        SelectionKey key;
+        State state = State.COMMAND;
+        boolean closing;
+        boolean closed;
+        long lastActivity = System.currentTimeMillis();
+        byte[] line = new byte[256];
+        int lineLength;
+        boolean discardingLine;
+        byte[] backlog;
+        MessageHandler handler;
+        int recipients;
+        DataBuffer data;
+        long dataSize;
+        boolean dataLineStart;
+        boolean chunking;
+        long chunkSize;
+        long chunkRemaining;
+        boolean lastChunk;
+        String chunkRejection;
+        String helo;
+
+        Session(SocketChannel channel) throws IOException {
+            this.channel = channel;
+            this.remote = channel.getRemoteAddress();
+        }
+
+        @Override
+        public SMTPServer getSMTPServer() {
+            return null;
+        }
+
+        @Override
+        public SocketAddress getRemoteAddress() {
+            return remote;
+        }
+
+        @Override
+        public AuthenticationHandler getAuthenticationHandler() {
+            return null;
+        }
+
+        @Override
+        public String getHelo() {
+            return helo;
+        }
+
+        @Override
+        public Certificate[] getTlsPeerCertificates() {
+            return null;
+        }
+
+        void read() throws IOException {
+            readBuffer.clear();
+            int read = channel.read(readBuffer);
+            if (read < 0) {
+                close();
+                return;
+            }
+            lastActivity = System.currentTimeMillis();
+            consume(readBuffer.array(), 0, read);
+            flush();
+        }
+
+        /**
+         * Splits input into lines; stops and parks the rest while a DATA hand-off is in
+         * flight, so pipelined commands are answered in order once it completes.
+         */
+        void consume(byte[] bytes, int offset, int length) {
+            int position = offset;
+            int end = offset + length;
+            while (position < end && !closing) {
+                if (state == State.BUSY) {
+                    backlog = Arrays.copyOfRange(bytes, position, end);
+                    key.interestOps(key.interestOps() & ~SelectionKey.OP_READ);
+                    return;
+                }
+                if (state == State.CHUNK) {
+                    int chunkLength = (int) Math.min(chunkRemaining, end - position);
+                    chunk(bytes, position, chunkLength);
+                    position += chunkLength;
+                    continue;
+                }
+                int lf = indexOf(bytes, position, end, (byte) '\n');
+                if (lf < 0) {
+                    partial(bytes, position, end - position);
+                    return;
+                }
+                int next = lf + 1;
+                if (lineLength > 0) {
+                    append(bytes, position, next - position);
+                    int completed = lineLength;
+                    lineLength = 0;
+                    line(line, 0, completed);
+                } else {
+                    line(bytes, position, next - position);
+                }
+                position = next;
+            }
+        }
+
+        private void partial(byte[] bytes, int offset, int length) {
+            append(bytes, offset, length);
+            if (lineLength <= MAX_COMMAND_LINE) {
+                return;
+            }
+            if (state == State.DATA) {
+                // Long enough that it cannot be the terminator: pass it through.
+                dataFragment(line, 0, lineLength, false);
+            } else {
+                discardingLine = true;
+            }
+            lineLength = 0;
+        }
+
+        private void line(byte[] bytes, int offset, int length) {
+            if (state == State.DATA) {
+                dataFragment(bytes, offset, length, true);
+            } else if (discardingLine) {
+                discardingLine = false;
+                reply("500 Line too long");
+            } else {
+                command(new String(bytes, offset, trimmedLength(bytes, offset, length), StandardCharsets.UTF_8));
+            }
+        }
+
+        private void command(String line) {
+            int space = line.indexOf(' ');
+            String verb = (space < 0 ? line : line.substring(0, space)).toUpperCase(Locale.ROOT);
+            String argument = space < 0 ? "" : line.substring(space + 1).trim();
+            switch (verb) {
+                case "HELO":
+                    greet(argument);
+                    reply("250 " + hostName);
+                    break;
+                case "EHLO":
+                    greet(argument);
+                    ehlo();
+                    break;
+                case "MAIL":
+                    mail(argument);
+                    break;
+                case "RCPT":
+                    rcpt(argument);
+                    break;
+                case "DATA":
+                    data();
+                    break;
+                case "BDAT":
+                    bdat(argument);
+                    break;
+                case "RSET":
+                    resetTransaction();
+                    reply("250 Ok");
+                    break;
+                case "NOOP":
+                    reply("250 Ok");
+                    break;
+                case "VRFY":
+                    reply("252 Cannot VRFY user, but will accept message and attempt delivery");
+                    break;
+                case "QUIT":
+                    reply("221 Bye");
+                    closing = true;
+                    break;
+                default:
+                    reply("500 Error: command not recognized");
+            }
+        }
+
+        /**
+         * HELO and EHLO start over like RSET does (RFC 5321 section 4.1.4).
+         */
+        private void greet(String argument) {
+            resetTransaction();
+            helo = argument;
+        }
+
+        private void ehlo() {
+            reply("250-" + hostName);
+            reply("250-8BITMIME");
+            if (maxMessageSize > 0) {
+                reply("250-SIZE " + maxMessageSize);
+            }
+            reply("250-PIPELINING");
+            reply("250-CHUNKING");
+            reply("250 Ok");
+        }
+
+        private void mail(String argument) {
+            if (handler != null) {
+                reply("503 5.5.1 Error: nested MAIL command");
+                return;
+            }
+            String from = path(argument, "FROM:");
+            if (from == null) {
+                reply("501 Syntax: MAIL FROM: <address>");
+                return;
+            }
+            if (maxMessageSize > 0 && declaredSize(argument) > maxMessageSize) {
+                reply("552 5.3.4 Message size exceeds fixed limit");
+                return;
+            }
+            handler = handlerFactory.create(this);
+            try {
+                handler.from(from);
+                reply("250 Ok");
+            } catch (RejectException e) {
+                reply(e.getErrorResponse());
+                resetTransaction();
+            }
+        }
+
+        private void rcpt(String argument) {
+            if (handler == null) {
+                reply("503 5.5.1 Error: need MAIL command");
+                return;
+            }
+            String recipient = path(argument, "TO:");
+            if (recipient == null || recipient.isEmpty()) {
+                reply("501 Syntax: RCPT TO: <address>");
+                return;
+            }
+            try {
+                handler.recipient(recipient);
+                recipients++;
+                reply("250 Ok");
+            } catch (RejectException e) {
+                reply(e.getErrorResponse());
+            }
+        }
+
+        private void data() {
+            if (handler == null) {
+                reply("503 5.5.1 Error: need MAIL command");
+                return;
+            }
+            if (recipients == 0) {
+                reply("503 Error: need RCPT command");
+                return;
+            }
+            if (chunking) {
+                reply("503 5.5.1 Error: BDAT already in progress");
+                return;
+            }
+            state = State.DATA;
+            data = new DataBuffer();
+            dataSize = 0;
+            dataLineStart = true;
+            reply("354 End data with <CR><LF>.<CR><LF>");
+        }
+
+        private void dataFragment(byte[] bytes, int offset, int length, boolean complete) {
+            if (dataLineStart && bytes[offset] == '.') {
+                if (complete && trimmedLength(bytes, offset, length) == 1) {
+                    completeData();
+                    return;
+                }
+                offset++;
+                length--;
+            }
+            dataLineStart = complete;
+            dataSize += length;
+            if (maxMessageSize > 0 && dataSize > maxMessageSize) {
+                // Keep reading to the terminator, but stop buffering.
+                data = null;
+            } else if (data != null) {
+                data.write(bytes, offset, length);
+            }
+        }
+
+        /**
+         * Starts reading a BDAT chunk. Its bytes are consumed even when the command is rejected,
+         * so the session stays in step with a client that pipelined them.
+         */
+        private void bdat(String argument) {
+            String[] parameters = argument.isEmpty() ? new String[0] : argument.split("\\s+");
+            long size = parameters.length > 0 ? parseSize(parameters[0]) : -1;
+            boolean last = parameters.length == 2 && "LAST".equalsIgnoreCase(parameters[1]);
+            if (size < 0 || parameters.length > 2 || (parameters.length == 2 && !last)) {
+                reply("501 5.5.4 Syntax: BDAT <size> [LAST]");
+                return;
+            }
+            chunkSize = size;
+            chunkRemaining = size;
+            lastChunk = last;
+            if (handler == null) {
+                chunkRejection = "503 5.5.1 Error: need MAIL command";
+            } else if (recipients == 0) {
+                chunkRejection = "503 Error: need RCPT command";
+            } else if (maxMessageSize > 0 && (chunking ? dataSize : 0) + size > maxMessageSize) {
+                // Nothing is buffered; the chunk is still read off the wire before the reply.
+                chunkRejection = "552 5.3.4 Message size exceeds fixed limit";
+                resetTransaction();
+            } else {
+                chunkRejection = null;
+                if (!chunking) {
+                    chunking = true;
+                    dataSize = 0;
+                    long cap = maxMessageSize > 0
+                            ? Math.min(maxMessageSize, MAX_INITIAL_CHUNK_BUFFER) : MAX_INITIAL_CHUNK_BUFFER;
+                    data = new DataBuffer((int) Math.min(Math.max(size, 8192), cap));
+                }
+            }
+            state = State.CHUNK;
+            if (size == 0) {
+                chunkCompleted();
+            }
+        }
+
+        private void chunk(byte[] bytes, int offset, int length) {
+            chunkRemaining -= length;
+            if (chunkRejection == null) {
+                dataSize += length;
+                if (maxMessageSize > 0 && dataSize > maxMessageSize) {
+                    // Keep consuming the chunk, but stop buffering.
+                    data = null;
+                } else if (data != null) {
+                    data.write(bytes, offset, length);
+                }
+            }
+            if (chunkRemaining == 0) {
+                chunkCompleted();
+            }
+        }
+
+        private void chunkCompleted() {
+            state = State.COMMAND;
+            if (chunkRejection != null) {
+                reply(chunkRejection);
+                chunkRejection = null;
+            } else if (lastChunk) {
+                completeData();
+            } else if (data == null) {
+                reply("552 5.3.4 Message size exceeds fixed limit");
+                resetTransaction();
+            } else {
+                reply("250 " + chunkSize + " octets received");
+            }
+        }
+
+        private void completeData() {
+            if (data == null) {
+                reply("552 5.3.4 Message size exceeds fixed limit");
+                resetTransaction();
+                state = State.COMMAND;
+                return;
+            }
+            MessageHandler current = handler;
+            InputStream content = data.toInputStream();
+            data = null;
+            state = State.BUSY;
+            try {
+                workers.execute(() -> {
+                    String reply = deliver(current, content);
+                    tasks.add(() -> dataCompleted(reply));
+                    selector.wakeup();
+                });
+            } catch (RejectedExecutionException e) {
+                state = State.COMMAND;
+                reply("421 Service shutting down");
+                closing = true;
+            }
+        }
+
+        private String deliver(MessageHandler current, InputStream content) {
+            try {
+                current.data(content);
+                return "250 Ok";
+            } catch (RejectException e) {
+                return e.getErrorResponse();
+            } catch (TooMuchDataException e) {
+                return "552 5.3.4 Message size exceeds fixed limit";
+            } catch (IOException | RuntimeException e) {
+                LOGGER.error("Failed to deliver message received on SMTP listener {}", name, e);
+                return "451 Requested action aborted: local error in processing";
+            }
+        }
+
+        private void dataCompleted(String reply) {
+            if (closed) {
+                resetTransaction();
+                return;
+            }
+            try {
+                reply(reply);
+                resetTransaction();
+                state = State.COMMAND;
+                lastActivity = System.currentTimeMillis();
+                byte[] parked = backlog;
+                backlog = null;
+                if (parked != null) {
+                    consume(parked, 0, parked.length);
+                }
+                if (state != State.BUSY && key.isValid()) {
+                    key.interestOps(key.interestOps() | SelectionKey.OP_READ);
+                }
+                flush();
+            } catch (IOException | CancelledKeyException e) {
+                close();
+            }
+        }
+
+        private void resetTransaction() {
+            if (handler != null) {
+                handler.done();
+                handler = null;
+            }
+            recipients = 0;
+            data = null;
+            chunking = false;
+        }
+
+        void reply(String text) {
+            output.add(ByteBuffer.wrap((text + "\r\n").getBytes(StandardCharsets.US_ASCII)));
+        }
+
+        void flush() throws IOException {
+            while (!output.isEmpty()) {
+                ByteBuffer buffer = output.peek();
+                channel.write(buffer);
+                if (buffer.hasRemaining()) {
+                    key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+                    return;
+                }
+                output.poll();
+            }
+            if (closing) {
+                close();
+            } else if (key.isValid()) {
+                key.interestOps(key.interestOps() & ~SelectionKey.OP_WRITE);
+            }
+        }
+
+        void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            if (state != State.BUSY) {
+                resetTransaction();
+            }
+            sessions.remove(this);
+            activeConnections.decrementAndGet();
+            try {
+                channel.close();
+            } catch (IOException e) {
+                LOGGER.debug("Unable to close SMTP session {}", remote, e);
+            }
+        }
+
+        private void append(byte[] bytes, int offset, int length) {
+            if (lineLength + length > line.length) {
+                line = Arrays.copyOf(line, Math.max(line.length * 2, lineLength + length));
+            }
+            System.arraycopy(bytes, offset, line, lineLength, length);
+            lineLength += length;
+        }
+    }
+
+    private static String path(String argument, String prefix) {
+        if (!argument.regionMatches(true, 0, prefix, 0, prefix.length())) {
+            return null;
+        }
+        String rest = argument.substring(prefix.length()).trim();
+        if (rest.startsWith("<")) {
+            int close = rest.indexOf('>');
+            return close < 0 ? null : rest.substring(1, close);
+        }
+        int space = rest.indexOf(' ');
+        return space < 0 ? rest : rest.substring(0, space);
+    }
+
+    private static long declaredSize(String argument) {
+        for (String parameter : argument.split(" ")) {
+            if (parameter.regionMatches(true, 0, "SIZE=", 0, 5)) {
+                try {
+                    return Long.parseLong(parameter.substring(5));
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return 0;
+    }
+
+    private static long parseSize(String size) {
+        try {
+            return Long.parseLong(size);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static int indexOf(byte[] bytes, int from, int to, byte value) {
+        for (int i = from; i < to; i++) {
+            if (bytes[i] == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int trimmedLength(byte[] bytes, int offset, int length) {
+        int end = offset + length;
+        while (end > offset && (bytes[end - 1] == '\n' || bytes[end - 1] == '\r')) {
+            end--;
+        }
+        return end - offset;
+    }
+
+    /**
+     * Message buffer handed to the handler without another copy.
+     */
+    private static final class DataBuffer extends ByteArrayOutputStream {
+
+        DataBuffer() {
+            this(8192);
+        }
+
+        DataBuffer(int capacity) {
+            super(capacity);
+        }
+
+        InputStream toInputStream() {
+            return new ByteArrayInputStream(buf, 0, count);
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.example.smtpmock.smtp;
+
+import javax.mail.util.SharedByteArrayInputStream;
+import java.io.InputStream;
+
+/**
+ * Shared stream over the raw message buffer whose sub-streams remember their absolute
+ * position, so parsed MIME parts can be referenced as offset/length regions of the buffer
+ * instead of being copied out.
+ */
+final class RawBufferInputStream extends SharedByteArrayInputStream {
+
+    RawBufferInputStream(byte[] buffer) {
+        super(buffer);
+    }
+
+    private RawBufferInputStream(byte[] buffer, int offset, int length) {
+        super(buffer, offset, length);
+    }
+
+    @Override
+    public InputStream newStream(long start, long end) {
+        if (start < 0) {
+            throw new IllegalArgumentException("start < 0");
+        }
+        if (end == -1) {
+            end = count - this.start;
+        }
+        return new RawBufferInputStream(buf, this.start + (int) start, (int) (end - start));
+    }
+
+    int regionOffset() {
+        return start;
+    }
+
+    int regionLength() {
+        return count - start;
+    }
+}
@@ -0,0 +1,191 @@
+package com.example.smtpmock.smtp;
+
+import com.example.smtpmock.model.ListenerStats;
+import org.subethamail.smtp.MessageContext;
+import org.subethamail.smtp.MessageHandler;
+import org.subethamail.smtp.MessageHandlerFactory;
+import org.subethamail.smtp.RejectException;
+import org.subethamail.smtp.TooMuchDataException;
+import org.subethamail.smtp.server.SMTPServer;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * One SMTP server socket with its own thread pool and throughput counters, so traffic on
+ * one listener neither shares threads with nor hides behind another. The socket is served
+ * either by subethasmtp (a pooled thread per session) or by {@link NioSmtpServer}.
+ */
+class SmtpListener {
+
+    private final SmtpListenerProperties.Listener definition;
+    private final ThreadPoolExecutor threads;
+    private final SMTPServer server;
+    private final NioSmtpServer nioServer;
+    private final LongAdder messages = new LongAdder();
+    private final LongAdder bytes = new LongAdder();
+
+    SmtpListener(SmtpListenerProperties.Listener definition, MessageHandlerFactory handlerFactory,
+                 long maxMessageSize) {
+        this.definition = definition;
+        MessageHandlerFactory countingFactory = new CountingHandlerFactory(handlerFactory);
+        String threadPrefix = "smtp-mock-" + definition.getName() + "-";
+        if (definition.getAcceptor() == SmtpListenerProperties.Acceptor.NIO) {
+            this.threads = new ThreadPoolExecutor(definition.getWorkerThreads(), definition.getWorkerThreads(),
+                    0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(), threadFactory(threadPrefix));
+            this.server = null;
+            this.nioServer = new NioSmtpServer(definition.getName(),
+                    new InetSocketAddress(resolve(definition.getBindAddress()), definition.getPort()),
+                    countingFactory, threads, definition.getMaxConnections(),
+                    definition.getConnectionTimeout().toMillis(), maxMessageSize);
+        } else {
+            this.threads = new ThreadPoolExecutor(0, Integer.MAX_VALUE, 60, TimeUnit.SECONDS,
+                    new SynchronousQueue<>(), threadFactory(threadPrefix));
+            this.nioServer = null;
+            // The server enforces max connections itself, answering 421 to sessions over the limit.
+            this.server = new SMTPServer(countingFactory, null, threads);
+            server.setPort(definition.getPort());
+            server.setBindAddress(resolve(definition.getBindAddress()));
+            server.setMaxConnections(definition.getMaxConnections());
+            server.setConnectionTimeout((int) definition.getConnectionTimeout().toMillis());
+            // Advertised as SIZE; larger declarations and bodies are answered with 552.
+            server.setMaxMessageSize((int) Math.min(maxMessageSize, Integer.MAX_VALUE));
+            server.setSoftwareName("Spring SMTP Mock");
+        }
+    }
+
+    void start() {
+        if (nioServer != null) {
+            nioServer.start();
+        } else {
+            server.start();
+        }
+    }
+
+    void stop() {
+        if (nioServer != null) {
+            nioServer.stop();
+        } else {
+            server.stop();
+        }
+        threads.shutdown();
+    }
+
+    ListenerStats getStats() {
+        if (nioServer != null) {
+            return stats(nioServer.activeConnections(), nioServer.totalConnections());
+        }
+        return stats(threads.getActiveCount(), threads.getTaskCount());
+    }
+
+    private ListenerStats stats(int activeConnections, long totalConnections) {
+        return new ListenerStats(definition.getName(), definition.getBindAddress(), definition.getPort(),
+                activeConnections, totalConnections, messages.sum(), bytes.sum());
+    }
+
+    private static InetAddress resolve(String bindAddress) {
+        if (bindAddress == null || bindAddress.isBlank()) {
+            return null;
+        }
+        try {
+            return InetAddress.getByName(bindAddress);
+        } catch (UnknownHostException e) {
+            throw new IllegalStateException("Unknown SMTP bind address " + bindAddress, e);
+        }
+    }
+
+    private static ThreadFactory threadFactory(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    private class CountingHandlerFactory implements MessageHandlerFactory {
+
+        private final MessageHandlerFactory delegate;
+
+        CountingHandlerFactory(MessageHandlerFactory delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public MessageHandler create(MessageContext context) {
+            MessageHandler handler = delegate.create(context);
+            return new MessageHandler() {
+                @Override
+                public void from(String from) throws RejectException {
+                    handler.from(from);
+                }
+
+                @Override
+                public void recipient(String recipient) throws RejectException {
+                    handler.recipient(recipient);
+                }
+
+                @Override
+                public void data(InputStream data) throws RejectException, TooMuchDataException, IOException {
+                    CountingInputStream counting = new CountingInputStream(data);
+                    try {
+                        handler.data(counting);
+                        messages.increment();
+                    } finally {
+                        bytes.add(counting.count);
+                    }
+                }
+
+                @Override
+                public void done() {
+                    handler.done();
+                }
+            };
+        }
+    }
+
+    private static final class CountingInputStream extends FilterInputStream {
+
+        private long count;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int value = super.read();
+            if (value >= 0) {
+                count++;
+            }
+            return value;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int read = super.read(buffer, offset, length);
+            if (read > 0) {
+                count += read;
+            }
+            return read;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            count += skipped;
+            return skipped;
+        }
+    }
+}
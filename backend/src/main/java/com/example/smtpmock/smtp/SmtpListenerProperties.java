@@ -0,0 +1,109 @@
+package com.example.smtpmock.smtp;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Listener definitions under {@code smtp.mock.listeners[*]}. When none are configured a single
+ * listener is started on {@code smtp.mock.port}.
+ */
+@Component
+@ConfigurationProperties(prefix = "smtp.mock")
+public class SmtpListenerProperties {
+
+    private List<Listener> listeners = new ArrayList<>();
+
+    public List<Listener> getListeners() {
+        return listeners;
+    }
+
+    public void setListeners(List<Listener> listeners) {
+        this.listeners = listeners;
+    }
+
+    public enum Acceptor {
+        THREAD,
+        NIO
+    }
+
+    public static class Listener {
+
+        private String name;
+        private Acceptor acceptor = Acceptor.THREAD;
+        private int workerThreads = Runtime.getRuntime().availableProcessors();
+        private int port;
+        private String bindAddress;
+        private int maxConnections = 1000;
+        private Duration connectionTimeout = Duration.ofMinutes(1);
+        private DataSize maxMessageSize;
+
+        public String getName() {
+            return name != null && !name.isBlank() ? name : "smtp-" + port;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public Acceptor getAcceptor() {
+            return acceptor;
+        }
+
+        public void setAcceptor(Acceptor acceptor) {
+            this.acceptor = acceptor;
+        }
+
+        public int getWorkerThreads() {
+            return workerThreads;
+        }
+
+        public void setWorkerThreads(int workerThreads) {
+            this.workerThreads = workerThreads;
+        }
+
+        public int getPort() {
+            return port;
+        }
+
+        public void setPort(int port) {
+            this.port = port;
+        }
+
+        public String getBindAddress() {
+            return bindAddress;
+        }
+
+        public void setBindAddress(String bindAddress) {
+            this.bindAddress = bindAddress;
+        }
+
+        public int getMaxConnections() {
+            return maxConnections;
+        }
+
+        public void setMaxConnections(int maxConnections) {
+            this.maxConnections = maxConnections;
+        }
+
+        public Duration getConnectionTimeout() {
+            return connectionTimeout;
+        }
+
+        public void setConnectionTimeout(Duration connectionTimeout) {
+            this.connectionTimeout = connectionTimeout;
+        }
+
+        public DataSize getMaxMessageSize() {
+            return maxMessageSize;
+        }
+
+        public void setMaxMessageSize(DataSize maxMessageSize) {
+            this.maxMessageSize = maxMessageSize;
+        }
+    }
+}
@@ -1,15 +1,19 @@
 package com.example.smtpmock.smtp;
 
+import com.example.smtpmock.model.ListenerStats;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.SmartLifecycle;
 import org.springframework.stereotype.Component;
 
-import org.subethamail.smtp.server.SMTPServer;
-import org.subethamail.smtp.helper.SimpleMessageListenerAdapter;
+import org.subethamail.smtp.MessageHandlerFactory;
 
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
 
 @Component
 public class SmtpServerLifecycle implements SmartLifecycle {
@@ -17,31 +21,46 @@ public class SmtpServerLifecycle implements SmartLifecycle {
     private static final Logger LOGGER = LoggerFactory.getLogger(SmtpServerLifecycle.class);
 
     private final MockMessageListener messageListener;
+    private final IngestPipeline ingestPipeline;
+    private final SmtpListenerProperties listenerProperties;
+    private final MessageDataReader dataReader;
     private final AtomicBoolean running = new AtomicBoolean(false);
     private final int port;
-    private SMTPServer smtpServer;
+    private final List<SmtpListener> listeners = new CopyOnWriteArrayList<>();
 
-    public SmtpServerLifecycle(MockMessageListener messageListener,
+    public SmtpServerLifecycle(MockMessageListener messageListener, IngestPipeline ingestPipeline,
+                               SmtpListenerProperties listenerProperties, MessageDataReader dataReader,
                                @Value("${smtp.mock.port:2525}") int port) {
         this.messageListener = messageListener;
+        this.ingestPipeline = ingestPipeline;
+        this.listenerProperties = listenerProperties;
+        this.dataReader = dataReader;
         this.port = port;
     }
 
     @Override
     public void start() {
         if (running.compareAndSet(false, true)) {
-            smtpServer = new SMTPServer(new SimpleMessageListenerAdapter(messageListener));
-            smtpServer.setPort(port);
-            smtpServer.setSoftwareName("Spring SMTP Mock");
-            smtpServer.start();
-            LOGGER.info("Started SMTP mock server on port {}", port);
+            for (SmtpListenerProperties.Listener definition : definitions()) {
+                long maxMessageSize = definition.getMaxMessageSize() != null
+                        ? definition.getMaxMessageSize().toBytes() : dataReader.getMaxMessageSize();
+                SmtpListener listener = new SmtpListener(definition,
+                        handlerFactory(definition.getPort(), maxMessageSize), maxMessageSize);
+                listener.start();
+                listeners.add(listener);
+                LOGGER.info("Started SMTP mock listener {} on {}:{}", definition.getName(),
+                        definition.getBindAddress() != null ? definition.getBindAddress() : "*", definition.getPort());
+            }
         }
     }
 
     @Override
     public void stop() {
-        if (running.compareAndSet(true, false) && smtpServer != null) {
-            smtpServer.stop();
+        if (running.compareAndSet(true, false)) {
+            for (SmtpListener listener : listeners) {
+                listener.stop();
+            }
+            listeners.clear();
             LOGGER.info("Stopped SMTP mock server");
         }
     }
@@ -61,4 +80,22 @@ public class SmtpServerLifecycle implements SmartLifecycle {
     public int getPhase() {
         return Integer.MIN_VALUE;
     }
+
+    public List<ListenerStats> getListenerStats() {
+        return listeners.stream().map(SmtpListener::getStats).collect(Collectors.toList());
+    }
+
+    private List<SmtpListenerProperties.Listener> definitions() {
+        if (!listenerProperties.getListeners().isEmpty()) {
+            return listenerProperties.getListeners();
+        }
+        SmtpListenerProperties.Listener fallback = new SmtpListenerProperties.Listener();
+        fallback.setPort(port);
+        return Collections.singletonList(fallback);
+    }
+
+    private MessageHandlerFactory handlerFactory(int listenerPort, long maxMessageSize) {
+        return new EnvelopeMessageHandlerFactory(messageListener, ingestPipeline, dataReader, listenerPort,
+                maxMessageSize);
+    }
 }
@@ -0,0 +1,86 @@
+package com.example.smtpmock.store;
+
+import com.example.smtpmock.model.RawPayload;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Raw message stored as consecutive chunks, some of them shared attachment blobs. Reads
+ * within one chunk are served straight from it; reads spanning chunks are stitched together.
+ */
+final class CompositePayload implements RawPayload {
+
+    private final byte[][] chunks;
+    private final int[] starts;
+    private final int length;
+    private final List<DeduplicatingPayloadStorage.Blob> blobs;
+    private final AtomicBoolean released = new AtomicBoolean();
+
+    CompositePayload(List<byte[]> chunks, List<DeduplicatingPayloadStorage.Blob> blobs) {
+        this.chunks = chunks.toArray(new byte[0][]);
+        this.starts = new int[this.chunks.length];
+        int position = 0;
+        for (int i = 0; i < this.chunks.length; i++) {
+            starts[i] = position;
+            position += this.chunks[i].length;
+        }
+        this.length = position;
+        this.blobs = blobs;
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public InputStream openStream(int offset, int count) {
+        if (offset < 0 || count < 0 || offset + count > length) {
+            throw new IndexOutOfBoundsException("Region " + offset + "+" + count + " outside payload of " + length);
+        }
+        int index = chunkAt(offset);
+        int relative = offset - starts[index];
+        if (count == 0 || relative + count <= chunks[index].length) {
+            return new ByteArrayInputStream(chunks[index], relative, count);
+        }
+        List<InputStream> parts = new ArrayList<>();
+        int remaining = count;
+        while (remaining > 0) {
+            int part = Math.min(remaining, chunks[index].length - relative);
+            parts.add(new ByteArrayInputStream(chunks[index], relative, part));
+            remaining -= part;
+            index++;
+            relative = 0;
+        }
+        return new SequenceInputStream(Collections.enumeration(parts));
+    }
+
+    @Override
+    public byte[] toByteArray() {
+        byte[] copy = new byte[length];
+        for (int i = 0; i < chunks.length; i++) {
+            System.arraycopy(chunks[i], 0, copy, starts[i], chunks[i].length);
+        }
+        return copy;
+    }
+
+    /**
+     * Returns the shared blobs exactly once, so a repeated release cannot drop another
+     * email's reference.
+     */
+    List<DeduplicatingPayloadStorage.Blob> takeBlobs() {
+        return released.compareAndSet(false, true) ? blobs : Collections.emptyList();
+    }
+
+    private int chunkAt(int offset) {
+        int index = Arrays.binarySearch(starts, offset);
+        return index >= 0 ? index : -index - 2;
+    }
+}
@@ -0,0 +1,143 @@
+package com.example.smtpmock.store;
+
+import com.example.smtpmock.model.AttachmentSource;
+import com.example.smtpmock.model.EmailAttachment;
+import com.example.smtpmock.model.HeapPayload;
+import com.example.smtpmock.model.RawMessage;
+import com.example.smtpmock.model.RawRegionSource;
+import com.example.smtpmock.model.StoredEmail;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Heap payload storage that keeps identical attachment bodies once. Each large attachment
+ * region of a parsed raw message is interned in a content-addressed blob table keyed by
+ * SHA-256, and the raw payload is rebuilt as a {@link CompositePayload} of the message's own
+ * bytes and the shared blobs. Blobs are reference counted and dropped with their last email.
+ * Lazily parsed emails, including those replayed from the journal, are parsed here so their
+ * attachment regions are known; deduplication therefore gives up deferred parsing.
+ */
+public class DeduplicatingPayloadStorage implements PayloadStorage {
+
+    private final int minBlobSize;
+    private final ConcurrentHashMap<String, Blob> blobs = new ConcurrentHashMap<>();
+
+    public DeduplicatingPayloadStorage(int minBlobSize) {
+        this.minBlobSize = Math.max(1, minBlobSize);
+    }
+
+    @Override
+    public void store(StoredEmail email) {
+        RawMessage raw = email.getRaw();
+        if (raw == null || !(raw.getPayload() instanceof HeapPayload)) {
+            return;
+        }
+        List<RawRegionSource> regions = new ArrayList<>();
+        // Loads lazy content: the regions are only known once the MIME structure is parsed.
+        for (EmailAttachment attachment : email.getAttachments()) {
+            AttachmentSource source = attachment.getSource();
+            if (source instanceof RawRegionSource) {
+                RawRegionSource region = (RawRegionSource) source;
+                if (region.getRaw() == raw && region.getLength() >= minBlobSize) {
+                    regions.add(region);
+                }
+            }
+        }
+        if (regions.isEmpty()) {
+            return;
+        }
+        regions.sort(Comparator.comparingInt(RawRegionSource::getOffset));
+        byte[] bytes = raw.toByteArray();
+        List<byte[]> chunks = new ArrayList<>();
+        List<Blob> shared = new ArrayList<>();
+        int position = 0;
+        for (RawRegionSource region : regions) {
+            if (region.getOffset() < position) {
+                continue;
+            }
+            if (region.getOffset() > position) {
+                chunks.add(Arrays.copyOfRange(bytes, position, region.getOffset()));
+            }
+            Blob blob = intern(bytes, region.getOffset(), region.getLength());
+            chunks.add(blob.bytes);
+            shared.add(blob);
+            position = region.getOffset() + region.getLength();
+        }
+        if (position < bytes.length) {
+            chunks.add(Arrays.copyOfRange(bytes, position, bytes.length));
+        }
+        raw.setPayload(new CompositePayload(chunks, shared));
+    }
+
+    @Override
+    public void release(StoredEmail email) {
+        RawMessage raw = email.getRaw();
+        if (raw != null && raw.getPayload() instanceof CompositePayload) {
+            ((CompositePayload) raw.getPayload()).takeBlobs().forEach(this::release);
+        }
+    }
+
+    public int blobCount() {
+        return blobs.size();
+    }
+
+    public long blobBytes() {
+        return blobs.values().stream().mapToLong(blob -> blob.bytes.length).sum();
+    }
+
+    @Override
+    public void close() {
+        blobs.clear();
+    }
+
+    private Blob intern(byte[] bytes, int offset, int length) {
+        String hash = hash(bytes, offset, length);
+        Blob[] result = new Blob[1];
+        blobs.compute(hash, (key, existing) -> {
+            if (existing != null && Arrays.equals(existing.bytes, 0, existing.bytes.length, bytes, offset, offset + length)) {
+                existing.references++;
+                result[0] = existing;
+                return existing;
+            }
+            Blob blob = new Blob(key, Arrays.copyOfRange(bytes, offset, offset + length));
+            result[0] = blob;
+            // A digest collision keeps the existing entry; the new blob is simply not shared.
+            return existing != null ? existing : blob;
+        });
+        return result[0];
+    }
+
+    private void release(Blob blob) {
+        blobs.computeIfPresent(blob.hash, (key, existing) ->
+                existing == blob && --existing.references == 0 ? null : existing);
+    }
+
+    private static String hash(byte[] bytes, int offset, int length) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(bytes, offset, length);
+            return Base64.getEncoder().encodeToString(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    static final class Blob {
+
+        final String hash;
+        final byte[] bytes;
+        int references = 1;
+
+        Blob(String hash, byte[] bytes) {
+            this.hash = hash;
+            this.bytes = bytes;
+        }
+    }
+}
@@ -0,0 +1,235 @@
+package com.example.smtpmock.store;
+
+import com.example.smtpmock.model.EmailAttachment;
+import com.example.smtpmock.model.StoredEmail;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory mailbox engine: a hash index by id for O(1) lookups plus a
+ * newest-first skip list for ordered listing. Both structures are lock-free
+ * for readers; writers only serialize on the hash bin of the affected id.
+ */
+public class EmailStore {
+
+    static final Comparator<Entry> NEWEST_FIRST = (left, right) -> {
+        int result = right.receivedAt.compareTo(left.receivedAt);
+        return result != 0 ? result : Long.compare(right.sequence, left.sequence);
+    };
+
+    private final ConcurrentHashMap<UUID, Entry> index = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListSet<Entry> ordered = new ConcurrentSkipListSet<>(NEWEST_FIRST);
+    private final ConcurrentSkipListMap<Long, UUID> accessOrder;
+    private final AtomicLong sequence = new AtomicLong();
+    private final AtomicLong totalBytes = new AtomicLong();
+
+    public EmailStore() {
+        this(false);
+    }
+
+    public EmailStore(boolean trackAccess) {
+        this.accessOrder = trackAccess ? new ConcurrentSkipListMap<>() : null;
+    }
+
+    /**
+     * Adds the email and returns the one it replaced, if an email with the same id was stored.
+     */
+    public Optional<StoredEmail> add(StoredEmail email) {
+        if (email.getReceivedAt() == null) {
+            email.setReceivedAt(Instant.now());
+        }
+        Entry entry = new Entry(email, email.getReceivedAt(), sequence.incrementAndGet(), sizeOf(email));
+        Entry[] replaced = new Entry[1];
+        index.compute(email.getId(), (id, previous) -> {
+            if (previous != null) {
+                unlink(previous);
+                replaced[0] = previous;
+            }
+            ordered.add(entry);
+            if (accessOrder != null) {
+                accessOrder.put(entry.lastAccess, id);
+            }
+            totalBytes.addAndGet(entry.size);
+            return entry;
+        });
+        return replaced[0] != null ? Optional.of(replaced[0].email) : Optional.empty();
+    }
+
+    public Optional<StoredEmail> findById(UUID id) {
+        Entry entry = index.get(id);
+        if (entry == null) {
+            return Optional.empty();
+        }
+        touch(entry);
+        return Optional.of(entry.email);
+    }
+
+    /**
+     * Looks up an email without counting it as an access for LRU eviction.
+     */
+    public Optional<StoredEmail> peek(UUID id) {
+        Entry entry = index.get(id);
+        return entry != null ? Optional.of(entry.email) : Optional.empty();
+    }
+
+    public Optional<StoredEmail> remove(UUID id) {
+        Entry[] removed = new Entry[1];
+        index.computeIfPresent(id, (key, entry) -> {
+            unlink(entry);
+            removed[0] = entry;
+            return null;
+        });
+        return removed[0] != null ? Optional.of(removed[0].email) : Optional.empty();
+    }
+
+    public List<StoredEmail> clear() {
+        List<StoredEmail> removed = new ArrayList<>();
+        for (Entry entry : ordered) {
+            remove(entry.email.getId()).ifPresent(removed::add);
+        }
+        return removed;
+    }
+
+    public List<StoredEmail> findAll() {
+        List<StoredEmail> result = new ArrayList<>(index.size());
+        for (Entry entry : ordered) {
+            result.add(entry.email);
+        }
+        return Collections.unmodifiableList(result);
+    }
+
+    /**
+     * Returns up to {@code limit} emails strictly after {@code after} (or from the newest
+     * when {@code after} is null) by walking the skip list from the cursor position. The
+     * cursor's mailbox is not consulted; {@link Mailbox} translates foreign cursors first.
+     */
+    public List<PagedEmail> page(PageCursor after, int limit) {
+        NavigableSet<Entry> view = after != null ? ordered.tailSet(probe(after), false) : ordered;
+        List<PagedEmail> result = new ArrayList<>(Math.min(limit, 256));
+        for (Entry entry : view) {
+            if (result.size() >= limit) {
+                break;
+            }
+            result.add(new PagedEmail(entry.email,
+                    new PageCursor(entry.receivedAt, entry.email.getMailbox(), entry.sequence)));
+        }
+        return result;
+    }
+
+    /**
+     * Weakly consistent newest-first iterator; never throws
+     * {@link java.util.ConcurrentModificationException} and does not copy the store.
+     */
+    public Iterator<StoredEmail> iterator() {
+        Iterator<Entry> delegate = ordered.iterator();
+        return new Iterator<StoredEmail>() {
+            @Override
+            public boolean hasNext() {
+                return delegate.hasNext();
+            }
+
+            @Override
+            public StoredEmail next() {
+                return delegate.next().email;
+            }
+        };
+    }
+
+    public Optional<StoredEmail> oldest() {
+        Iterator<Entry> iterator = ordered.descendingIterator();
+        return iterator.hasNext() ? Optional.of(iterator.next().email) : Optional.empty();
+    }
+
+    public Optional<StoredEmail> leastRecentlyAccessed() {
+        if (accessOrder == null) {
+            return oldest();
+        }
+        Map.Entry<Long, UUID> first;
+        while ((first = accessOrder.firstEntry()) != null) {
+            Entry entry = index.get(first.getValue());
+            if (entry != null && entry.lastAccess == first.getKey()) {
+                return Optional.of(entry.email);
+            }
+            // Stale key left behind by a racing touch or remove.
+            accessOrder.remove(first.getKey(), first.getValue());
+        }
+        return Optional.empty();
+    }
+
+    public int size() {
+        return index.size();
+    }
+
+    public long totalBytes() {
+        return totalBytes.get();
+    }
+
+    /**
+     * The raw message already contains every attachment, so only emails without one are
+     * sized by their attachments.
+     */
+    public static long sizeOf(StoredEmail email) {
+        if (email.getRaw() != null || !email.isContentLoaded()) {
+            return email.getRawSize();
+        }
+        long size = 0;
+        for (EmailAttachment attachment : email.getAttachments()) {
+            size += attachment.getSize();
+        }
+        return size;
+    }
+
+    private static Entry probe(PageCursor cursor) {
+        // Positions are unique, so the probe works whether or not the cursor email still exists.
+        return new Entry(null, cursor.getReceivedAt(), cursor.getSequence(), 0);
+    }
+
+    private void touch(Entry entry) {
+        if (accessOrder == null) {
+            return;
+        }
+        long previous = entry.lastAccess;
+        long next = sequence.incrementAndGet();
+        entry.lastAccess = next;
+        accessOrder.put(next, entry.email.getId());
+        accessOrder.remove(previous, entry.email.getId());
+    }
+
+    private void unlink(Entry entry) {
+        ordered.remove(entry);
+        if (accessOrder != null) {
+            accessOrder.remove(entry.lastAccess, entry.email.getId());
+        }
+        totalBytes.addAndGet(-entry.size);
+    }
+
+    static final class Entry {
+
+        final StoredEmail email;
+        final Instant receivedAt;
+        final long sequence;
+        final long size;
+        volatile long lastAccess;
+
+        Entry(StoredEmail email, Instant receivedAt, long sequence, long size) {
+            this.email = email;
+            this.receivedAt = receivedAt;
+            this.sequence = sequence;
+            this.size = size;
+            this.lastAccess = sequence;
+        }
+    }
+}
@@ -0,0 +1,6 @@
+package com.example.smtpmock.store;
+
+public enum EvictionPolicy {
+    OLDEST_FIRST,
+    LRU
+}
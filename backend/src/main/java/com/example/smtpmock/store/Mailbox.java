@@ -0,0 +1,118 @@
+package com.example.smtpmock.store;
+
+import com.example.smtpmock.model.MailboxStats;
+import com.example.smtpmock.model.StoredEmail;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * One partition of captured mail with its own store, search postings and retention, so
+ * traffic, eviction and clears in one mailbox never touch the structures of another.
+ */
+public class Mailbox {
+
+    private static final Comparator<StoredEmail> OLDEST_FIRST = Comparator.comparing(StoredEmail::getReceivedAt);
+
+    private final String name;
+    private final EmailStore store;
+    private final SearchIndex searchIndex = new SearchIndex();
+    private final RetentionEnforcer retention;
+
+    public Mailbox(String name, RetentionPolicy retentionPolicy) {
+        this.name = name;
+        this.store = new EmailStore(retentionPolicy.tracksAccess());
+        this.retention = new RetentionEnforcer(retentionPolicy);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Adds the email and returns whatever retention evicted to make room for it. An email
+     * already stored under the same id is handed to {@code replaced}.
+     */
+    public List<StoredEmail> add(StoredEmail email, Instant now, Consumer<StoredEmail> replaced) {
+        store.add(email).ifPresent(previous -> {
+            searchIndex.remove(previous);
+            replaced.accept(previous);
+        });
+        searchIndex.add(email);
+        List<StoredEmail> evicted = retention.enforce(store, now);
+        evicted.forEach(searchIndex::remove);
+        return evicted;
+    }
+
+    public Optional<StoredEmail> remove(UUID id) {
+        Optional<StoredEmail> removed = store.remove(id);
+        removed.ifPresent(searchIndex::remove);
+        return removed;
+    }
+
+    public List<StoredEmail> clear() {
+        List<StoredEmail> removed = store.clear();
+        removed.forEach(searchIndex::remove);
+        return removed;
+    }
+
+    public Optional<StoredEmail> findById(UUID id) {
+        return store.findById(id);
+    }
+
+    public List<StoredEmail> findAll() {
+        return store.findAll();
+    }
+
+    public List<PagedEmail> page(PageCursor after, int limit) {
+        return store.page(after != null ? after.within(name) : null, limit);
+    }
+
+    public Iterator<StoredEmail> iterator() {
+        return store.iterator();
+    }
+
+    /**
+     * Returns the newest {@code limit} matches, keeping only that many in a heap rather than
+     * sorting every match.
+     */
+    public List<StoredEmail> search(SearchQuery query, int limit) {
+        if (limit <= 0) {
+            return Collections.emptyList();
+        }
+        PriorityQueue<StoredEmail> newest = new PriorityQueue<>(OLDEST_FIRST);
+        for (UUID id : searchIndex.search(query)) {
+            Optional<StoredEmail> match = store.peek(id);
+            if (!match.isPresent()) {
+                continue;
+            }
+            if (newest.size() < limit) {
+                newest.add(match.get());
+            } else if (OLDEST_FIRST.compare(match.get(), newest.peek()) > 0) {
+                newest.poll();
+                newest.add(match.get());
+            }
+        }
+        List<StoredEmail> result = new ArrayList<>(newest);
+        result.sort(OLDEST_FIRST.reversed());
+        return result;
+    }
+
+    public int size() {
+        return store.size();
+    }
+
+    public MailboxStats getStats() {
+        RetentionStats stats = retention.getStats();
+        return new MailboxStats(store.size(), store.totalBytes(),
+                stats.getEvictedByCount(), stats.getEvictedByBytes(), stats.getEvictedByAge());
+    }
+}
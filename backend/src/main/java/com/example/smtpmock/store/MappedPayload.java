@@ -0,0 +1,47 @@
+package com.example.smtpmock.store;
+
+import com.example.smtpmock.model.RawPayload;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+final class MappedPayload implements RawPayload {
+
+    final MappedPayloadStorage.Segment segment;
+    final int offset;
+    private final int length;
+
+    MappedPayload(MappedPayloadStorage.Segment segment, int offset, int length) {
+        this.segment = segment;
+        this.offset = offset;
+        this.length = length;
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public InputStream openStream(int start, int count) {
+        return new ByteBufferInputStream(slice(start, count));
+    }
+
+    @Override
+    public byte[] toByteArray() {
+        byte[] copy = new byte[length];
+        slice(0, length).get(copy);
+        return copy;
+    }
+
+    ByteBuffer slice(int start, int count) {
+        if (start < 0 || count < 0 || start + count > length) {
+            throw new IndexOutOfBoundsException("Region " + start + "+" + count + " outside payload of " + length);
+        }
+        // Duplicates share the mapping but keep independent positions, so readers never race.
+        ByteBuffer view = segment.buffer.duplicate();
+        view.limit(offset + start + count);
+        view.position(offset + start);
+        return view;
+    }
+}
@@ -0,0 +1,330 @@
+package com.example.smtpmock.store;
+
+import com.example.smtpmock.model.AttachmentSource;
+import com.example.smtpmock.model.EmailAttachment;
+import com.example.smtpmock.model.RawMessage;
+import com.example.smtpmock.model.RawPayload;
+import com.example.smtpmock.model.RawRegionSource;
+import com.example.smtpmock.model.StoredEmail;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Moves raw message payloads (and any attachment bytes not already a region of them) into
+ * append-only, memory-mapped segment files so that only metadata stays on the Java heap.
+ * <p>
+ * Released payloads leave holes; once a sealed segment's live ratio drops below the
+ * compaction threshold, a background thread copies its live payloads mapping-to-mapping
+ * into the active segment and deletes the file. Each segment guards its own bookkeeping, so
+ * releases only contend on the segment they touch and compaction holds a segment while it
+ * moves one payload at a time. Readers are never blocked: they hold {@link RawMessage}
+ * handles that are re-pointed, and an already opened view stays valid because the
+ * mapping outlives the deleted file until it is garbage collected.
+ */
+public class MappedPayloadStorage implements PayloadStorage {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(MappedPayloadStorage.class);
+
+    private final Path directory;
+    private final int segmentSize;
+    private final double compactionThreshold;
+    private final List<Segment> segments = new CopyOnWriteArrayList<>();
+    private final ExecutorService compactor;
+    // Guarded by this storage's lock, which only ever covers appending one payload.
+    private Segment active;
+    private int nextSegmentId;
+
+    public MappedPayloadStorage(Path directory, int segmentSize, double compactionThreshold) throws IOException {
+        this.directory = Files.createDirectories(directory);
+        this.segmentSize = segmentSize;
+        this.compactionThreshold = compactionThreshold;
+        this.compactor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "smtp-mock-compactor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        removeLeftoverSegments();
+    }
+
+    @Override
+    public void store(StoredEmail email) {
+        if (email.getRaw() != null) {
+            spill(email.getRaw());
+        }
+        if (!email.isContentLoaded()) {
+            return;
+        }
+        for (EmailAttachment attachment : email.getAttachments()) {
+            if (attachment.getSource() == null && attachment.getData() != null) {
+                RawMessage holder = new RawMessage(attachment.getData());
+                spill(holder);
+                attachment.setSource(new RawRegionSource(holder, 0, holder.length(), null));
+            }
+        }
+    }
+
+    @Override
+    public void release(StoredEmail email) {
+        Set<RawMessage> holders = Collections.newSetFromMap(new IdentityHashMap<>());
+        if (email.getRaw() != null) {
+            holders.add(email.getRaw());
+        }
+        if (email.isContentLoaded()) {
+            for (EmailAttachment attachment : email.getAttachments()) {
+                AttachmentSource source = attachment.getSource();
+                if (source instanceof RawRegionSource) {
+                    holders.add(((RawRegionSource) source).getRaw());
+                }
+            }
+        }
+        holders.forEach(this::release);
+    }
+
+    public int segmentCount() {
+        return segments.size();
+    }
+
+    public long liveBytes() {
+        long live = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                live += segment.liveBytes;
+            }
+        }
+        return live;
+    }
+
+    @Override
+    public void close() {
+        compactor.shutdownNow();
+        try {
+            compactor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                delete(segment);
+            }
+        }
+        synchronized (this) {
+            active = null;
+        }
+        try {
+            Files.deleteIfExists(directory);
+        } catch (IOException e) {
+            LOGGER.debug("Unable to delete segment directory {}", directory, e);
+        }
+    }
+
+    /**
+     * Waits until every compaction scheduled so far has finished.
+     */
+    void awaitCompaction() throws InterruptedException, ExecutionException {
+        compactor.submit(() -> { }).get();
+    }
+
+    /**
+     * Payloads are only referenced from memory, so segments left behind by a killed run are
+     * garbage. They are deleted, and numbering continues after them in case one cannot be.
+     */
+    private void removeLeftoverSegments() throws IOException {
+        try (DirectoryStream<Path> leftovers = Files.newDirectoryStream(directory, "segment-*.dat")) {
+            for (Path leftover : leftovers) {
+                String name = leftover.getFileName().toString();
+                try {
+                    int id = Integer.parseInt(name.substring("segment-".length(), name.length() - ".dat".length()));
+                    nextSegmentId = Math.max(nextSegmentId, id + 1);
+                } catch (NumberFormatException e) {
+                    continue;
+                }
+                try {
+                    Files.delete(leftover);
+                    LOGGER.info("Deleted payload segment {} left behind by an earlier run", leftover);
+                } catch (IOException e) {
+                    LOGGER.warn("Unable to delete leftover payload segment {}", leftover, e);
+                }
+            }
+        }
+    }
+
+    private void spill(RawMessage holder) {
+        RawPayload payload = holder.getPayload();
+        if (payload instanceof MappedPayload) {
+            return;
+        }
+        byte[] bytes = payload.toByteArray();
+        MappedPayload mapped;
+        synchronized (this) {
+            mapped = append(ByteBuffer.wrap(bytes), holder);
+        }
+        holder.setPayload(mapped);
+    }
+
+    // Called with this storage's lock held.
+    private MappedPayload append(ByteBuffer source, RawMessage owner) {
+        int length = source.remaining();
+        Segment segment = segmentWithRoom(length);
+        ByteBuffer target = segment.buffer.duplicate();
+        target.position(segment.writePosition);
+        target.put(source);
+        MappedPayload payload = new MappedPayload(segment, segment.writePosition, length);
+        segment.writePosition += length;
+        synchronized (segment) {
+            segment.liveBytes += length;
+            segment.live.add(owner);
+        }
+        return payload;
+    }
+
+    private void release(RawMessage holder) {
+        while (true) {
+            RawPayload payload = holder.getPayload();
+            if (!(payload instanceof MappedPayload)) {
+                return;
+            }
+            Segment segment = ((MappedPayload) payload).segment;
+            synchronized (segment) {
+                if (holder.getPayload() != payload) {
+                    // Compaction moved it to another segment in the meantime.
+                    continue;
+                }
+                if (segment.live.remove(holder)) {
+                    segment.liveBytes -= payload.length();
+                    reclaim(segment);
+                }
+                return;
+            }
+        }
+    }
+
+    // Called with the segment's lock held.
+    private void reclaim(Segment segment) {
+        if (!segment.sealed || segment.deleted) {
+            return;
+        }
+        if (segment.live.isEmpty()) {
+            delete(segment);
+        } else if (!segment.compacting && segment.liveBytes < segment.writePosition * compactionThreshold) {
+            segment.compacting = true;
+            try {
+                compactor.execute(() -> compact(segment));
+            } catch (RejectedExecutionException e) {
+                LOGGER.debug("Storage closed, not compacting segment {}", segment.path);
+            }
+        }
+    }
+
+    private void compact(Segment segment) {
+        List<RawMessage> holders;
+        synchronized (segment) {
+            LOGGER.debug("Compacting segment {} ({} of {} bytes live)",
+                    segment.path, segment.liveBytes, segment.writePosition);
+            holders = new ArrayList<>(segment.live);
+        }
+        for (RawMessage holder : holders) {
+            synchronized (segment) {
+                if (segment.deleted) {
+                    return;
+                }
+                if (!segment.live.remove(holder)) {
+                    continue;
+                }
+                MappedPayload current = (MappedPayload) holder.getPayload();
+                MappedPayload moved;
+                synchronized (this) {
+                    moved = append(current.slice(0, current.length()), holder);
+                }
+                holder.setPayload(moved);
+                segment.liveBytes -= current.length();
+            }
+        }
+        synchronized (segment) {
+            if (!segment.deleted) {
+                delete(segment);
+            }
+        }
+    }
+
+    // Called with this storage's lock held.
+    private Segment segmentWithRoom(int length) {
+        if (active == null || active.capacity - active.writePosition < length) {
+            Segment previous = active;
+            active = openSegment(Math.max(segmentSize, length));
+            if (previous != null) {
+                synchronized (previous) {
+                    previous.sealed = true;
+                    reclaim(previous);
+                }
+            }
+        }
+        return active;
+    }
+
+    private Segment openSegment(int capacity) {
+        Path path = directory.resolve(String.format("segment-%06d.dat", nextSegmentId++));
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            // The mapping stays valid after the channel is closed.
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+            Segment segment = new Segment(path, buffer, capacity);
+            segments.add(segment);
+            return segment;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to create payload segment " + path, e);
+        }
+    }
+
+    // Called with the segment's lock held.
+    private void delete(Segment segment) {
+        segment.deleted = true;
+        segments.remove(segment);
+        try {
+            Files.deleteIfExists(segment.path);
+        } catch (IOException e) {
+            LOGGER.warn("Unable to delete payload segment {}", segment.path, e);
+        }
+    }
+
+    static final class Segment {
+
+        final Path path;
+        final MappedByteBuffer buffer;
+        final int capacity;
+        // Written under the storage lock while active; fixed once sealed.
+        int writePosition;
+        // The rest is guarded by the segment's own lock.
+        final Set<RawMessage> live = Collections.newSetFromMap(new IdentityHashMap<>());
+        long liveBytes;
+        boolean sealed;
+        boolean compacting;
+        boolean deleted;
+
+        Segment(Path path, MappedByteBuffer buffer, int capacity) {
+            this.path = path;
+            this.buffer = buffer;
+            this.capacity = capacity;
+        }
+    }
+}
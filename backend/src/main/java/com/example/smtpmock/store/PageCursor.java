@@ -0,0 +1,73 @@
+package com.example.smtpmock.store;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Comparator;
+
+/**
+ * Opaque keyset position (receivedAt + mailbox + store sequence) of the last email returned
+ * by a page. Newest first, ties broken by mailbox name and then by insertion order, so the
+ * order is total even when emails in several mailboxes share a timestamp.
+ */
+public final class PageCursor {
+
+    public static final Comparator<PageCursor> NEWEST_FIRST = Comparator
+            .comparing(PageCursor::getReceivedAt, Comparator.reverseOrder())
+            .thenComparing(PageCursor::getMailbox)
+            .thenComparing(PageCursor::getSequence, Comparator.reverseOrder());
+
+    private final Instant receivedAt;
+    private final String mailbox;
+    private final long sequence;
+
+    public PageCursor(Instant receivedAt, String mailbox, long sequence) {
+        this.receivedAt = receivedAt;
+        this.mailbox = mailbox != null ? mailbox : "";
+        this.sequence = sequence;
+    }
+
+    public static PageCursor decode(String token) {
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            String[] parts = decoded.split(":", 4);
+            if (parts.length != 4) {
+                throw new IllegalArgumentException("Malformed cursor: " + token);
+            }
+            Instant receivedAt = Instant.ofEpochSecond(Long.parseLong(parts[0]), Long.parseLong(parts[1]));
+            return new PageCursor(receivedAt, parts[3], Long.parseLong(parts[2]));
+        } catch (RuntimeException ex) {
+            throw new IllegalArgumentException("Malformed cursor: " + token, ex);
+        }
+    }
+
+    public String encode() {
+        String value = receivedAt.getEpochSecond() + ":" + receivedAt.getNano() + ":" + sequence + ":" + mailbox;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Translates this position into the sequence space of {@code other}: at the cursor's
+     * timestamp, a mailbox sorting after the cursor's still owes all of its entries and one
+     * sorting before it owes none.
+     */
+    PageCursor within(String other) {
+        int order = mailbox.compareTo(other != null ? other : "");
+        if (order == 0) {
+            return this;
+        }
+        return new PageCursor(receivedAt, other, order < 0 ? Long.MAX_VALUE : Long.MIN_VALUE);
+    }
+
+    public Instant getReceivedAt() {
+        return receivedAt;
+    }
+
+    public String getMailbox() {
+        return mailbox;
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+}
@@ -0,0 +1,25 @@
+package com.example.smtpmock.store;
+
+import com.example.smtpmock.model.StoredEmail;
+
+/**
+ * An email returned by a page together with its keyset position.
+ */
+public final class PagedEmail {
+
+    private final StoredEmail email;
+    private final PageCursor position;
+
+    PagedEmail(StoredEmail email, PageCursor position) {
+        this.email = email;
+        this.position = position;
+    }
+
+    public StoredEmail getEmail() {
+        return email;
+    }
+
+    public PageCursor getPosition() {
+        return position;
+    }
+}
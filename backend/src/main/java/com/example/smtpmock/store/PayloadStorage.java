@@ -0,0 +1,29 @@
+package com.example.smtpmock.store;
+
+import com.example.smtpmock.model.StoredEmail;
+
+import java.io.Closeable;
+
+/**
+ * Decides where message payloads live once an email is accepted into the store.
+ */
+public interface PayloadStorage extends Closeable {
+
+    PayloadStorage HEAP = new PayloadStorage() {
+        @Override
+        public void store(StoredEmail email) {
+        }
+
+        @Override
+        public void release(StoredEmail email) {
+        }
+
+        @Override
+        public void close() {
+        }
+    };
+
+    void store(StoredEmail email);
+
+    void release(StoredEmail email);
+}
@@ -0,0 +1,79 @@
+package com.example.smtpmock.store;
+
+import com.example.smtpmock.model.StoredEmail;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Applies a {@link RetentionPolicy} to an {@link EmailStore}. Each call evicts at most
+ * {@link RetentionPolicy#getEvictionBatchSize()} messages, so callers on the ingest path
+ * never pay for a full sweep; an over-full store converges over subsequent calls.
+ */
+public class RetentionEnforcer {
+
+    private final RetentionPolicy policy;
+    private final RetentionStats stats = new RetentionStats();
+
+    public RetentionEnforcer(RetentionPolicy policy) {
+        this.policy = policy;
+    }
+
+    public RetentionPolicy getPolicy() {
+        return policy;
+    }
+
+    public RetentionStats getStats() {
+        return stats;
+    }
+
+    public List<StoredEmail> enforce(EmailStore store, Instant now) {
+        if (!policy.isBounded()) {
+            return Collections.emptyList();
+        }
+        List<StoredEmail> evicted = new ArrayList<>();
+        for (int budget = policy.getEvictionBatchSize(); budget > 0; budget--) {
+            Optional<StoredEmail> expired = findExpired(store, now);
+            if (expired.isPresent()) {
+                store.remove(expired.get().getId()).ifPresent(email -> {
+                    evicted.add(email);
+                    stats.recordAgeEviction();
+                });
+                continue;
+            }
+            boolean overCount = policy.getMaxMessages() > 0 && store.size() > policy.getMaxMessages();
+            boolean overBytes = !overCount && policy.getMaxBytes() > 0 && store.totalBytes() > policy.getMaxBytes();
+            if (!overCount && !overBytes) {
+                break;
+            }
+            Optional<StoredEmail> candidate = policy.getEviction() == EvictionPolicy.LRU
+                    ? store.leastRecentlyAccessed()
+                    : store.oldest();
+            if (!candidate.isPresent()) {
+                break;
+            }
+            // A concurrent remover may win the race; the next iteration re-checks the limits.
+            store.remove(candidate.get().getId()).ifPresent(email -> {
+                evicted.add(email);
+                if (overCount) {
+                    stats.recordCountEviction();
+                } else {
+                    stats.recordBytesEviction();
+                }
+            });
+        }
+        return evicted;
+    }
+
+    private Optional<StoredEmail> findExpired(EmailStore store, Instant now) {
+        if (policy.getMaxAge().isZero()) {
+            return Optional.empty();
+        }
+        Instant threshold = now.minus(policy.getMaxAge());
+        return store.oldest()
+                .filter(email -> email.getReceivedAt() != null && email.getReceivedAt().isBefore(threshold));
+    }
+}
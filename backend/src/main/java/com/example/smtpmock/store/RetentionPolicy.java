@@ -0,0 +1,52 @@
+package com.example.smtpmock.store;
+
+import java.time.Duration;
+
+public class RetentionPolicy {
+
+    public static final RetentionPolicy UNBOUNDED =
+            new RetentionPolicy(0, 0, Duration.ZERO, EvictionPolicy.OLDEST_FIRST, 32);
+
+    private final int maxMessages;
+    private final long maxBytes;
+    private final Duration maxAge;
+    private final EvictionPolicy eviction;
+    private final int evictionBatchSize;
+
+    public RetentionPolicy(int maxMessages, long maxBytes, Duration maxAge, EvictionPolicy eviction,
+                           int evictionBatchSize) {
+        this.maxMessages = Math.max(0, maxMessages);
+        this.maxBytes = Math.max(0, maxBytes);
+        this.maxAge = maxAge != null && !maxAge.isNegative() ? maxAge : Duration.ZERO;
+        this.eviction = eviction != null ? eviction : EvictionPolicy.OLDEST_FIRST;
+        this.evictionBatchSize = Math.max(1, evictionBatchSize);
+    }
+
+    public int getMaxMessages() {
+        return maxMessages;
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    public Duration getMaxAge() {
+        return maxAge;
+    }
+
+    public EvictionPolicy getEviction() {
+        return eviction;
+    }
+
+    public int getEvictionBatchSize() {
+        return evictionBatchSize;
+    }
+
+    public boolean isBounded() {
+        return maxMessages > 0 || maxBytes > 0 || !maxAge.isZero();
+    }
+
+    public boolean tracksAccess() {
+        return eviction == EvictionPolicy.LRU;
+    }
+}
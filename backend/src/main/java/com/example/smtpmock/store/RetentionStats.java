@@ -0,0 +1,38 @@
+package com.example.smtpmock.store;
+
+import java.util.concurrent.atomic.LongAdder;
+
+public class RetentionStats {
+
+    private final LongAdder evictedByCount = new LongAdder();
+    private final LongAdder evictedByBytes = new LongAdder();
+    private final LongAdder evictedByAge = new LongAdder();
+
+    void recordCountEviction() {
+        evictedByCount.increment();
+    }
+
+    void recordBytesEviction() {
+        evictedByBytes.increment();
+    }
+
+    void recordAgeEviction() {
+        evictedByAge.increment();
+    }
+
+    public long getEvictedByCount() {
+        return evictedByCount.sum();
+    }
+
+    public long getEvictedByBytes() {
+        return evictedByBytes.sum();
+    }
+
+    public long getEvictedByAge() {
+        return evictedByAge.sum();
+    }
+
+    public long getEvictedTotal() {
+        return getEvictedByCount() + getEvictedByBytes() + getEvictedByAge();
+    }
+}
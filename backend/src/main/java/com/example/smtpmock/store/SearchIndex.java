@@ -0,0 +1,198 @@
+package com.example.smtpmock.store;
+
+import com.example.smtpmock.model.StoredEmail;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Incrementally maintained inverted index: exact-match postings for sender and recipient
+ * addresses, token postings for subject and body. Queries intersect posting sets starting
+ * from the smallest one, so cost tracks the result size rather than the mailbox size.
+ */
+public class SearchIndex {
+
+    private final Map<String, Set<UUID>> byRecipient = new ConcurrentHashMap<>();
+    private final Map<String, Set<UUID>> bySender = new ConcurrentHashMap<>();
+    private final Map<String, Set<UUID>> bySubjectToken = new ConcurrentHashMap<>();
+    private final Map<String, Set<UUID>> byBodyToken = new ConcurrentHashMap<>();
+    private final Map<UUID, StoredEmail> pendingBodies = new ConcurrentHashMap<>();
+
+    public void add(StoredEmail email) {
+        UUID id = email.getId();
+        recipientsOf(email).forEach(address -> post(byRecipient, address, id));
+        if (email.getFrom() != null) {
+            post(bySender, normalizeAddress(email.getFrom()), id);
+        }
+        tokenize(email.getSubject()).forEach(token -> post(bySubjectToken, token, id));
+        if (email.isContentLoaded()) {
+            tokenize(email.getBody()).forEach(token -> post(byBodyToken, token, id));
+        } else {
+            // Indexing the body would force a MIME parse on the ingest path; defer it to
+            // the first free-text query instead.
+            pendingBodies.put(id, email);
+        }
+    }
+
+    public void remove(StoredEmail email) {
+        UUID id = email.getId();
+        recipientsOf(email).forEach(address -> unpost(byRecipient, address, id));
+        if (email.getFrom() != null) {
+            unpost(bySender, normalizeAddress(email.getFrom()), id);
+        }
+        tokenize(email.getSubject()).forEach(token -> unpost(bySubjectToken, token, id));
+        if (pendingBodies.remove(id) == null) {
+            tokenize(email.getBody()).forEach(token -> unpost(byBodyToken, token, id));
+        }
+    }
+
+    /**
+     * Returns the ids matching every criterion of the query; an empty query matches nothing.
+     */
+    public Set<UUID> search(SearchQuery query) {
+        List<Set<UUID>> required = new ArrayList<>();
+        if (query.getTo() != null) {
+            required.add(postings(byRecipient, normalizeAddress(query.getTo())));
+        }
+        if (query.getFrom() != null) {
+            required.add(postings(bySender, normalizeAddress(query.getFrom())));
+        }
+        if (query.getSubject() != null) {
+            for (String token : tokenize(query.getSubject())) {
+                required.add(postings(bySubjectToken, token));
+            }
+        }
+        if (query.getText() != null) {
+            indexPendingBodies();
+            for (String token : tokenize(query.getText())) {
+                Set<UUID> subjectOrBody = new HashSet<>(postings(bySubjectToken, token));
+                subjectOrBody.addAll(postings(byBodyToken, token));
+                required.add(subjectOrBody);
+            }
+        }
+        if (required.isEmpty()) {
+            return Collections.emptySet();
+        }
+        required.sort(Comparator.comparingInt(Set::size));
+        Set<UUID> result = new HashSet<>(required.get(0));
+        for (int i = 1; i < required.size() && !result.isEmpty(); i++) {
+            result.retainAll(required.get(i));
+        }
+        return result;
+    }
+
+    private void indexPendingBodies() {
+        for (UUID id : pendingBodies.keySet()) {
+            StoredEmail email = pendingBodies.remove(id);
+            if (email != null) {
+                tokenize(email.getBody()).forEach(token -> post(byBodyToken, token, id));
+            }
+        }
+    }
+
+    /**
+     * Evaluates a query against a single email with the same semantics as {@link #search}.
+     */
+    public static boolean matches(SearchQuery query, StoredEmail email) {
+        if (query.isEmpty()) {
+            return false;
+        }
+        if (query.getTo() != null && !recipientsOf(email).contains(normalizeAddress(query.getTo()))) {
+            return false;
+        }
+        if (query.getFrom() != null
+                && (email.getFrom() == null || !normalizeAddress(email.getFrom()).equals(normalizeAddress(query.getFrom())))) {
+            return false;
+        }
+        Set<String> subjectTokens = tokenize(email.getSubject());
+        if (query.getSubject() != null && !subjectTokens.containsAll(tokenize(query.getSubject()))) {
+            return false;
+        }
+        if (query.getText() != null) {
+            Set<String> bodyTokens = tokenize(email.getBody());
+            for (String token : tokenize(query.getText())) {
+                if (!subjectTokens.contains(token) && !bodyTokens.contains(token)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    public static Set<String> recipientsOf(StoredEmail email) {
+        Set<String> recipients = new HashSet<>();
+        addAll(recipients, email.getTo());
+        addAll(recipients, email.getCc());
+        addAll(recipients, email.getBcc());
+        addAll(recipients, email.getEnvelopeRecipients());
+        return recipients;
+    }
+
+    public static String normalizeAddress(String address) {
+        String value = address.trim();
+        int open = value.lastIndexOf('<');
+        int close = value.lastIndexOf('>');
+        if (open >= 0 && close > open) {
+            value = value.substring(open + 1, close).trim();
+        }
+        return value.toLowerCase(Locale.ROOT);
+    }
+
+    static Set<String> tokenize(String text) {
+        if (text == null || text.isEmpty()) {
+            return Collections.emptySet();
+        }
+        Set<String> tokens = new LinkedHashSet<>();
+        StringBuilder current = new StringBuilder();
+        for (int i = 0; i < text.length(); ) {
+            int codePoint = text.codePointAt(i);
+            if (Character.isLetterOrDigit(codePoint)) {
+                current.appendCodePoint(Character.toLowerCase(codePoint));
+            } else if (current.length() > 0) {
+                tokens.add(current.toString());
+                current.setLength(0);
+            }
+            i += Character.charCount(codePoint);
+        }
+        if (current.length() > 0) {
+            tokens.add(current.toString());
+        }
+        return tokens;
+    }
+
+    private static void addAll(Set<String> target, Collection<String> addresses) {
+        if (addresses != null) {
+            addresses.forEach(address -> target.add(normalizeAddress(address)));
+        }
+    }
+
+    private static Set<UUID> postings(Map<String, Set<UUID>> index, String key) {
+        Set<UUID> ids = index.get(key);
+        return ids != null ? ids : Collections.emptySet();
+    }
+
+    private static void post(Map<String, Set<UUID>> index, String key, UUID id) {
+        index.compute(key, (k, ids) -> {
+            Set<UUID> result = ids != null ? ids : ConcurrentHashMap.newKeySet();
+            result.add(id);
+            return result;
+        });
+    }
+
+    private static void unpost(Map<String, Set<UUID>> index, String key, UUID id) {
+        index.computeIfPresent(key, (k, ids) -> {
+            ids.remove(id);
+            return ids.isEmpty() ? null : ids;
+        });
+    }
+}
@@ -0,0 +1,40 @@
+package com.example.smtpmock.store;
+
+public class SearchQuery {
+
+    private final String to;
+    private final String from;
+    private final String subject;
+    private final String text;
+
+    public SearchQuery(String to, String from, String subject, String text) {
+        this.to = blankToNull(to);
+        this.from = blankToNull(from);
+        this.subject = blankToNull(subject);
+        this.text = blankToNull(text);
+    }
+
+    public String getTo() {
+        return to;
+    }
+
+    public String getFrom() {
+        return from;
+    }
+
+    public String getSubject() {
+        return subject;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    public boolean isEmpty() {
+        return to == null && from == null && subject == null && text == null;
+    }
+
+    private static String blankToNull(String value) {
+        return value == null || value.isBlank() ? null : value;
+    }
+}
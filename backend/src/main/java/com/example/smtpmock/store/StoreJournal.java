@@ -0,0 +1,37 @@
+package com.example.smtpmock.store;
+
+import com.example.smtpmock.model.StoredEmail;
+
+import java.util.UUID;
+
+/**
+ * Receives every mutation of the mailbox so it can be made durable.
+ */
+public interface StoreJournal {
+
+    StoreJournal NOOP = new StoreJournal() {
+        @Override
+        public void added(StoredEmail email) {
+        }
+
+        @Override
+        public void removed(UUID id) {
+        }
+
+        @Override
+        public void cleared() {
+        }
+
+        @Override
+        public void mailboxCleared(String mailbox) {
+        }
+    };
+
+    void added(StoredEmail email);
+
+    void removed(UUID id);
+
+    void cleared();
+
+    void mailboxCleared(String mailbox);
+}
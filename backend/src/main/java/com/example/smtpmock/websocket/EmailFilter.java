@@ -0,0 +1,97 @@
+package com.example.smtpmock.websocket;
+
+import com.example.smtpmock.store.SearchIndex;
+
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Subscription filter sent by a WebSocket client. Every non-blank field must match.
+ * {@code recipient} and {@code sender} take a full address or a domain
+ * ({@code example.com} or {@code @example.com}); {@code subjectPrefix} ignores case.
+ */
+public class EmailFilter {
+
+    private String recipient;
+    private String sender;
+    private String subjectPrefix;
+
+    public EmailFilter() {
+    }
+
+    public EmailFilter(String recipient, String sender, String subjectPrefix) {
+        this.recipient = recipient;
+        this.sender = sender;
+        this.subjectPrefix = subjectPrefix;
+    }
+
+    public String getRecipient() {
+        return recipient;
+    }
+
+    public void setRecipient(String recipient) {
+        this.recipient = recipient;
+    }
+
+    public String getSender() {
+        return sender;
+    }
+
+    public void setSender(String sender) {
+        this.sender = sender;
+    }
+
+    public String getSubjectPrefix() {
+        return subjectPrefix;
+    }
+
+    public void setSubjectPrefix(String subjectPrefix) {
+        this.subjectPrefix = subjectPrefix;
+    }
+
+    /**
+     * Index key of an address filter: the lower-cased address, or {@code @domain}.
+     */
+    static String addressKey(String value) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        String normalized = SearchIndex.normalizeAddress(value);
+        int at = normalized.indexOf('@');
+        return at > 0 ? normalized : "@" + normalized.substring(at + 1);
+    }
+
+    static String domainKey(String address) {
+        int at = address.lastIndexOf('@');
+        return at >= 0 ? address.substring(at) : null;
+    }
+
+    static String subjectKey(String value) {
+        return value == null || value.isEmpty() ? null : value.toLowerCase(Locale.ROOT);
+    }
+
+    boolean matches(Set<String> recipients, String senderAddress, String subject) {
+        String recipientKey = addressKey(recipient);
+        if (recipientKey != null && !matchesAddress(recipientKey, recipients)) {
+            return false;
+        }
+        String senderKey = addressKey(sender);
+        if (senderKey != null && (senderAddress == null || !matchesAddress(senderKey, Set.of(senderAddress)))) {
+            return false;
+        }
+        String prefix = subjectKey(subjectPrefix);
+        return prefix == null || subject != null && subject.startsWith(prefix);
+    }
+
+    private static boolean matchesAddress(String key, Set<String> addresses) {
+        if (!key.startsWith("@")) {
+            return addresses.contains(key);
+        }
+        for (String address : addresses) {
+            if (key.equals(domainKey(address))) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
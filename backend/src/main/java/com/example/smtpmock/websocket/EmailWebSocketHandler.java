@@ -1,46 +1,134 @@
 package com.example.smtpmock.websocket;
 
+import com.example.smtpmock.metrics.CaptureMetrics;
+import com.example.smtpmock.model.EmailSummary;
 import com.example.smtpmock.model.StoredEmail;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
+import org.springframework.util.MultiValueMap;
 import org.springframework.web.socket.CloseStatus;
 import org.springframework.web.socket.TextMessage;
 import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.SessionLimitExceededException;
 import org.springframework.web.socket.handler.TextWebSocketHandler;
+import org.springframework.web.util.UriComponentsBuilder;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
 
+/**
+ * Broadcasts captured emails to dashboard sessions. A single dispatch thread encodes each
+ * email and queues the frames in every matching session's bounded FIFO {@link SessionOutbox};
+ * each outbox is drained by one task at a time on a send pool. Frames therefore reach a
+ * session in publication order, a stalled client only ever ties up one pool thread while
+ * messages for it queue in its own outbox, and the publishing thread never waits: when the
+ * dispatch queue is full the broadcast is dropped and counted.
+ * <p>
+ * Clients pick a frame format when connecting: {@code ?payload=full} (the whole email, the
+ * default) or {@code ?payload=summary}; {@code ?batch=true} receives summaries coalesced into
+ * one JSON array per batch interval. Each frame is encoded once and shared by all sessions.
+ * <p>
+ * Clients may narrow what they receive by sending a {@link SubscriptionRequest}; matching
+ * sessions are looked up through a {@link SubscriptionIndex}.
+ */
 @Component
-public class EmailWebSocketHandler extends TextWebSocketHandler {
+public class EmailWebSocketHandler extends TextWebSocketHandler implements DisposableBean {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(EmailWebSocketHandler.class);
+    // Bounds both shared queues. Broadcasts past it are dropped and counted, so the publishing
+    // thread never encodes or waits; drains past it are retried on the next batch tick.
+    private static final int QUEUE_CAPACITY = 1024;
 
     private final ObjectMapper objectMapper;
-    private final Set<WebSocketSession> sessions = ConcurrentHashMap.newKeySet();
+    private final WebSocketProperties properties;
+    private final CaptureMetrics metrics;
+    private final Map<String, Subscriber> subscribers = new ConcurrentHashMap<>();
+    private final SubscriptionIndex subscriptionIndex = new SubscriptionIndex();
+    private final Queue<BatchEntry> pendingBatch = new ConcurrentLinkedQueue<>();
+    private final ExecutorService dispatcher;
+    private final ExecutorService sendExecutor;
+    private final ScheduledExecutorService batchScheduler;
+    private final AtomicLong droppedBroadcasts = new AtomicLong();
 
-    public EmailWebSocketHandler(ObjectMapper objectMapper) {
+    public EmailWebSocketHandler(ObjectMapper objectMapper, WebSocketProperties properties) {
+        this(objectMapper, properties, CaptureMetrics.NOOP);
+    }
+
+    @Autowired
+    public EmailWebSocketHandler(ObjectMapper objectMapper, WebSocketProperties properties, CaptureMetrics metrics) {
         this.objectMapper = objectMapper;
+        this.properties = properties;
+        this.metrics = metrics;
+        this.dispatcher = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(QUEUE_CAPACITY), daemonThreads("smtp-mock-ws-dispatch-"));
+        int sendThreads = Math.max(1, properties.getSendThreads());
+        this.sendExecutor = new ThreadPoolExecutor(sendThreads, sendThreads, 0, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(QUEUE_CAPACITY), daemonThreads("smtp-mock-ws-"));
+        this.batchScheduler = Executors.newSingleThreadScheduledExecutor(daemonThreads("smtp-mock-ws-batch-"));
+        long interval = Math.max(1, properties.getBatchInterval().toMillis());
+        batchScheduler.scheduleAtFixedRate(this::flushBatch, interval, interval, TimeUnit.MILLISECONDS);
     }
 
     @Override
     public void afterConnectionEstablished(WebSocketSession session) {
-        sessions.add(session);
+        SessionOutbox outbox = new SessionOutbox(session, properties.getSendTimeLimit().toNanos(),
+                properties.getBufferSizeLimit().toBytes(),
+                properties.getSlowConsumer() == WebSocketProperties.SlowConsumerPolicy.DROP);
+        subscribers.put(session.getId(), toSubscriber(outbox));
+        subscriptionIndex.subscribe(session.getId(), null);
+    }
+
+    @Override
+    protected void handleTextMessage(WebSocketSession session, TextMessage message) {
+        SubscriptionRequest request;
+        try {
+            request = objectMapper.readValue(message.getPayload(), SubscriptionRequest.class);
+        } catch (JsonProcessingException e) {
+            LOGGER.debug("Ignoring malformed WebSocket message from session {}", session.getId(), e);
+            return;
+        }
+        if ("subscribe".equalsIgnoreCase(request.getType())) {
+            subscriptionIndex.subscribe(session.getId(), request.getFilters());
+        } else if ("unsubscribe".equalsIgnoreCase(request.getType())) {
+            subscriptionIndex.subscribe(session.getId(), null);
+        } else {
+            LOGGER.debug("Ignoring WebSocket message of type {} from session {}", request.getType(), session.getId());
+        }
     }
 
     @Override
     public void afterConnectionClosed(WebSocketSession session, CloseStatus status) {
-        sessions.remove(session);
+        forget(session);
     }
 
     @Override
     public void handleTransportError(WebSocketSession session, Throwable exception) {
         LOGGER.warn("WebSocket transport error, closing session {}", session.getId(), exception);
-        sessions.remove(session);
+        forget(session);
         try {
             session.close(CloseStatus.SERVER_ERROR);
         } catch (IOException e) {
@@ -49,28 +137,242 @@ public class EmailWebSocketHandler extends TextWebSocketHandler {
     }
 
     public void broadcastEmail(StoredEmail email) {
-        String payload;
+        if (subscribers.isEmpty()) {
+            return;
+        }
+        long requested = System.nanoTime();
+        Runnable broadcast = () -> {
+            try {
+                fanOut(email);
+            } finally {
+                metrics.recordBroadcast(System.nanoTime() - requested);
+            }
+        };
+        try {
+            dispatcher.execute(broadcast);
+        } catch (RejectedExecutionException e) {
+            if (!dispatcher.isShutdown()) {
+                // Running it here would overtake the queued broadcasts and encode on the ingest thread.
+                droppedBroadcasts.incrementAndGet();
+                LOGGER.debug("WebSocket dispatch queue full, dropping broadcast of email {}", email.getId());
+            }
+        }
+    }
+
+    public int sessionCount() {
+        return subscribers.size();
+    }
+
+    /**
+     * Broadcasts dropped because the dispatch queue was full.
+     */
+    public long droppedBroadcasts() {
+        return droppedBroadcasts.get();
+    }
+
+    @Override
+    public void destroy() {
+        batchScheduler.shutdownNow();
+        dispatcher.shutdownNow();
+        sendExecutor.shutdownNow();
+    }
+
+    private void fanOut(StoredEmail email) {
+        Set<String> targets = subscriptionIndex.match(email);
+        TextMessage full = null;
+        TextMessage summary = null;
+        boolean batched = false;
+        for (String target : targets) {
+            Subscriber subscriber = subscribers.get(target);
+            if (subscriber == null) {
+                continue;
+            }
+            if (subscriber.batched) {
+                batched = true;
+                continue;
+            }
+            TextMessage message;
+            if (subscriber.format == PayloadFormat.FULL) {
+                message = full != null ? full : (full = encode(email, email));
+            } else {
+                message = summary != null ? summary : (summary = encode(EmailSummary.of(email), email));
+            }
+            if (message == null) {
+                // Only this format failed to encode; other sessions and the batch still get the email.
+                continue;
+            }
+            send(subscriber, message);
+        }
+        if (batched) {
+            pendingBatch.add(new BatchEntry(EmailSummary.of(email), targets));
+        }
+    }
+
+    private void flushBatch() {
+        // Picks up outboxes whose drain could not be queued.
+        for (Subscriber subscriber : subscribers.values()) {
+            if (subscriber.outbox.hasPending()) {
+                scheduleDrain(subscriber);
+            }
+        }
+        if (pendingBatch.isEmpty()) {
+            return;
+        }
+        List<BatchEntry> batch = new ArrayList<>();
+        BatchEntry next;
+        while ((next = pendingBatch.poll()) != null) {
+            batch.add(next);
+        }
+        // Sessions whose filters selected the same emails share one encoded frame.
+        Map<List<EmailSummary>, TextMessage> frames = new HashMap<>();
+        for (Subscriber subscriber : subscribers.values()) {
+            if (!subscriber.batched) {
+                continue;
+            }
+            String id = subscriber.session.getId();
+            List<EmailSummary> selection = batch.stream()
+                    .filter(entry -> entry.targets.contains(id))
+                    .map(entry -> entry.summary)
+                    .collect(Collectors.toList());
+            if (selection.isEmpty()) {
+                continue;
+            }
+            TextMessage message = frames.computeIfAbsent(selection, this::encodeBatch);
+            if (message != null) {
+                send(subscriber, message);
+            }
+        }
+    }
+
+    private TextMessage encodeBatch(List<EmailSummary> summaries) {
         try {
-            payload = objectMapper.writeValueAsString(email);
+            return new TextMessage(objectMapper.writeValueAsBytes(summaries));
+        } catch (JsonProcessingException e) {
+            LOGGER.error("Unable to serialize a batch of {} email summaries", summaries.size(), e);
+            return null;
+        }
+    }
+
+    private TextMessage encode(Object payload, StoredEmail email) {
+        try {
+            return new TextMessage(objectMapper.writeValueAsBytes(payload));
         } catch (JsonProcessingException e) {
             LOGGER.error("Unable to serialize email {} for WebSocket clients", email.getId(), e);
+            return null;
+        }
+    }
+
+    private Subscriber toSubscriber(SessionOutbox outbox) {
+        WebSocketSession session = outbox.getSession();
+        PayloadFormat format = properties.getDefaultPayload();
+        boolean batched = false;
+        if (session.getUri() != null) {
+            MultiValueMap<String, String> params = UriComponentsBuilder.fromUri(session.getUri()).build().getQueryParams();
+            String payload = params.getFirst("payload");
+            if (payload != null) {
+                try {
+                    format = PayloadFormat.valueOf(payload.toUpperCase(Locale.ROOT));
+                } catch (IllegalArgumentException e) {
+                    LOGGER.debug("Ignoring unknown WebSocket payload format {}", payload);
+                }
+            }
+            batched = Boolean.parseBoolean(params.getFirst("batch"));
+        }
+        // Batches are arrays of summaries; full emails are never coalesced.
+        return new Subscriber(outbox, batched ? PayloadFormat.SUMMARY : format, batched);
+    }
+
+    private void forget(WebSocketSession session) {
+        subscribers.remove(session.getId());
+        subscriptionIndex.remove(session.getId());
+    }
+
+    private void send(Subscriber subscriber, TextMessage message) {
+        WebSocketSession session = subscriber.session;
+        try {
+            subscriber.outbox.offer(message);
+        } catch (SessionLimitExceededException e) {
+            metrics.recordSendFailure();
+            LOGGER.warn("Disconnecting slow WebSocket session {}: {}", session.getId(), e.getMessage());
+            forget(session);
+            subscriber.outbox.discard();
+            try {
+                session.close(CloseStatus.SESSION_NOT_RELIABLE);
+            } catch (IOException closeError) {
+                LOGGER.debug("Unable to close slow WebSocket session", closeError);
+            }
             return;
         }
+        scheduleDrain(subscriber);
+    }
 
-        TextMessage message = new TextMessage(payload);
-        sessions.forEach(session -> sendMessage(session, message));
+    private void scheduleDrain(Subscriber subscriber) {
+        if (!subscriber.outbox.claim()) {
+            return;
+        }
+        try {
+            sendExecutor.execute(() -> drain(subscriber));
+        } catch (RejectedExecutionException e) {
+            // Left for the next send or batch tick to retry.
+            subscriber.outbox.release();
+        }
     }
 
-    private void sendMessage(WebSocketSession session, TextMessage message) {
+    private void drain(Subscriber subscriber) {
+        WebSocketSession session = subscriber.session;
         if (!session.isOpen()) {
-            sessions.remove(session);
+            forget(session);
+            subscriber.outbox.release();
+            subscriber.outbox.discard();
             return;
         }
+        boolean pending;
         try {
-            session.sendMessage(message);
+            pending = subscriber.outbox.drain();
         } catch (IOException e) {
+            metrics.recordSendFailure();
             LOGGER.warn("Failed to send WebSocket message to session {}", session.getId(), e);
-            sessions.remove(session);
+            forget(session);
+            subscriber.outbox.discard();
+            return;
+        }
+        if (pending) {
+            scheduleDrain(subscriber);
+        }
+    }
+
+    private static ThreadFactory daemonThreads(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + counter.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    private static final class BatchEntry {
+
+        final EmailSummary summary;
+        final Set<String> targets;
+
+        BatchEntry(EmailSummary summary, Set<String> targets) {
+            this.summary = summary;
+            this.targets = targets;
+        }
+    }
+
+    private static final class Subscriber {
+
+        final SessionOutbox outbox;
+        final WebSocketSession session;
+        final PayloadFormat format;
+        final boolean batched;
+
+        Subscriber(SessionOutbox outbox, PayloadFormat format, boolean batched) {
+            this.outbox = outbox;
+            this.session = outbox.getSession();
+            this.format = format;
+            this.batched = batched;
         }
     }
 }
@@ -0,0 +1,6 @@
+package com.example.smtpmock.websocket;
+
+public enum PayloadFormat {
+    FULL,
+    SUMMARY
+}
@@ -0,0 +1,106 @@
+package com.example.smtpmock.websocket;
+
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.SessionLimitExceededException;
+
+import java.io.IOException;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * FIFO send queue of one WebSocket session. At most one task drains it at a time, so frames
+ * leave in the order they were queued and a stalled client only ever holds one send thread.
+ * The limits follow {@code ConcurrentWebSocketSessionDecorator}: a send running longer than
+ * the time limit fails the session, and a backlog over the size limit either drops the
+ * oldest frames or fails the session.
+ */
+final class SessionOutbox {
+
+    private final WebSocketSession session;
+    private final long sendTimeLimitNanos;
+    private final long bufferSizeLimit;
+    private final boolean dropOldest;
+    private final Queue<TextMessage> frames = new ConcurrentLinkedQueue<>();
+    private final AtomicLong bufferedBytes = new AtomicLong();
+    private final AtomicBoolean draining = new AtomicBoolean();
+    private volatile long sendStarted;
+
+    SessionOutbox(WebSocketSession session, long sendTimeLimitNanos, long bufferSizeLimit, boolean dropOldest) {
+        this.session = session;
+        this.sendTimeLimitNanos = sendTimeLimitNanos;
+        this.bufferSizeLimit = bufferSizeLimit;
+        this.dropOldest = dropOldest;
+    }
+
+    WebSocketSession getSession() {
+        return session;
+    }
+
+    void offer(TextMessage message) throws SessionLimitExceededException {
+        long started = sendStarted;
+        if (started != 0 && System.nanoTime() - started > sendTimeLimitNanos) {
+            throw new SessionLimitExceededException("Send time limit exceeded for session " + session.getId(),
+                    CloseStatus.SESSION_NOT_RELIABLE);
+        }
+        frames.add(message);
+        long buffered = bufferedBytes.addAndGet(message.getPayloadLength());
+        // As with the decorator, only a backlog counts: a lone frame is always accepted.
+        while (buffered > bufferSizeLimit && buffered > message.getPayloadLength()) {
+            if (!dropOldest) {
+                throw new SessionLimitExceededException("Buffer size limit exceeded for session " + session.getId(),
+                        CloseStatus.SESSION_NOT_RELIABLE);
+            }
+            TextMessage dropped = frames.peek();
+            if (dropped == null || dropped == message || !frames.remove(dropped)) {
+                break;
+            }
+            buffered = bufferedBytes.addAndGet(-dropped.getPayloadLength());
+        }
+    }
+
+    boolean hasPending() {
+        return !frames.isEmpty();
+    }
+
+    /**
+     * Claims the right to drain; only the caller that gets {@code true} may call {@link #drain()}.
+     */
+    boolean claim() {
+        return draining.compareAndSet(false, true);
+    }
+
+    void release() {
+        draining.set(false);
+    }
+
+    /**
+     * Sends every queued frame, then gives up the claim. Returns whether frames queued after
+     * the last one sent still need a drain.
+     */
+    boolean drain() throws IOException {
+        try {
+            TextMessage message;
+            while ((message = frames.poll()) != null) {
+                bufferedBytes.addAndGet(-message.getPayloadLength());
+                sendStarted = System.nanoTime();
+                try {
+                    session.sendMessage(message);
+                } finally {
+                    sendStarted = 0;
+                }
+            }
+        } finally {
+            release();
+        }
+        return hasPending();
+    }
+
+    void discard() {
+        frames.clear();
+        bufferedBytes.set(0);
+    }
+}
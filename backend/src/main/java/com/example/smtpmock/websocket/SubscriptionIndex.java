@@ -0,0 +1,145 @@
+package com.example.smtpmock.websocket;
+
+import com.example.smtpmock.model.StoredEmail;
+import com.example.smtpmock.store.SearchIndex;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Routes an email to the sessions whose filters match without looking at unrelated sessions.
+ * Each filter is posted under its most selective key (recipient, then sender, then subject
+ * prefix), so a lookup only visits filters that share an address, domain or prefix with the
+ * email and checks their remaining conditions. Sessions without filters receive everything.
+ */
+final class SubscriptionIndex {
+
+    private final Map<String, Set<Registration>> byRecipient = new ConcurrentHashMap<>();
+    private final Map<String, Set<Registration>> bySender = new ConcurrentHashMap<>();
+    private final Map<String, Set<Registration>> bySubjectPrefix = new ConcurrentHashMap<>();
+    private final Set<String> unfiltered = ConcurrentHashMap.newKeySet();
+    private final Map<String, List<Registration>> bySession = new ConcurrentHashMap<>();
+    private volatile int longestPrefix;
+
+    synchronized void subscribe(String sessionId, List<EmailFilter> filters) {
+        remove(sessionId);
+        if (filters == null || filters.isEmpty()) {
+            unfiltered.add(sessionId);
+            return;
+        }
+        List<Registration> registrations = new ArrayList<>(filters.size());
+        for (EmailFilter filter : filters) {
+            Registration registration = new Registration(sessionId, filter);
+            registrations.add(registration);
+            post(registration);
+        }
+        bySession.put(sessionId, registrations);
+    }
+
+    synchronized void remove(String sessionId) {
+        unfiltered.remove(sessionId);
+        List<Registration> registrations = bySession.remove(sessionId);
+        if (registrations != null) {
+            registrations.forEach(this::unpost);
+        }
+    }
+
+    Set<String> match(StoredEmail email) {
+        Set<String> recipients = SearchIndex.recipientsOf(email);
+        String sender = email.getFrom() != null ? SearchIndex.normalizeAddress(email.getFrom()) : null;
+        String subject = email.getSubject() != null ? email.getSubject().toLowerCase(Locale.ROOT) : null;
+
+        Set<Registration> candidates = new HashSet<>();
+        for (String recipient : recipients) {
+            collect(candidates, byRecipient, recipient);
+            collect(candidates, byRecipient, EmailFilter.domainKey(recipient));
+        }
+        if (sender != null) {
+            collect(candidates, bySender, sender);
+            collect(candidates, bySender, EmailFilter.domainKey(sender));
+        }
+        if (subject != null && !bySubjectPrefix.isEmpty()) {
+            for (int length = 1; length <= Math.min(subject.length(), longestPrefix); length++) {
+                collect(candidates, bySubjectPrefix, subject.substring(0, length));
+            }
+        }
+
+        Set<String> sessions = new HashSet<>(unfiltered);
+        for (Registration candidate : candidates) {
+            if (!sessions.contains(candidate.sessionId) && candidate.filter.matches(recipients, sender, subject)) {
+                sessions.add(candidate.sessionId);
+            }
+        }
+        return sessions;
+    }
+
+    private void post(Registration registration) {
+        Map<String, Set<Registration>> index = indexOf(registration.filter);
+        String key = keyOf(registration.filter);
+        if (index == null) {
+            unfiltered.add(registration.sessionId);
+            return;
+        }
+        if (index == bySubjectPrefix) {
+            longestPrefix = Math.max(longestPrefix, key.length());
+        }
+        index.computeIfAbsent(key, ignored -> ConcurrentHashMap.newKeySet()).add(registration);
+    }
+
+    private void unpost(Registration registration) {
+        Map<String, Set<Registration>> index = indexOf(registration.filter);
+        if (index == null) {
+            return;
+        }
+        index.computeIfPresent(keyOf(registration.filter), (key, registrations) -> {
+            registrations.remove(registration);
+            return registrations.isEmpty() ? null : registrations;
+        });
+    }
+
+    private Map<String, Set<Registration>> indexOf(EmailFilter filter) {
+        if (EmailFilter.addressKey(filter.getRecipient()) != null) {
+            return byRecipient;
+        }
+        if (EmailFilter.addressKey(filter.getSender()) != null) {
+            return bySender;
+        }
+        if (EmailFilter.subjectKey(filter.getSubjectPrefix()) != null) {
+            return bySubjectPrefix;
+        }
+        return null;
+    }
+
+    private String keyOf(EmailFilter filter) {
+        String recipient = EmailFilter.addressKey(filter.getRecipient());
+        if (recipient != null) {
+            return recipient;
+        }
+        String sender = EmailFilter.addressKey(filter.getSender());
+        return sender != null ? sender : EmailFilter.subjectKey(filter.getSubjectPrefix());
+    }
+
+    private static void collect(Set<Registration> target, Map<String, Set<Registration>> index, String key) {
+        if (key == null) {
+            return;
+        }
+        target.addAll(index.getOrDefault(key, Collections.emptySet()));
+    }
+
+    private static final class Registration {
+
+        final String sessionId;
+        final EmailFilter filter;
+
+        Registration(String sessionId, EmailFilter filter) {
+            this.sessionId = sessionId;
+            this.filter = filter;
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.example.smtpmock.websocket;
+
+import java.util.List;
+
+/**
+ * Client message on {@code /ws/emails}: {@code {"type":"subscribe","filters":[...]}} replaces
+ * the session's filters, {@code {"type":"unsubscribe"}} goes back to receiving everything.
+ */
+public class SubscriptionRequest {
+
+    private String type;
+    private List<EmailFilter> filters;
+
+    public String getType() {
+        return type;
+    }
+
+    public void setType(String type) {
+        this.type = type;
+    }
+
+    public List<EmailFilter> getFilters() {
+        return filters;
+    }
+
+    public void setFilters(List<EmailFilter> filters) {
+        this.filters = filters;
+    }
+}
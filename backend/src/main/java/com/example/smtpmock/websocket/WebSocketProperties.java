@@ -0,0 +1,72 @@
+package com.example.smtpmock.websocket;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+@Component
+@ConfigurationProperties(prefix = "smtp.mock.websocket")
+public class WebSocketProperties {
+
+    public enum SlowConsumerPolicy {
+        DROP,
+        DISCONNECT
+    }
+
+    private Duration sendTimeLimit = Duration.ofSeconds(10);
+    private DataSize bufferSizeLimit = DataSize.ofKilobytes(512);
+    private SlowConsumerPolicy slowConsumer = SlowConsumerPolicy.DROP;
+    private int sendThreads = 4;
+    private PayloadFormat defaultPayload = PayloadFormat.FULL;
+    private Duration batchInterval = Duration.ofMillis(250);
+
+    public Duration getSendTimeLimit() {
+        return sendTimeLimit;
+    }
+
+    public void setSendTimeLimit(Duration sendTimeLimit) {
+        this.sendTimeLimit = sendTimeLimit;
+    }
+
+    public DataSize getBufferSizeLimit() {
+        return bufferSizeLimit;
+    }
+
+    public void setBufferSizeLimit(DataSize bufferSizeLimit) {
+        this.bufferSizeLimit = bufferSizeLimit;
+    }
+
+    public SlowConsumerPolicy getSlowConsumer() {
+        return slowConsumer;
+    }
+
+    public void setSlowConsumer(SlowConsumerPolicy slowConsumer) {
+        this.slowConsumer = slowConsumer;
+    }
+
+    public int getSendThreads() {
+        return sendThreads;
+    }
+
+    public void setSendThreads(int sendThreads) {
+        this.sendThreads = sendThreads;
+    }
+
+    public PayloadFormat getDefaultPayload() {
+        return defaultPayload;
+    }
+
+    public void setDefaultPayload(PayloadFormat defaultPayload) {
+        this.defaultPayload = defaultPayload;
+    }
+
+    public Duration getBatchInterval() {
+        return batchInterval;
+    }
+
+    public void setBatchInterval(Duration batchInterval) {
+        this.batchInterval = batchInterval;
+    }
+}
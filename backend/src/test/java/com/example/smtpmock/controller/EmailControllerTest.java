@@ -1,8 +1,13 @@
 package com.example.smtpmock.controller;
 
 import com.example.smtpmock.model.EmailAttachment;
+import com.example.smtpmock.model.EmailPage;
+import com.example.smtpmock.model.EmailSummary;
+import com.example.smtpmock.model.MailboxStats;
 import com.example.smtpmock.model.StoredEmail;
 import com.example.smtpmock.service.EmailStoreService;
+import com.example.smtpmock.service.EmailWaitService;
+import com.example.smtpmock.store.SearchQuery;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
@@ -12,19 +17,26 @@ import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
+import java.nio.charset.StandardCharsets;
 import java.time.Instant;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.function.Consumer;
 
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.BDDMockito.given;
 import static org.mockito.Mockito.verify;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @WebMvcTest(EmailController.class)
@@ -36,6 +48,9 @@ class EmailControllerTest {
     @MockBean
     private EmailStoreService emailStoreService;
 
+    @MockBean
+    private EmailWaitService emailWaitService;
+
     @Test
     void findAllReturnsListOfEmails() throws Exception {
         StoredEmail email = createEmail();
@@ -47,6 +62,29 @@ class EmailControllerTest {
                 .andExpect(jsonPath("$[0].subject").value(email.getSubject()));
     }
 
+    @Test
+    void findPageReturnsSummariesAndNextCursor() throws Exception {
+        StoredEmail email = createEmail();
+        given(emailStoreService.findPage("abc", 1))
+                .willReturn(new EmailPage(List.of(EmailSummary.of(email)), "next"));
+
+        mockMvc.perform(get("/api/emails").param("limit", "1").param("cursor", "abc"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items[0].id").value(email.getId().toString()))
+                .andExpect(jsonPath("$.items[0].attachmentCount").value(1))
+                .andExpect(jsonPath("$.items[0].rawMessage").doesNotExist())
+                .andExpect(jsonPath("$.items[0].body").doesNotExist())
+                .andExpect(jsonPath("$.nextCursor").value("next"));
+    }
+
+    @Test
+    void findPageRejectsMalformedCursor() throws Exception {
+        given(emailStoreService.findPage("bad", 10)).willThrow(new IllegalArgumentException("Malformed cursor"));
+
+        mockMvc.perform(get("/api/emails").param("limit", "10").param("cursor", "bad"))
+                .andExpect(status().isBadRequest());
+    }
+
     @Test
     void findByIdReturnsEmailWhenPresent() throws Exception {
         StoredEmail email = createEmail();
@@ -67,6 +105,73 @@ class EmailControllerTest {
                 .andExpect(status().isNotFound());
     }
 
+    @Test
+    void searchReturnsMatchingEmails() throws Exception {
+        StoredEmail email = createEmail();
+        given(emailStoreService.search(any(SearchQuery.class), eq(50))).willReturn(List.of(email));
+
+        mockMvc.perform(get("/api/emails/search").param("to", "recipient@example.com"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id").value(email.getId().toString()));
+    }
+
+    @Test
+    void searchWithoutCriteriaIsRejected() throws Exception {
+        mockMvc.perform(get("/api/emails/search"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void awaitCompletesWithMatchingEmail() throws Exception {
+        StoredEmail email = createEmail();
+        given(emailWaitService.await(any(SearchQuery.class), any(Consumer.class))).willAnswer(invocation -> {
+            invocation.getArgument(1, Consumer.class).accept(email);
+            return (Runnable) () -> { };
+        });
+
+        MvcResult result = mockMvc.perform(get("/api/emails/await").param("to", "recipient@example.com"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id").value(email.getId().toString()));
+    }
+
+    @Test
+    void awaitWithoutCriteriaIsRejected() throws Exception {
+        MvcResult result = mockMvc.perform(get("/api/emails/await"))
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void awaitWithoutPositiveTimeoutIsRejected() throws Exception {
+        MvcResult result = mockMvc.perform(get("/api/emails/await")
+                        .param("to", "recipient@example.com")
+                        .param("timeout", "0"))
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void statsExposesEvictionCounters() throws Exception {
+        given(emailStoreService.getStats()).willReturn(new MailboxStats(3, 1024, 5, 2, 1));
+
+        mockMvc.perform(get("/api/emails/stats"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.messages").value(3))
+                .andExpect(jsonPath("$.bytes").value(1024))
+                .andExpect(jsonPath("$.evictedByCount").value(5))
+                .andExpect(jsonPath("$.evictedByBytes").value(2))
+                .andExpect(jsonPath("$.evictedByAge").value(1));
+    }
+
     @Test
     void deleteAllClearsStore() throws Exception {
         mockMvc.perform(delete("/api/emails"))
@@ -132,6 +237,40 @@ class EmailControllerTest {
                     .andExpect(content().bytes(attachment.getData()));
         }
 
+        @Test
+        void servesRequestedByteRange() throws Exception {
+            UUID emailId = UUID.randomUUID();
+            UUID attachmentId = UUID.randomUUID();
+            byte[] data = "0123456789".getBytes(StandardCharsets.US_ASCII);
+            EmailAttachment attachment = new EmailAttachment(attachmentId, "digits.txt", "text/plain", data.length, data);
+            given(emailStoreService.findAttachment(emailId, attachmentId)).willReturn(Optional.of(attachment));
+
+            mockMvc.perform(get("/api/emails/{emailId}/attachments/{attachmentId}", emailId, attachmentId)
+                            .header(HttpHeaders.RANGE, "bytes=2-5"))
+                    .andExpect(status().isPartialContent())
+                    .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes 2-5/10"))
+                    .andExpect(header().longValue(HttpHeaders.CONTENT_LENGTH, 4))
+                    .andExpect(content().bytes("2345".getBytes(StandardCharsets.US_ASCII)));
+        }
+
+        @Test
+        void answersNotModifiedWhenETagMatches() throws Exception {
+            UUID emailId = UUID.randomUUID();
+            UUID attachmentId = UUID.randomUUID();
+            EmailAttachment attachment = new EmailAttachment(attachmentId, "file.txt", "text/plain", 4, "test".getBytes());
+            given(emailStoreService.findAttachment(emailId, attachmentId)).willReturn(Optional.of(attachment));
+
+            String eTag = mockMvc.perform(get("/api/emails/{emailId}/attachments/{attachmentId}", emailId, attachmentId))
+                    .andExpect(status().isOk())
+                    .andExpect(header().string(HttpHeaders.ETAG, "\"" + attachment.getContentHash() + "\""))
+                    .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+            mockMvc.perform(get("/api/emails/{emailId}/attachments/{attachmentId}", emailId, attachmentId)
+                            .header(HttpHeaders.IF_NONE_MATCH, eTag))
+                    .andExpect(status().isNotModified())
+                    .andExpect(content().bytes(new byte[0]));
+        }
+
         @Test
         void returnsNotFoundWhenAttachmentMissing() throws Exception {
             UUID emailId = UUID.randomUUID();
@@ -0,0 +1,87 @@
+package com.example.smtpmock.controller;
+
+import com.example.smtpmock.model.StoredEmail;
+import com.example.smtpmock.service.EmailStoreService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.BDDMockito.given;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@WebMvcTest(EmailExportController.class)
+class EmailExportControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private EmailStoreService emailStoreService;
+
+    @Test
+    void exportsJsonArray() throws Exception {
+        StoredEmail first = createEmail("First");
+        StoredEmail second = createEmail("Second");
+        given(emailStoreService.iterator()).willReturn(List.of(first, second).iterator());
+
+        MvcResult result = mockMvc.perform(get("/api/emails/export"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"emails.json\""))
+                .andExpect(jsonPath("$[0].subject").value("First"))
+                .andExpect(jsonPath("$[1].subject").value("Second"));
+    }
+
+    @Test
+    void exportsOneJsonDocumentPerLineForNdjson() throws Exception {
+        given(emailStoreService.iterator()).willReturn(List.of(createEmail("First"), createEmail("Second")).iterator());
+
+        MvcResult result = mockMvc.perform(get("/api/emails/export").param("format", "ndjson"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        String body = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        assertThat(body.split("\n")).hasSize(2);
+        assertThat(body).contains("\"subject\":\"First\"").contains("\"subject\":\"Second\"");
+    }
+
+    @Test
+    void rejectsUnknownFormat() throws Exception {
+        mockMvc.perform(get("/api/emails/export").param("format", "csv"))
+                .andExpect(status().isBadRequest());
+    }
+
+    private StoredEmail createEmail(String subject) {
+        return new StoredEmail(
+                UUID.randomUUID(),
+                "sender@example.com",
+                List.of("recipient@example.com"),
+                List.of(),
+                List.of(),
+                subject,
+                "Body",
+                Instant.parse("2023-01-01T10:15:30Z"),
+                "RAW",
+                List.of()
+        );
+    }
+}
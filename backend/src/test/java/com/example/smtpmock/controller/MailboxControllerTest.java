@@ -0,0 +1,77 @@
+package com.example.smtpmock.controller;
+
+import com.example.smtpmock.model.MailboxStats;
+import com.example.smtpmock.model.StoredEmail;
+import com.example.smtpmock.service.EmailStoreService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.verify;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@WebMvcTest(MailboxController.class)
+class MailboxControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private EmailStoreService emailStoreService;
+
+    @Test
+    void listsMailboxesWithTheirStats() throws Exception {
+        given(emailStoreService.getMailboxStats())
+                .willReturn(Map.of("team-a.test", new MailboxStats(2, 10, 0, 0, 0)));
+
+        mockMvc.perform(get("/api/mailboxes"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$['team-a.test'].messages").value(2));
+    }
+
+    @Test
+    void findAllIsScopedToTheMailbox() throws Exception {
+        StoredEmail email = createEmail();
+        given(emailStoreService.findAll("team-a.test")).willReturn(List.of(email));
+
+        mockMvc.perform(get("/api/mailboxes/team-a.test/emails"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id").value(email.getId().toString()))
+                .andExpect(jsonPath("$[0].mailbox").value("team-a.test"));
+    }
+
+    @Test
+    void statsOfUnknownMailboxIsNotFound() throws Exception {
+        given(emailStoreService.getStats("missing")).willReturn(Optional.empty());
+
+        mockMvc.perform(get("/api/mailboxes/missing/emails/stats"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void clearOnlyEmptiesTheMailbox() throws Exception {
+        mockMvc.perform(delete("/api/mailboxes/team-a.test/emails"))
+                .andExpect(status().isNoContent());
+
+        verify(emailStoreService).clear("team-a.test");
+    }
+
+    private StoredEmail createEmail() {
+        StoredEmail email = new StoredEmail(UUID.randomUUID(), "sender@example.com", List.of("bob@team-a.test"),
+                List.of(), List.of(), "Subject", "Body", Instant.now(), "RAW", List.of());
+        email.setMailbox("team-a.test");
+        return email;
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.smtpmock.export;
+
+import com.example.smtpmock.model.StoredEmail;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MboxWriterTest {
+
+    @Test
+    void writesSeparatorAndQuotesFromLines() throws IOException {
+        StoredEmail email = createEmail("Sender <sender@example.com>",
+                "Subject: Hi\r\n\r\nFrom here\r\n>From there\r\nbye\r\n");
+        StringWriter output = new StringWriter();
+
+        new MboxWriter(output).write(email);
+
+        assertThat(output.toString()).isEqualTo(
+                "From sender@example.com Sun Jan 01 10:15:30 2023\n"
+                        + "Subject: Hi\n"
+                        + "\n"
+                        + ">From here\n"
+                        + ">>From there\n"
+                        + "bye\n"
+                        + "\n");
+    }
+
+    @Test
+    void fallsBackToMailerDaemonWithoutSender() throws IOException {
+        StringWriter output = new StringWriter();
+
+        new MboxWriter(output).write(createEmail(null, "Subject: Hi\r\n"));
+
+        assertThat(output.toString()).startsWith("From MAILER-DAEMON ");
+    }
+
+    private StoredEmail createEmail(String from, String raw) {
+        return new StoredEmail(
+                UUID.randomUUID(),
+                from,
+                List.of("recipient@example.com"),
+                List.of(),
+                List.of(),
+                "Subject",
+                "Body",
+                Instant.parse("2023-01-01T10:15:30Z"),
+                raw,
+                List.of()
+        );
+    }
+}
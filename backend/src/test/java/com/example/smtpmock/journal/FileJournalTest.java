@@ -0,0 +1,251 @@
+package com.example.smtpmock.journal;
+
+import com.example.smtpmock.model.EmailAttachment;
+import com.example.smtpmock.model.StoredEmail;
+import com.example.smtpmock.service.EmailStoreService;
+import com.example.smtpmock.smtp.MockMessageListener;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FileJournalTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void replaysAdditionsAndTombstonesInOrder() throws IOException {
+        Path path = tempDir.resolve("mail.journal");
+        StoredEmail first = createEmail("first");
+        StoredEmail second = createEmail("second");
+        try (FileJournal journal = new FileJournal(path, true)) {
+            journal.replay(new RecordingVisitor());
+            journal.added(first);
+            journal.added(second);
+            journal.removed(first.getId());
+        }
+
+        RecordingVisitor visitor = new RecordingVisitor();
+        try (FileJournal journal = new FileJournal(path, true)) {
+            assertThat(journal.replay(visitor)).isEqualTo(3);
+        }
+
+        assertThat(visitor.events).containsExactly(
+                "added " + first.getId(), "added " + second.getId(), "removed " + first.getId());
+        StoredEmail restored = visitor.added.get(1);
+        assertThat(restored.getSubject()).isEqualTo("second");
+        assertThat(restored.getTo()).containsExactly("recipient@example.com");
+        assertThat(restored.getReceivedAt()).isEqualTo(second.getReceivedAt());
+        assertThat(restored.getRawMessage()).isEqualTo("RAW second");
+        assertThat(restored.isContentLoaded()).isFalse();
+    }
+
+    @Test
+    void lazilyParsedEmailsKeepTheirAttachmentIdsAcrossReplay() throws Exception {
+        Path path = tempDir.resolve("mail.journal");
+        MockMessageListener listener = new MockMessageListener(new EmailStoreService(event -> { }), true);
+        StoredEmail email = listener.parse(("From: sender@example.com\r\n"
+                + "To: recipient@example.com\r\n"
+                + "Subject: With attachment\r\n"
+                + "Content-Type: multipart/mixed; boundary=\"b\"\r\n\r\n"
+                + "--b\r\nContent-Type: text/plain\r\n\r\nBody\r\n"
+                + "--b\r\nContent-Type: application/octet-stream\r\n"
+                + "Content-Disposition: attachment; filename=\"a.bin\"\r\n\r\nDATA\r\n"
+                + "--b--\r\n").getBytes(StandardCharsets.US_ASCII));
+        try (FileJournal journal = new FileJournal(path, true)) {
+            journal.replay(new RecordingVisitor());
+            journal.added(email);
+        }
+        assertThat(email.isContentLoaded()).isFalse();
+
+        RecordingVisitor visitor = new RecordingVisitor();
+        try (FileJournal journal = new FileJournal(path, true)) {
+            journal.replay(visitor);
+        }
+
+        assertThat(visitor.added.get(0).getAttachments())
+                .extracting(EmailAttachment::getId)
+                .containsExactlyElementsOf(email.getAttachments().stream()
+                        .map(EmailAttachment::getId).collect(Collectors.toList()))
+                .hasSize(1);
+    }
+
+    @Test
+    void clearTruncatesTheLog() throws IOException {
+        Path path = tempDir.resolve("mail.journal");
+        StoredEmail survivor = createEmail("survivor");
+        try (FileJournal journal = new FileJournal(path, true)) {
+            journal.replay(new RecordingVisitor());
+            journal.added(createEmail("gone"));
+            journal.cleared();
+            journal.added(survivor);
+        }
+
+        RecordingVisitor visitor = new RecordingVisitor();
+        try (FileJournal journal = new FileJournal(path, true)) {
+            journal.replay(visitor);
+        }
+
+        assertThat(visitor.events).containsExactly("added " + survivor.getId());
+    }
+
+    @Test
+    void compactsTheLogOnceDeadRecordsOutweighLiveOnes() throws IOException {
+        Path path = tempDir.resolve("mail.journal");
+        StoredEmail gone = createEmail("gone");
+        StoredEmail kept = createEmail("kept");
+        StoredEmail later = createEmail("later");
+        long keptSize;
+        try (FileJournal journal = new FileJournal(path, true, 1)) {
+            journal.replay(new RecordingVisitor());
+            journal.added(kept);
+            keptSize = journal.size();
+            journal.added(gone);
+            journal.removed(gone.getId());
+            assertThat(journal.size()).isEqualTo(keptSize);
+            journal.added(later);
+        }
+
+        RecordingVisitor visitor = new RecordingVisitor();
+        try (FileJournal journal = new FileJournal(path, true, 1)) {
+            assertThat(journal.replay(visitor)).isEqualTo(2);
+        }
+        assertThat(visitor.events).containsExactly("added " + kept.getId(), "added " + later.getId());
+        assertThat(visitor.added.get(0).getRawMessage()).isEqualTo("RAW kept");
+    }
+
+    @Test
+    void emailsWithoutRawMessageKeepTheirContent() throws IOException {
+        Path path = tempDir.resolve("mail.journal");
+        StoredEmail email = new StoredEmail(UUID.randomUUID(), "sender@example.com", List.of("recipient@example.com"),
+                List.of(), List.of(), "No raw", "Body", Instant.now(), null,
+                List.of(new EmailAttachment(UUID.randomUUID(), "a.bin", "application/octet-stream", 3,
+                        new byte[] {1, 2, 3})));
+        try (FileJournal journal = new FileJournal(path, true)) {
+            journal.replay(new RecordingVisitor());
+            journal.added(email);
+        }
+
+        RecordingVisitor visitor = new RecordingVisitor();
+        try (FileJournal journal = new FileJournal(path, true)) {
+            journal.replay(visitor);
+        }
+
+        StoredEmail restored = visitor.added.get(0);
+        assertThat(restored.getRaw()).isNull();
+        assertThat(restored.getBody()).isEqualTo("Body");
+        assertThat(restored.getAttachments()).singleElement().satisfies(attachment -> {
+            assertThat(attachment.getId()).isEqualTo(email.getAttachments().get(0).getId());
+            assertThat(attachment.getFileName()).isEqualTo("a.bin");
+            assertThat(attachment.getData()).isEqualTo(new byte[] {1, 2, 3});
+        });
+    }
+
+    @Test
+    void discardsTornTailAndKeepsAppending() throws IOException {
+        Path path = tempDir.resolve("mail.journal");
+        StoredEmail first = createEmail("first");
+        try (FileJournal journal = new FileJournal(path, true)) {
+            journal.replay(new RecordingVisitor());
+            journal.added(first);
+        }
+        long intactSize = Files.size(path);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.APPEND)) {
+            channel.write(ByteBuffer.wrap(new byte[] {0, 0, 0, 64, 1, 2, 3}));
+        }
+
+        StoredEmail second = createEmail("second");
+        try (FileJournal journal = new FileJournal(path, true)) {
+            assertThat(journal.replay(new RecordingVisitor())).isEqualTo(1);
+            assertThat(journal.size()).isEqualTo(intactSize);
+            journal.added(second);
+        }
+
+        RecordingVisitor visitor = new RecordingVisitor();
+        try (FileJournal journal = new FileJournal(path, true)) {
+            journal.replay(visitor);
+        }
+        assertThat(visitor.events).containsExactly("added " + first.getId(), "added " + second.getId());
+    }
+
+    @Test
+    void ignoresMutationsMadeDuringReplay() throws IOException {
+        Path path = tempDir.resolve("mail.journal");
+        StoredEmail email = createEmail("first");
+        try (FileJournal journal = new FileJournal(path, true)) {
+            journal.replay(new RecordingVisitor());
+            journal.added(email);
+        }
+
+        try (FileJournal journal = new FileJournal(path, true)) {
+            journal.replay(new RecordingVisitor() {
+                @Override
+                public void added(StoredEmail replayed) {
+                    journal.removed(replayed.getId());
+                }
+            });
+        }
+
+        RecordingVisitor visitor = new RecordingVisitor();
+        try (FileJournal journal = new FileJournal(path, true)) {
+            journal.replay(visitor);
+        }
+        assertThat(visitor.events).containsExactly("added " + email.getId());
+    }
+
+    private StoredEmail createEmail(String subject) {
+        return new StoredEmail(
+                UUID.randomUUID(),
+                "sender@example.com",
+                List.of("recipient@example.com"),
+                List.of(),
+                List.of(),
+                subject,
+                "Body",
+                Instant.now(),
+                "RAW " + subject,
+                List.of()
+        );
+    }
+
+    private static class RecordingVisitor implements JournalVisitor {
+
+        final List<String> events = new ArrayList<>();
+        final List<StoredEmail> added = new ArrayList<>();
+
+        @Override
+        public void added(StoredEmail email) {
+            events.add("added " + email.getId());
+            added.add(email);
+        }
+
+        @Override
+        public void removed(UUID id) {
+            events.add("removed " + id);
+        }
+
+        @Override
+        public void cleared() {
+            events.add("cleared");
+        }
+
+        @Override
+        public void mailboxCleared(String mailbox) {
+            events.add("cleared " + mailbox);
+        }
+    }
+}
@@ -2,22 +2,40 @@ package com.example.smtpmock.service;
 
 import com.example.smtpmock.event.EmailAddedEvent;
 import com.example.smtpmock.model.EmailAttachment;
+import com.example.smtpmock.model.EmailPage;
+import com.example.smtpmock.model.EmailSummary;
+import com.example.smtpmock.model.MailboxStats;
 import com.example.smtpmock.model.StoredEmail;
+import com.example.smtpmock.store.EvictionPolicy;
+import com.example.smtpmock.store.PayloadStorage;
+import com.example.smtpmock.store.RetentionPolicy;
+import com.example.smtpmock.store.SearchQuery;
+import com.example.smtpmock.store.StoreJournal;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import org.springframework.context.ApplicationEventPublisher;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 
 class EmailStoreServiceTest {
 
@@ -107,6 +125,203 @@ class EmailStoreServiceTest {
         assertThat(service.findAll()).isEmpty();
     }
 
+    @Test
+    void searchFindsIndexedEmailsUntilRemoved() {
+        StoredEmail email = createEmail();
+        service.addEmail(email);
+        SearchQuery query = new SearchQuery("recipient@example.com", null, "subject", null);
+
+        assertThat(service.search(query, 10)).containsExactly(email);
+
+        service.remove(email.getId());
+
+        assertThat(service.search(query, 10)).isEmpty();
+    }
+
+    @Test
+    void searchReturnsTheNewestMatchesUpToTheLimit() {
+        Instant now = Instant.now();
+        StoredEmail oldest = createEmail(EmailStoreService.DEFAULT_MAILBOX, now.minusSeconds(30));
+        StoredEmail middle = createEmail(EmailStoreService.DEFAULT_MAILBOX, now.minusSeconds(20));
+        StoredEmail newest = createEmail(EmailStoreService.DEFAULT_MAILBOX, now.minusSeconds(10));
+        service.addEmail(middle);
+        service.addEmail(newest);
+        service.addEmail(oldest);
+
+        assertThat(service.search(new SearchQuery("recipient@example.com", null, null, null), 2))
+                .containsExactly(newest, middle);
+    }
+
+    @Test
+    void searchForgetsThePostingsOfAReplacedEmail() {
+        StoredEmail original = createEmail();
+        StoredEmail replacement = new StoredEmail(original.getId(), "other@example.com",
+                List.of("someone-else@example.com"), List.of(), List.of(), "Replacement", "Body",
+                Instant.now(), "RAW", List.of());
+        service.addEmail(original);
+        service.addEmail(replacement);
+
+        assertThat(service.search(new SearchQuery("recipient@example.com", null, null, null), 10)).isEmpty();
+        assertThat(service.search(new SearchQuery("someone-else@example.com", null, null, null), 10))
+                .containsExactly(replacement);
+    }
+
+    @Test
+    void addEmailEvictsWhenRetentionLimitReached() {
+        service = new EmailStoreService(eventPublisher,
+                new RetentionPolicy(1, 0, Duration.ZERO, EvictionPolicy.OLDEST_FIRST, 32));
+        StoredEmail first = createEmail();
+        StoredEmail second = createEmail();
+
+        service.addEmail(first);
+        service.addEmail(second);
+
+        assertThat(service.findAll()).containsExactly(second);
+        assertThat(service.getStats().getMessages()).isEqualTo(1);
+        assertThat(service.getStats().getEvictedByCount()).isEqualTo(1);
+    }
+
+    @Test
+    void journalsAdditionsEvictionsAndClears() {
+        StoreJournal journal = mock(StoreJournal.class);
+        service = new EmailStoreService(eventPublisher,
+                new RetentionPolicy(1, 0, Duration.ZERO, EvictionPolicy.OLDEST_FIRST, 32),
+                PayloadStorage.HEAP, journal);
+        StoredEmail first = createEmail();
+        StoredEmail second = createEmail();
+
+        service.addEmail(first);
+        service.addEmail(second);
+        service.clear();
+
+        InOrder order = inOrder(journal);
+        order.verify(journal).added(first);
+        order.verify(journal).added(second);
+        order.verify(journal).removed(first.getId());
+        order.verify(journal).cleared();
+    }
+
+    @Test
+    void journalsARemovalWhenPayloadStorageFails() {
+        StoreJournal journal = mock(StoreJournal.class);
+        PayloadStorage payloadStorage = mock(PayloadStorage.class);
+        doThrow(new UncheckedIOException(new IOException("disk full"))).when(payloadStorage).store(any());
+        service = new EmailStoreService(eventPublisher, RetentionPolicy.UNBOUNDED, payloadStorage, journal);
+        StoredEmail email = createEmail();
+
+        assertThatThrownBy(() -> service.addEmail(email)).isInstanceOf(UncheckedIOException.class);
+
+        InOrder order = inOrder(journal);
+        order.verify(journal).added(email);
+        order.verify(journal).removed(email.getId());
+        assertThat(service.findById(email.getId())).isEmpty();
+        verifyNoInteractions(eventPublisher);
+    }
+
+    @Test
+    void restoreDoesNotPublishOrJournal() {
+        StoreJournal journal = mock(StoreJournal.class);
+        service = new EmailStoreService(eventPublisher, RetentionPolicy.UNBOUNDED, PayloadStorage.HEAP, journal);
+        StoredEmail email = createEmail();
+
+        service.restore(email);
+
+        assertThat(service.findById(email.getId())).contains(email);
+        verifyNoInteractions(eventPublisher, journal);
+    }
+
+    @Test
+    void storingAnExistingIdReleasesTheReplacedPayload() {
+        PayloadStorage payloadStorage = mock(PayloadStorage.class);
+        service = new EmailStoreService(eventPublisher, RetentionPolicy.UNBOUNDED, payloadStorage);
+        StoredEmail first = createEmail();
+        StoredEmail replacement = new StoredEmail(first.getId(), "other@example.com",
+                List.of("recipient@example.com"), List.of(), List.of(), "Replacement", "Body",
+                Instant.now(), "RAW", List.of());
+
+        service.addEmail(first);
+        service.addEmail(replacement);
+
+        verify(payloadStorage).release(first);
+        verify(payloadStorage, never()).release(replacement);
+        assertThat(service.findById(first.getId())).contains(replacement);
+    }
+
+    @Test
+    void mailboxesAreClearedAndLimitedIndependently() {
+        service = new EmailStoreService(eventPublisher,
+                new RetentionPolicy(1, 0, Duration.ZERO, EvictionPolicy.OLDEST_FIRST, 32));
+        StoredEmail teamA = createEmail("team-a.test", Instant.now().minusSeconds(20));
+        StoredEmail teamB = createEmail("team-b.test", Instant.now().minusSeconds(10));
+        StoredEmail newerTeamB = createEmail("team-b.test", Instant.now());
+
+        service.addEmail(teamA);
+        service.addEmail(teamB);
+        service.addEmail(newerTeamB);
+
+        assertThat(service.findAll()).containsExactly(newerTeamB, teamA);
+        assertThat(service.findAll("team-a.test")).containsExactly(teamA);
+        assertThat(service.getStats("team-b.test")).get()
+                .extracting(MailboxStats::getEvictedByCount).isEqualTo(1L);
+
+        service.clear("team-b.test");
+
+        assertThat(service.findAll()).containsExactly(teamA);
+        assertThat(service.findById(teamA.getId())).contains(teamA);
+        assertThat(service.findById("team-b.test", teamA.getId())).isEmpty();
+        assertThat(service.getMailboxStats()).containsOnlyKeys("team-a.test", "team-b.test");
+    }
+
+    @Test
+    void pagesAcrossMailboxesNewestFirst() {
+        Instant now = Instant.now();
+        StoredEmail oldest = createEmail("a", now.minusSeconds(30));
+        StoredEmail middle = createEmail("b", now.minusSeconds(20));
+        StoredEmail newest = createEmail("a", now.minusSeconds(10));
+        service.addEmail(oldest);
+        service.addEmail(middle);
+        service.addEmail(newest);
+
+        EmailPage first = service.findPage(null, 2);
+        EmailPage second = service.findPage(first.getNextCursor(), 2);
+
+        assertThat(first.getItems()).extracting(EmailSummary::getId).containsExactly(newest.getId(), middle.getId());
+        assertThat(second.getItems()).extracting(EmailSummary::getId).containsExactly(oldest.getId());
+        assertThat(second.getNextCursor()).isNull();
+    }
+
+    @Test
+    void pagesThroughTimestampTiesAcrossMailboxesWithoutRepeating() {
+        Instant now = Instant.now();
+        StoredEmail a1 = createEmail("a", now);
+        StoredEmail a2 = createEmail("a", now);
+        StoredEmail b1 = createEmail("b", now);
+        service.addEmail(a1);
+        service.addEmail(b1);
+        service.addEmail(a2);
+
+        List<UUID> seen = new ArrayList<>();
+        String cursor = null;
+        for (int page = 0; page < 5; page++) {
+            EmailPage result = service.findPage(cursor, 1);
+            result.getItems().forEach(item -> seen.add(item.getId()));
+            cursor = result.getNextCursor();
+            if (cursor == null) {
+                break;
+            }
+        }
+
+        assertThat(seen).containsExactly(a2.getId(), a1.getId(), b1.getId());
+        assertThat(cursor).isNull();
+    }
+
+    private StoredEmail createEmail(String mailbox, Instant receivedAt) {
+        StoredEmail email = createEmail();
+        email.setMailbox(mailbox);
+        email.setReceivedAt(receivedAt);
+        return email;
+    }
+
     private StoredEmail createEmail() {
         return createEmail(List.of());
     }
@@ -0,0 +1,83 @@
+package com.example.smtpmock.service;
+
+import com.example.smtpmock.event.EmailAddedEvent;
+import com.example.smtpmock.model.StoredEmail;
+import com.example.smtpmock.store.SearchQuery;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+class EmailWaitServiceTest {
+
+    private EmailStoreService emailStoreService;
+    private EmailWaitService waitService;
+    private final List<StoredEmail> received = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        emailStoreService = new EmailStoreService(mock(ApplicationEventPublisher.class));
+        waitService = new EmailWaitService(emailStoreService);
+    }
+
+    @Test
+    void completesImmediatelyWhenMatchAlreadyStored() {
+        StoredEmail email = createEmail("alice@example.com", "Welcome");
+        emailStoreService.addEmail(email);
+
+        waitService.await(new SearchQuery("alice@example.com", null, null, null), received::add);
+
+        assertThat(received).containsExactly(email);
+        assertThat(waitService.pendingCount()).isZero();
+    }
+
+    @Test
+    void completesOnceWhenMatchingEmailArrives() {
+        waitService.await(new SearchQuery("alice@example.com", null, "welcome", null), received::add);
+        StoredEmail other = createEmail("bob@example.com", "Welcome");
+        StoredEmail wrongSubject = createEmail("alice@example.com", "Reset");
+        StoredEmail match = createEmail("Alice <alice@example.com>", "Welcome aboard");
+
+        waitService.onEmailAdded(new EmailAddedEvent(other));
+        waitService.onEmailAdded(new EmailAddedEvent(wrongSubject));
+        waitService.onEmailAdded(new EmailAddedEvent(match));
+        waitService.onEmailAdded(new EmailAddedEvent(match));
+
+        assertThat(received).containsExactly(match);
+        assertThat(waitService.pendingCount()).isZero();
+    }
+
+    @Test
+    void cancelRemovesPendingWaiter() {
+        Runnable cancel = waitService.await(new SearchQuery(null, null, "welcome", null), received::add);
+        assertThat(waitService.pendingCount()).isEqualTo(1);
+
+        cancel.run();
+        waitService.onEmailAdded(new EmailAddedEvent(createEmail("alice@example.com", "Welcome")));
+
+        assertThat(received).isEmpty();
+        assertThat(waitService.pendingCount()).isZero();
+    }
+
+    private StoredEmail createEmail(String to, String subject) {
+        return new StoredEmail(
+                UUID.randomUUID(),
+                "sender@example.com",
+                List.of(to),
+                List.of(),
+                List.of(),
+                subject,
+                "Body",
+                Instant.now(),
+                "RAW",
+                List.of()
+        );
+    }
+}
@@ -0,0 +1,133 @@
+package com.example.smtpmock.smtp;
+
+import com.example.smtpmock.event.EmailAddedEvent;
+import com.example.smtpmock.model.StoredEmail;
+import com.example.smtpmock.service.EmailStoreService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.isA;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class IngestPipelineTest {
+
+    private static final byte[] RAW = "Subject: Hi\r\n\r\nBody\r\n".getBytes(StandardCharsets.US_ASCII);
+
+    private final ApplicationEventPublisher eventPublisher = mock(ApplicationEventPublisher.class);
+    private final EmailStoreService emailStoreService = new EmailStoreService(mock(ApplicationEventPublisher.class));
+    private final MockMessageListener messageListener = mock(MockMessageListener.class);
+    private IngestPipeline pipeline;
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        if (pipeline != null) {
+            pipeline.destroy();
+        }
+    }
+
+    @Test
+    void parsesOnceForAllRecipientsAndNotifiesAsynchronously() throws Exception {
+        List<String> recipients = List.of("a@example.com", "b@example.com");
+        when(messageListener.receive(anyInt(), any(), any())).thenAnswer(invocation -> List.of(createEmail()));
+        pipeline = new IngestPipeline(messageListener, emailStoreService, eventPublisher,
+                properties(IngestProperties.Backpressure.BLOCK, 10));
+
+        assertThat(pipeline.submit(2525, "sender@example.com", recipients, RAW)).isTrue();
+
+        verify(eventPublisher, timeout(5000)).publishEvent(isA(EmailAddedEvent.class));
+        verify(messageListener).receive(2525, recipients, RAW);
+        assertThat(emailStoreService.findAll()).hasSize(1);
+        assertThat(pipeline.getStats().getAccepted()).isEqualTo(1);
+        assertThat(pipeline.getStats().getStored()).isEqualTo(1);
+    }
+
+    @Test
+    void rejectsWhenQueueIsFull() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(messageListener.receive(anyInt(), any(), any())).thenAnswer(invocation -> {
+            started.countDown();
+            release.await();
+            return List.of(createEmail());
+        });
+        pipeline = new IngestPipeline(messageListener, emailStoreService, eventPublisher,
+                properties(IngestProperties.Backpressure.REJECT, 1));
+
+        assertThat(pipeline.submit(2525, "sender@example.com", List.of("a@example.com"), RAW)).isTrue();
+        started.await();
+        assertThat(pipeline.submit(2525, "sender@example.com", List.of("a@example.com"), RAW)).isTrue();
+        assertThat(pipeline.submit(2525, "sender@example.com", List.of("a@example.com"), RAW)).isFalse();
+
+        assertThat(pipeline.getStats().getParseQueueDepth()).isEqualTo(1);
+        assertThat(pipeline.getStats().getRejected()).isEqualTo(1);
+        release.countDown();
+        verify(eventPublisher, timeout(5000).times(2)).publishEvent(isA(EmailAddedEvent.class));
+    }
+
+    @Test
+    void notifiesInArrivalOrderWhenWorkersFinishOutOfOrder() throws Exception {
+        StoredEmail first = createEmail();
+        StoredEmail second = createEmail();
+        CountDownLatch secondStored = new CountDownLatch(1);
+        byte[] firstRaw = "Subject: first\r\n\r\n".getBytes(StandardCharsets.US_ASCII);
+        when(messageListener.receive(anyInt(), any(), any())).thenAnswer(invocation -> {
+            if (invocation.getArgument(2) == firstRaw) {
+                secondStored.await();
+                return List.of(first);
+            }
+            return List.of(second);
+        });
+        IngestProperties properties = properties(IngestProperties.Backpressure.BLOCK, 10);
+        properties.setWorkers(2);
+        pipeline = new IngestPipeline(messageListener, emailStoreService, eventPublisher, properties);
+
+        pipeline.submit(2525, "sender@example.com", List.of("a@example.com"), firstRaw);
+        pipeline.submit(2525, "sender@example.com", List.of("a@example.com"), RAW);
+        while (emailStoreService.findById(second.getId()).isEmpty()) {
+            Thread.sleep(10);
+        }
+        secondStored.countDown();
+
+        ArgumentCaptor<EmailAddedEvent> events = ArgumentCaptor.forClass(EmailAddedEvent.class);
+        verify(eventPublisher, timeout(5000).times(2)).publishEvent(events.capture());
+        assertThat(events.getAllValues()).extracting(EmailAddedEvent::getEmail).containsExactly(first, second);
+    }
+
+    @Test
+    void syncModeStartsNoWorkers() {
+        IngestProperties properties = new IngestProperties();
+        pipeline = new IngestPipeline(messageListener, emailStoreService, eventPublisher, properties);
+
+        assertThat(pipeline.isAsync()).isFalse();
+        verify(eventPublisher, times(0)).publishEvent(isA(EmailAddedEvent.class));
+    }
+
+    private IngestProperties properties(IngestProperties.Backpressure backpressure, int capacity) {
+        IngestProperties properties = new IngestProperties();
+        properties.setMode(IngestProperties.Mode.ASYNC);
+        properties.setWorkers(1);
+        properties.setBackpressure(backpressure);
+        properties.setQueueCapacity(capacity);
+        return properties;
+    }
+
+    private StoredEmail createEmail() {
+        return new StoredEmail(UUID.randomUUID(), "sender@example.com", List.of("a@example.com"), List.of(),
+                List.of(), "Hi", "Body", Instant.now(), "RAW", List.of());
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.smtpmock.smtp;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+import org.subethamail.smtp.TooMuchDataException;
+
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.InputStream;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class MessageDataReaderTest {
+
+    @Test
+    void readsStreamsOfUnknownLengthBeyondThePooledBuffer() throws Exception {
+        MessageDataReader reader = reader(DataSize.ofMegabytes(1));
+        byte[] message = randomBytes(300_000);
+
+        assertThat(reader.read(withoutLength(message))).isEqualTo(message);
+        assertThat(reader.read(new ByteArrayInputStream(message))).isEqualTo(message);
+    }
+
+    @Test
+    void acceptsMessagesExactlyAtTheLimit() throws Exception {
+        MessageDataReader reader = reader(DataSize.ofBytes(1000));
+        byte[] message = randomBytes(1000);
+
+        assertThat(reader.read(withoutLength(message))).isEqualTo(message);
+    }
+
+    @Test
+    void rejectsMessagesOverTheLimit() {
+        MessageDataReader reader = reader(DataSize.ofBytes(1000));
+
+        assertThatThrownBy(() -> reader.read(withoutLength(randomBytes(1001))))
+                .isInstanceOf(TooMuchDataException.class);
+        assertThatThrownBy(() -> reader.read(new ByteArrayInputStream(randomBytes(200_000))))
+                .isInstanceOf(TooMuchDataException.class);
+    }
+
+    @Test
+    void appliesTheListenersOwnLimitInsteadOfTheDefault() throws Exception {
+        MessageDataReader reader = reader(DataSize.ofBytes(1000));
+        byte[] message = randomBytes(5000);
+
+        assertThat(reader.read(withoutLength(message), 5000)).isEqualTo(message);
+        assertThatThrownBy(() -> reader.read(withoutLength(message), 4999))
+                .isInstanceOf(TooMuchDataException.class)
+                .hasMessageContaining("4999");
+    }
+
+    private MessageDataReader reader(DataSize maxMessageSize) {
+        IngestProperties properties = new IngestProperties();
+        properties.setMaxMessageSize(maxMessageSize);
+        return new MessageDataReader(properties);
+    }
+
+    private byte[] randomBytes(int length) {
+        byte[] bytes = new byte[length];
+        new Random(length).nextBytes(bytes);
+        return bytes;
+    }
+
+    private InputStream withoutLength(byte[] bytes) {
+        return new FilterInputStream(new ByteArrayInputStream(bytes)) {
+            @Override
+            public int available() {
+                return 0;
+            }
+        };
+    }
+}
@@ -0,0 +1,147 @@
+package com.example.smtpmock.smtp;
+
+import com.example.smtpmock.metrics.CaptureMetrics;
+import com.example.smtpmock.model.StoredEmail;
+import com.example.smtpmock.service.EmailStoreService;
+import com.example.smtpmock.service.MailboxProperties;
+import com.example.smtpmock.service.MailboxRouter;
+import com.example.smtpmock.store.SearchQuery;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+class MockMessageListenerTest {
+
+    private static final String MULTIPART_MESSAGE = "From: Sender <sender@example.com>\r\n"
+            + "To: alice@example.com, bob@example.com\r\n"
+            + "Cc: carol@example.com\r\n"
+            + "Subject: =?UTF-8?B?SMOpbGxv?=\r\n"
+            + "MIME-Version: 1.0\r\n"
+            + "Content-Type: multipart/mixed; boundary=\"b1\"\r\n"
+            + "\r\n"
+            + "--b1\r\n"
+            + "Content-Type: text/plain; charset=UTF-8\r\n"
+            + "\r\n"
+            + "Hello body\r\n"
+            + "--b1\r\n"
+            + "Content-Type: application/octet-stream\r\n"
+            + "Content-Disposition: attachment; filename=\"data.bin\"\r\n"
+            + "Content-Transfer-Encoding: base64\r\n"
+            + "\r\n"
+            + "AQID\r\n"
+            + "--b1--\r\n";
+
+    @Test
+    void eagerIngestParsesHeadersBodyAndAttachments() throws Exception {
+        EmailStoreService store = new EmailStoreService(mock(ApplicationEventPublisher.class));
+        MockMessageListener listener = new MockMessageListener(store, false);
+
+        listener.deliver("sender@example.com", "alice@example.com", stream(MULTIPART_MESSAGE));
+
+        StoredEmail email = store.findAll().get(0);
+        assertThat(email.isContentLoaded()).isTrue();
+        assertThat(email.getFrom()).isEqualTo("Sender <sender@example.com>");
+        assertThat(email.getTo()).containsExactly("alice@example.com", "bob@example.com");
+        assertThat(email.getCc()).containsExactly("carol@example.com");
+        assertThat(email.getSubject()).isEqualTo("Héllo");
+        assertThat(email.getBody()).isEqualTo("Hello body");
+        assertThat(email.getRawMessage()).isEqualTo(MULTIPART_MESSAGE);
+        assertThat(email.getRawSize()).isEqualTo(MULTIPART_MESSAGE.getBytes(StandardCharsets.UTF_8).length);
+        assertThat(email.getAttachments()).singleElement()
+                .satisfies(attachment -> {
+                    assertThat(attachment.getFileName()).isEqualTo("data.bin");
+                    assertThat(attachment.getSize()).isEqualTo(3);
+                    assertThat(attachment.getData()).isEqualTo(new byte[] {1, 2, 3});
+                });
+    }
+
+    @Test
+    void lazyIngestDefersBodyAndAttachmentParsing() throws Exception {
+        EmailStoreService store = new EmailStoreService(mock(ApplicationEventPublisher.class));
+        MockMessageListener listener = new MockMessageListener(store, true);
+
+        listener.deliver("sender@example.com", "alice@example.com", stream(MULTIPART_MESSAGE));
+
+        StoredEmail email = store.findAll().get(0);
+        assertThat(email.isContentLoaded()).isFalse();
+        assertThat(email.getFrom()).isEqualTo("Sender <sender@example.com>");
+        assertThat(email.getTo()).containsExactly("alice@example.com", "bob@example.com");
+        assertThat(email.getSubject()).isEqualTo("Héllo");
+
+        assertThat(email.getBody()).isEqualTo("Hello body");
+        assertThat(email.getAttachments()).hasSize(1);
+        assertThat(email.isContentLoaded()).isTrue();
+        assertThat(email.getAttachments().get(0).getId()).isEqualTo(email.getAttachments().get(0).getId());
+    }
+
+    @Test
+    void storesOneEmailPerEnvelopeAndIndexesBccRecipients() {
+        EmailStoreService store = new EmailStoreService(mock(ApplicationEventPublisher.class));
+        MockMessageListener listener = new MockMessageListener(store, false);
+
+        List<StoredEmail> emails = listener.store(2525, List.of("alice@example.com", "hidden@example.com"),
+                MULTIPART_MESSAGE.getBytes(StandardCharsets.UTF_8));
+
+        assertThat(emails).hasSize(1);
+        assertThat(store.findAll()).hasSize(1);
+        assertThat(emails.get(0).getEnvelopeRecipients()).containsExactly("alice@example.com", "hidden@example.com");
+        assertThat(store.search(new SearchQuery("hidden@example.com", null, null, null), 10))
+                .extracting(StoredEmail::getId)
+                .containsExactly(emails.get(0).getId());
+    }
+
+    @Test
+    void parsesOnceAndCopiesPerRecipientMailbox() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        MailboxProperties mailboxes = new MailboxProperties();
+        mailboxes.setPartitionBy(MailboxProperties.Partitioning.RECIPIENT);
+        EmailStoreService store = new EmailStoreService(mock(ApplicationEventPublisher.class));
+        MockMessageListener listener = new MockMessageListener(store, new MailboxRouter(mailboxes),
+                new MessageDataReader(new IngestProperties()), new CaptureMetrics(registry), 2525, false);
+
+        List<StoredEmail> emails = listener.store(2525, List.of("alice@example.com", "bob@example.com"),
+                MULTIPART_MESSAGE.getBytes(StandardCharsets.UTF_8));
+
+        assertThat(registry.get("smtpmock.parse").timer().count()).isEqualTo(1);
+        assertThat(emails).hasSize(2);
+        StoredEmail alice = emails.get(0);
+        StoredEmail bob = emails.get(1);
+        assertThat(bob.getId()).isNotEqualTo(alice.getId());
+        assertThat(bob.getMailbox()).isNotEqualTo(alice.getMailbox());
+        assertThat(bob.getEnvelopeRecipients()).containsExactly("bob@example.com");
+        assertThat(bob.getReceivedAt()).isEqualTo(alice.getReceivedAt());
+        assertThat(bob.getBody()).isSameAs(alice.getBody());
+        assertThat(bob.getRaw()).isNotSameAs(alice.getRaw());
+        assertThat(bob.getAttachments()).singleElement().satisfies(attachment -> {
+            assertThat(attachment.getId()).isNotEqualTo(alice.getAttachments().get(0).getId());
+            assertThat(attachment.getData()).isEqualTo(new byte[] {1, 2, 3});
+        });
+        assertThat(store.findAttachment(bob.getId(), bob.getAttachments().get(0).getId())).isPresent();
+    }
+
+    @Test
+    void recordsDataSizeAndParseTime() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        EmailStoreService store = new EmailStoreService(mock(ApplicationEventPublisher.class));
+        MockMessageListener listener = new MockMessageListener(store, new MailboxRouter(new MailboxProperties()),
+                new MessageDataReader(new IngestProperties()), new CaptureMetrics(registry), 2525, false);
+        byte[] raw = MULTIPART_MESSAGE.getBytes(StandardCharsets.UTF_8);
+
+        listener.store(2525, List.of("alice@example.com"), raw);
+
+        assertThat(registry.get("smtpmock.smtp.data.size").summary().count()).isEqualTo(1);
+        assertThat(registry.get("smtpmock.smtp.data.size").summary().totalAmount()).isEqualTo(raw.length);
+        assertThat(registry.get("smtpmock.parse").timer().count()).isEqualTo(1);
+    }
+
+    private ByteArrayInputStream stream(String message) {
+        return new ByteArrayInputStream(message.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,224 @@
+package com.example.smtpmock.smtp;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.subethamail.smtp.MessageContext;
+import org.subethamail.smtp.MessageHandler;
+import org.subethamail.smtp.MessageHandlerFactory;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class NioSmtpServerTest {
+
+    private final List<String> delivered = new CopyOnWriteArrayList<>();
+    private final List<MessageContext> contexts = new CopyOnWriteArrayList<>();
+    private final ExecutorService workers = Executors.newFixedThreadPool(2);
+    private NioSmtpServer server;
+    private int port;
+
+    @AfterEach
+    void tearDown() {
+        if (server != null) {
+            server.stop();
+        }
+        workers.shutdown();
+    }
+
+    @Test
+    void answersPipelinedCommandsInOrderAndUnstuffsDots() throws Exception {
+        start(0);
+
+        List<String> replies = converse("EHLO test\r\n"
+                + "MAIL FROM:<sender@example.com>\r\nRCPT TO:<alice@example.com>\r\nRCPT TO:<bob@example.com>\r\nDATA\r\n"
+                + "Subject: Hi\r\n\r\n..leading dot\r\n.\r\n"
+                + "QUIT\r\n");
+
+        assertThat(replies).containsExactly("220", "250", "250", "250", "250", "354", "250", "221");
+        assertThat(delivered).containsExactly(
+                "sender@example.com [alice@example.com, bob@example.com] Subject: Hi\r\n\r\n.leading dot\r\n");
+        assertThat(server.totalConnections()).isEqualTo(1);
+    }
+
+    @Test
+    void rejectsMessagesOverTheSizeLimit() throws Exception {
+        start(64);
+
+        List<String> replies = converse("HELO test\r\n"
+                + "MAIL FROM:<sender@example.com> SIZE=1000\r\n"
+                + "MAIL FROM:<sender@example.com>\r\nRCPT TO:<alice@example.com>\r\nDATA\r\n"
+                + "x".repeat(100) + "\r\n.\r\n"
+                + "NOOP\r\nQUIT\r\n");
+
+        assertThat(replies).containsExactly("220", "250", "552", "250", "250", "354", "552", "250", "221");
+        assertThat(delivered).isEmpty();
+    }
+
+    @Test
+    void heloResetsAnOpenTransactionAndHandlersSeeTheSession() throws Exception {
+        start(0);
+
+        List<String> replies = converse("EHLO first\r\n"
+                + "MAIL FROM:<sender@example.com>\r\nRCPT TO:<alice@example.com>\r\n"
+                + "HELO second\r\nRCPT TO:<bob@example.com>\r\n"
+                + "MAIL FROM:<sender@example.com>\r\nRCPT TO:<carol@example.com>\r\nDATA\r\n"
+                + "Subject: Hi\r\n\r\n.\r\n"
+                + "QUIT\r\n");
+
+        assertThat(replies).containsExactly("220", "250", "250", "250", "250", "503", "250", "250", "354", "250", "221");
+        assertThat(delivered).containsExactly("sender@example.com [carol@example.com] Subject: Hi\r\n\r\n");
+        assertThat(contexts).hasSize(2);
+        assertThat(contexts.get(1).getHelo()).isEqualTo("second");
+        assertThat(contexts.get(1).getRemoteAddress()).isInstanceOf(InetSocketAddress.class);
+    }
+
+    @Test
+    void readsBdatChunksVerbatimWithoutDotUnstuffing() throws Exception {
+        start(0);
+        String first = "Subject: Hi\r\n\r\n";
+        String last = "..not stuffed\r\n.\r\n";
+
+        List<String> replies = transcript("EHLO test\r\n"
+                + "MAIL FROM:<sender@example.com>\r\nRCPT TO:<alice@example.com>\r\n"
+                + "BDAT " + first.length() + "\r\n" + first
+                + "BDAT " + last.length() + " LAST\r\n" + last
+                + "QUIT\r\n");
+
+        assertThat(replies).contains("250-PIPELINING", "250-CHUNKING");
+        assertThat(codes(replies)).containsExactly("220", "250", "250", "250", "250", "250", "221");
+        assertThat(replies).contains("250 " + first.length() + " octets received");
+        assertThat(delivered).containsExactly("sender@example.com [alice@example.com] " + first + last);
+    }
+
+    @Test
+    void consumesRejectedChunksAndEnforcesTheSizeLimit() throws Exception {
+        start(64);
+
+        List<String> replies = converse("EHLO test\r\n"
+                + "BDAT 6 LAST\r\nNOOP\r\n"
+                + "MAIL FROM:<sender@example.com>\r\nRCPT TO:<alice@example.com>\r\n"
+                + "BDAT 100 LAST\r\n" + "x".repeat(100)
+                + "MAIL FROM:<sender@example.com>\r\nRCPT TO:<alice@example.com>\r\n"
+                + "BDAT 4\r\nabcd" + "DATA\r\n" + "BDAT 0 LAST\r\n"
+                + "QUIT\r\n");
+
+        assertThat(replies).containsExactly("220", "250", "503", "250", "250", "552", "250", "250", "250", "503",
+                "250", "221");
+        assertThat(delivered).containsExactly("sender@example.com [alice@example.com] abcd");
+    }
+
+    @Test
+    void rejectsChunksDeclaredBeyondTheSizeLimitWithoutBufferingThem() throws Exception {
+        start(64);
+
+        List<String> replies = converse("EHLO test\r\n"
+                + "MAIL FROM:<sender@example.com>\r\nRCPT TO:<alice@example.com>\r\n"
+                + "BDAT 10\r\n" + "x".repeat(10)
+                + "BDAT 100 LAST\r\n" + "y".repeat(100)
+                + "BDAT 1 LAST\r\nz"
+                + "QUIT\r\n");
+
+        assertThat(replies).containsExactly("220", "250", "250", "250", "250", "552", "503", "221");
+        assertThat(delivered).isEmpty();
+    }
+
+    @Test
+    void servesManyConcurrentSessionsFromOneLoop() throws Exception {
+        start(0);
+        List<Socket> sockets = new ArrayList<>();
+        try {
+            for (int i = 0; i < 200; i++) {
+                Socket socket = new Socket("127.0.0.1", port);
+                sockets.add(socket);
+                assertThat(reader(socket).readLine()).startsWith("220");
+            }
+            assertThat(server.activeConnections()).isEqualTo(200);
+        } finally {
+            for (Socket socket : sockets) {
+                socket.close();
+            }
+        }
+    }
+
+    private void start(long maxMessageSize) throws IOException {
+        try (ServerSocket probe = new ServerSocket(0)) {
+            port = probe.getLocalPort();
+        }
+        MessageHandlerFactory factory = context -> {
+            contexts.add(context);
+            return new RecordingHandler();
+        };
+        server = new NioSmtpServer("test", new InetSocketAddress("127.0.0.1", port), factory, workers,
+                1000, 60_000, maxMessageSize);
+        server.start();
+    }
+
+    private List<String> converse(String input) throws IOException {
+        return codes(transcript(input));
+    }
+
+    private List<String> transcript(String input) throws IOException {
+        try (Socket socket = new Socket("127.0.0.1", port)) {
+            socket.getOutputStream().write(input.getBytes(StandardCharsets.US_ASCII));
+            BufferedReader reader = reader(socket);
+            List<String> lines = new ArrayList<>();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lines.add(line);
+            }
+            return lines;
+        }
+    }
+
+    private List<String> codes(List<String> lines) {
+        List<String> codes = new ArrayList<>();
+        for (String line : lines) {
+            if (line.charAt(3) != '-') {
+                codes.add(line.substring(0, 3));
+            }
+        }
+        return codes;
+    }
+
+    private BufferedReader reader(Socket socket) throws IOException {
+        return new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+    }
+
+    private class RecordingHandler implements MessageHandler {
+
+        private String from;
+        private final List<String> recipients = new ArrayList<>();
+
+        @Override
+        public void from(String from) {
+            this.from = from;
+        }
+
+        @Override
+        public void recipient(String recipient) {
+            recipients.add(recipient);
+        }
+
+        @Override
+        public void data(InputStream data) throws IOException {
+            delivered.add(from + " " + recipients + " " + new String(data.readAllBytes(), StandardCharsets.US_ASCII));
+        }
+
+        @Override
+        public void done() {
+        }
+    }
+}
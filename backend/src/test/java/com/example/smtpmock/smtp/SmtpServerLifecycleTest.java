@@ -0,0 +1,107 @@
+package com.example.smtpmock.smtp;
+
+import com.example.smtpmock.metrics.CaptureMetrics;
+import com.example.smtpmock.model.ListenerStats;
+import com.example.smtpmock.service.EmailStoreService;
+import com.example.smtpmock.service.MailboxProperties;
+import com.example.smtpmock.service.MailboxRouter;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+class SmtpServerLifecycleTest {
+
+    private final EmailStoreService emailStoreService = new EmailStoreService(mock(ApplicationEventPublisher.class));
+    private final MessageDataReader dataReader = new MessageDataReader(new IngestProperties());
+    private SmtpServerLifecycle lifecycle;
+
+    @AfterEach
+    void tearDown() {
+        if (lifecycle != null) {
+            lifecycle.stop();
+        }
+    }
+
+    @Test
+    void startsEveryListenerAndCountsTrafficPerListener() throws Exception {
+        MailboxProperties mailboxProperties = new MailboxProperties();
+        mailboxProperties.setPartitionBy(MailboxProperties.Partitioning.PORT);
+        MockMessageListener messageListener = new MockMessageListener(emailStoreService,
+                new MailboxRouter(mailboxProperties), dataReader, CaptureMetrics.NOOP, 2525, false);
+        IngestPipeline pipeline = new IngestPipeline(messageListener, emailStoreService,
+                mock(ApplicationEventPublisher.class), new IngestProperties());
+        int functionalPort = freePort();
+        int loadPort = freePort();
+        SmtpListenerProperties properties = new SmtpListenerProperties();
+        properties.setListeners(List.of(listener("functional", functionalPort), listener("load", loadPort)));
+        lifecycle = new SmtpServerLifecycle(messageListener, pipeline, properties, dataReader, 2525);
+        lifecycle.start();
+
+        send(functionalPort, "Subject: One\r\n\r\nBody\r\n");
+        send(loadPort, "Subject: Two\r\n\r\nBody\r\n");
+        send(loadPort, "Subject: Three\r\n\r\nBody\r\n");
+
+        assertThat(emailStoreService.findAll(String.valueOf(functionalPort))).hasSize(1);
+        assertThat(emailStoreService.findAll(String.valueOf(loadPort))).hasSize(2);
+        List<ListenerStats> stats = lifecycle.getListenerStats();
+        assertThat(stats).extracting(ListenerStats::getName).containsExactly("functional", "load");
+        assertThat(stats).extracting(ListenerStats::getMessages).containsExactly(1L, 2L);
+        assertThat(stats).extracting(ListenerStats::getTotalConnections).containsExactly(1L, 2L);
+        assertThat(stats.get(0).getBytes()).isPositive();
+    }
+
+    private SmtpListenerProperties.Listener listener(String name, int port) {
+        SmtpListenerProperties.Listener listener = new SmtpListenerProperties.Listener();
+        listener.setName(name);
+        listener.setPort(port);
+        listener.setBindAddress("127.0.0.1");
+        return listener;
+    }
+
+    private void send(int port, String message) throws IOException {
+        try (Socket socket = new Socket("127.0.0.1", port)) {
+            BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+            Writer out = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.US_ASCII);
+            expect(in, "220");
+            command(in, out, "HELO test", "250");
+            command(in, out, "MAIL FROM:<sender@example.com>", "250");
+            command(in, out, "RCPT TO:<alice@example.com>", "250");
+            command(in, out, "DATA", "354");
+            command(in, out, message + ".", "250");
+            command(in, out, "QUIT", "221");
+        }
+    }
+
+    private void command(BufferedReader in, Writer out, String line, String expectedCode) throws IOException {
+        out.write(line + "\r\n");
+        out.flush();
+        expect(in, expectedCode);
+    }
+
+    private void expect(BufferedReader in, String expectedCode) throws IOException {
+        String reply;
+        do {
+            reply = in.readLine();
+        } while (reply != null && reply.length() > 3 && reply.charAt(3) == '-');
+        assertThat(reply).startsWith(expectedCode);
+    }
+
+    private int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
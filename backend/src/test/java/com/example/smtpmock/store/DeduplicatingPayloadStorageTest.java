@@ -0,0 +1,114 @@
+package com.example.smtpmock.store;
+
+import com.example.smtpmock.model.EmailAttachment;
+import com.example.smtpmock.model.EmailContent;
+import com.example.smtpmock.model.LazyContent;
+import com.example.smtpmock.model.RawMessage;
+import com.example.smtpmock.model.RawRegionSource;
+import com.example.smtpmock.model.StoredEmail;
+import org.junit.jupiter.api.Test;
+
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DeduplicatingPayloadStorageTest {
+
+    private static final String LOGO = "L".repeat(64);
+    private static final String TERMS = "T".repeat(48);
+
+    private final DeduplicatingPayloadStorage storage = new DeduplicatingPayloadStorage(16);
+
+    @Test
+    void identicalAttachmentBodiesAreStoredOnce() throws Exception {
+        StoredEmail first = createEmail("Subject: one\r\n\r\n", LOGO, "\r\n--b\r\n", TERMS, "\r\n--b--\r\n");
+        StoredEmail second = createEmail("Subject: second mail\r\n\r\n", LOGO, "\r\n--b\r\n", TERMS, "\r\n--b--\r\n");
+        String firstRaw = first.getRawMessage();
+
+        storage.store(first);
+        storage.store(second);
+
+        assertThat(storage.blobCount()).isEqualTo(2);
+        assertThat(storage.blobBytes()).isEqualTo(LOGO.length() + TERMS.length());
+        assertThat(first.getRawMessage()).isEqualTo(firstRaw);
+        assertThat(second.getAttachments().get(0).getData()).isEqualTo(LOGO.getBytes(StandardCharsets.US_ASCII));
+        assertThat(second.getAttachments().get(1).getData()).isEqualTo(TERMS.getBytes(StandardCharsets.US_ASCII));
+        try (InputStream spanning = first.getRaw().openStream(10, 20)) {
+            assertThat(spanning.readAllBytes()).isEqualTo(firstRaw.substring(10, 30).getBytes(StandardCharsets.US_ASCII));
+        }
+    }
+
+    @Test
+    void blobsAreDroppedWithTheirLastEmail() {
+        StoredEmail first = createEmail("A\r\n\r\n", LOGO, "\r\n", TERMS, "");
+        StoredEmail second = createEmail("B\r\n\r\n", LOGO, "\r\n", "t".repeat(48), "");
+        storage.store(first);
+        storage.store(second);
+        assertThat(storage.blobCount()).isEqualTo(3);
+
+        storage.release(first);
+        storage.release(first);
+
+        assertThat(storage.blobCount()).isEqualTo(2);
+        storage.release(second);
+        assertThat(storage.blobCount()).isZero();
+    }
+
+    @Test
+    void smallAttachmentsStayInline() {
+        StoredEmail email = createEmail("A\r\n\r\n", "tiny", "\r\n", "also tiny", "");
+
+        storage.store(email);
+
+        assertThat(storage.blobCount()).isZero();
+        assertThat(email.getRawMessage()).isEqualTo("A\r\n\r\ntiny\r\nalso tiny");
+    }
+
+    @Test
+    void lazilyParsedEmailsAreDeduplicatedToo() {
+        StoredEmail parsed = createEmail("A\r\n\r\n", LOGO, "\r\n", TERMS, "");
+        StoredEmail replayed = createEmail("B\r\n\r\n", LOGO, "\r\n", TERMS, "");
+        RawMessage raw = replayed.getRaw();
+        List<EmailAttachment> attachments = replayed.getAttachments();
+        StoredEmail lazy = new StoredEmail(replayed.getId(), "sender@example.com", List.of("recipient@example.com"),
+                List.of(), List.of(), "Subject", Instant.now(), raw,
+                new LazyContent(() -> new EmailContent("Body", attachments)));
+
+        storage.store(parsed);
+        storage.store(lazy);
+
+        assertThat(lazy.isContentLoaded()).isTrue();
+        assertThat(storage.blobCount()).isEqualTo(2);
+        assertThat(lazy.getRawMessage()).isEqualTo("B\r\n\r\n" + LOGO + "\r\n" + TERMS);
+    }
+
+    private StoredEmail createEmail(String head, String firstBody, String separator, String secondBody, String tail) {
+        String rawText = head + firstBody + separator + secondBody + tail;
+        RawMessage raw = new RawMessage(rawText.getBytes(StandardCharsets.US_ASCII));
+        int firstOffset = head.length();
+        int secondOffset = firstOffset + firstBody.length() + separator.length();
+        StoredEmail email = new StoredEmail(
+                UUID.randomUUID(),
+                "sender@example.com",
+                List.of("recipient@example.com"),
+                List.of(),
+                List.of(),
+                "Subject",
+                "Body",
+                Instant.now(),
+                null,
+                List.of(attachment(raw, firstOffset, firstBody.length()), attachment(raw, secondOffset, secondBody.length()))
+        );
+        email.setRaw(raw);
+        return email;
+    }
+
+    private EmailAttachment attachment(RawMessage raw, int offset, int length) {
+        return new EmailAttachment(UUID.randomUUID(), "file.bin", "application/octet-stream", length,
+                new RawRegionSource(raw, offset, length, null));
+    }
+}
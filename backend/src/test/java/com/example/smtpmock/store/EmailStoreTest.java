@@ -0,0 +1,146 @@
+package com.example.smtpmock.store;
+
+import com.example.smtpmock.model.EmailAttachment;
+import com.example.smtpmock.model.StoredEmail;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.Iterator;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class EmailStoreTest {
+
+    private final EmailStore store = new EmailStore();
+
+    @Test
+    void listsNewestFirstEvenWhenReceivedAtIsEqual() {
+        Instant now = Instant.parse("2023-01-01T10:15:30Z");
+        StoredEmail first = createEmail(now);
+        StoredEmail second = createEmail(now);
+        StoredEmail older = createEmail(now.minusSeconds(60));
+
+        store.add(first);
+        store.add(second);
+        store.add(older);
+
+        assertThat(store.findAll()).containsExactly(second, first, older);
+    }
+
+    @Test
+    void addingSameIdReplacesPreviousEntry() {
+        StoredEmail original = createEmail(Instant.now());
+        StoredEmail replacement = createEmail(Instant.now());
+        replacement.setId(original.getId());
+
+        store.add(original);
+        store.add(replacement);
+
+        assertThat(store.size()).isEqualTo(1);
+        assertThat(store.findAll()).containsExactly(replacement);
+        assertThat(store.findById(original.getId())).contains(replacement);
+    }
+
+    @Test
+    void removeDropsEntryFromIndexAndOrdering() {
+        StoredEmail email = createEmail(Instant.now());
+        store.add(email);
+
+        assertThat(store.remove(email.getId())).contains(email);
+        assertThat(store.remove(email.getId())).isEmpty();
+        assertThat(store.findById(email.getId())).isEmpty();
+        assertThat(store.findAll()).isEmpty();
+    }
+
+    @Test
+    void iteratorToleratesConcurrentModification() {
+        StoredEmail first = createEmail(Instant.now());
+        StoredEmail second = createEmail(Instant.now());
+        store.add(first);
+        store.add(second);
+
+        Iterator<StoredEmail> iterator = store.iterator();
+        while (iterator.hasNext()) {
+            store.remove(iterator.next().getId());
+        }
+
+        assertThat(store.size()).isZero();
+    }
+
+    @Test
+    void pageWalksFromCursorWithoutRepeatingEmails() {
+        Instant now = Instant.parse("2023-01-01T10:15:30Z");
+        StoredEmail first = createEmail(now.minusSeconds(30));
+        StoredEmail second = createEmail(now.minusSeconds(20));
+        StoredEmail third = createEmail(now.minusSeconds(10));
+        store.add(first);
+        store.add(second);
+        store.add(third);
+
+        List<PagedEmail> firstPage = store.page(null, 2);
+        List<PagedEmail> secondPage = store.page(firstPage.get(1).getPosition(), 2);
+
+        assertThat(firstPage).extracting(PagedEmail::getEmail).containsExactly(third, second);
+        assertThat(secondPage).extracting(PagedEmail::getEmail).containsExactly(first);
+    }
+
+    @Test
+    void pageResumesWhenCursorEmailWasRemoved() {
+        Instant now = Instant.parse("2023-01-01T10:15:30Z");
+        StoredEmail first = createEmail(now.minusSeconds(30));
+        StoredEmail second = createEmail(now.minusSeconds(20));
+        store.add(first);
+        store.add(second);
+        PageCursor cursor = store.page(null, 1).get(0).getPosition();
+        store.remove(second.getId());
+
+        assertThat(store.page(PageCursor.decode(cursor.encode()), 10))
+                .extracting(PagedEmail::getEmail)
+                .containsExactly(first);
+    }
+
+    @Test
+    void clearReturnsRemovedEmails() {
+        StoredEmail first = createEmail(Instant.now());
+        StoredEmail second = createEmail(Instant.now());
+        store.add(first);
+        store.add(second);
+
+        List<StoredEmail> removed = store.clear();
+
+        assertThat(removed).containsExactlyInAnyOrder(first, second);
+        assertThat(store.size()).isZero();
+    }
+
+    @Test
+    void countsAttachmentsInsideTheRawMessageOnlyOnce() {
+        EmailAttachment attachment = new EmailAttachment(UUID.randomUUID(), "file.bin",
+                "application/octet-stream", 4, new byte[] {1, 2, 3, 4});
+        StoredEmail parsed = new StoredEmail(UUID.randomUUID(), "sender@example.com",
+                List.of("recipient@example.com"), List.of(), List.of(), "Subject", "Body",
+                Instant.now(), "0123456789", List.of(attachment));
+        StoredEmail withoutRaw = new StoredEmail(UUID.randomUUID(), "sender@example.com",
+                List.of("recipient@example.com"), List.of(), List.of(), "Subject", "Body",
+                Instant.now(), null, List.of(attachment));
+
+        assertThat(EmailStore.sizeOf(parsed)).isEqualTo(10);
+        assertThat(EmailStore.sizeOf(withoutRaw)).isEqualTo(4);
+    }
+
+    private StoredEmail createEmail(Instant receivedAt) {
+        return new StoredEmail(
+                UUID.randomUUID(),
+                "sender@example.com",
+                List.of("recipient@example.com"),
+                List.of(),
+                List.of(),
+                "Subject",
+                "Body",
+                receivedAt,
+                "RAW",
+                List.of()
+        );
+    }
+}
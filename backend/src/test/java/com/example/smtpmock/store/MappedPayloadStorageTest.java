@@ -0,0 +1,138 @@
+package com.example.smtpmock.store;
+
+import com.example.smtpmock.model.EmailAttachment;
+import com.example.smtpmock.model.StoredEmail;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MappedPayloadStorageTest {
+
+    @TempDir
+    Path tempDir;
+
+    private MappedPayloadStorage storage;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        storage = new MappedPayloadStorage(tempDir.resolve("segments"), 16, 0.5);
+    }
+
+    @AfterEach
+    void tearDown() {
+        storage.close();
+    }
+
+    @Test
+    void storedPayloadsAreReadBackFromSegments() {
+        StoredEmail email = createEmail("0123456789", new byte[] {1, 2, 3});
+
+        storage.store(email);
+
+        assertThat(email.getRawMessage()).isEqualTo("0123456789");
+        assertThat(email.getAttachments().get(0).getSource()).isNotNull();
+        assertThat(email.getAttachments().get(0).getData()).isEqualTo(new byte[] {1, 2, 3});
+        assertThat(storage.liveBytes()).isEqualTo(13);
+    }
+
+    @Test
+    void compactsSealedSegmentsAndDeletesEmptyOnes() {
+        StoredEmail first = createEmail("0123456789", null);
+        StoredEmail second = createEmail("abcdefghij", null);
+        StoredEmail third = createEmail("ABCDEFGHIJ", null);
+        storage.store(first);
+        storage.store(second);
+        storage.store(third);
+        assertThat(storage.segmentCount()).isEqualTo(3);
+
+        storage.release(second);
+
+        assertThat(storage.segmentCount()).isEqualTo(2);
+        assertThat(first.getRawMessage()).isEqualTo("0123456789");
+        assertThat(third.getRawMessage()).isEqualTo("ABCDEFGHIJ");
+
+        storage.release(first);
+        storage.release(third);
+
+        assertThat(storage.liveBytes()).isZero();
+    }
+
+    @Test
+    void compactsSparseSegmentsInTheBackground() throws Exception {
+        storage.close();
+        storage = new MappedPayloadStorage(tempDir.resolve("sparse"), 32, 0.5);
+        StoredEmail first = createEmail("0123456789", null);
+        StoredEmail second = createEmail("abcdefghij", null);
+        StoredEmail third = createEmail("ABCDEFGHIJ", null);
+        StoredEmail fourth = createEmail("klmnopqrst", null);
+        storage.store(first);
+        storage.store(second);
+        storage.store(third);
+        storage.store(fourth);
+        assertThat(storage.segmentCount()).isEqualTo(2);
+
+        storage.release(first);
+        storage.release(second);
+        storage.awaitCompaction();
+
+        assertThat(storage.segmentCount()).isEqualTo(1);
+        assertThat(storage.liveBytes()).isEqualTo(20);
+        assertThat(third.getRawMessage()).isEqualTo("ABCDEFGHIJ");
+        assertThat(fourth.getRawMessage()).isEqualTo("klmnopqrst");
+    }
+
+    @Test
+    void closeDeletesSegmentFiles() throws IOException {
+        storage.store(createEmail("0123456789", null));
+
+        storage.close();
+
+        assertThat(Files.exists(tempDir.resolve("segments"))).isFalse();
+    }
+
+    @Test
+    void segmentsLeftByAnEarlierRunAreDeletedAtStartup() throws IOException {
+        Path directory = Files.createDirectories(tempDir.resolve("leftovers"));
+        Files.write(directory.resolve("segment-000000.dat"), new byte[16]);
+        Files.write(directory.resolve("segment-000001.dat"), new byte[16]);
+        storage.close();
+        storage = new MappedPayloadStorage(directory, 16, 0.5);
+
+        StoredEmail email = createEmail("0123456789", null);
+        storage.store(email);
+
+        assertThat(email.getRawMessage()).isEqualTo("0123456789");
+        try (Stream<Path> files = Files.list(directory)) {
+            assertThat(files.map(path -> path.getFileName().toString())).containsExactly("segment-000002.dat");
+        }
+    }
+
+    private StoredEmail createEmail(String raw, byte[] attachment) {
+        return new StoredEmail(
+                UUID.randomUUID(),
+                "sender@example.com",
+                List.of("recipient@example.com"),
+                List.of(),
+                List.of(),
+                "Subject",
+                "Body",
+                Instant.now(),
+                raw,
+                attachment != null
+                        ? List.of(new EmailAttachment(UUID.randomUUID(), "file.bin", "application/octet-stream",
+                                attachment.length, attachment))
+                        : List.of()
+        );
+    }
+}
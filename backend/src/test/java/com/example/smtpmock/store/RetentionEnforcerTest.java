@@ -0,0 +1,120 @@
+package com.example.smtpmock.store;
+
+import com.example.smtpmock.model.StoredEmail;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RetentionEnforcerTest {
+
+    private static final Instant NOW = Instant.parse("2023-01-01T10:15:30Z");
+
+    @Test
+    void unboundedPolicyNeverEvicts() {
+        EmailStore store = new EmailStore();
+        store.add(createEmail(NOW.minus(Duration.ofDays(365)), "RAW"));
+
+        RetentionEnforcer enforcer = new RetentionEnforcer(RetentionPolicy.UNBOUNDED);
+
+        assertThat(enforcer.enforce(store, NOW)).isEmpty();
+        assertThat(store.size()).isEqualTo(1);
+    }
+
+    @Test
+    void evictsOldestWhenMessageCountExceeded() {
+        EmailStore store = new EmailStore();
+        StoredEmail oldest = createEmail(NOW.minusSeconds(30), "RAW");
+        StoredEmail middle = createEmail(NOW.minusSeconds(20), "RAW");
+        StoredEmail newest = createEmail(NOW.minusSeconds(10), "RAW");
+        store.add(oldest);
+        store.add(middle);
+        store.add(newest);
+        RetentionEnforcer enforcer = new RetentionEnforcer(
+                new RetentionPolicy(2, 0, Duration.ZERO, EvictionPolicy.OLDEST_FIRST, 32));
+
+        List<StoredEmail> evicted = enforcer.enforce(store, NOW);
+
+        assertThat(evicted).containsExactly(oldest);
+        assertThat(store.findAll()).containsExactly(newest, middle);
+        assertThat(enforcer.getStats().getEvictedByCount()).isEqualTo(1);
+    }
+
+    @Test
+    void lruEvictsLeastRecentlyAccessed() {
+        EmailStore store = new EmailStore(true);
+        StoredEmail oldest = createEmail(NOW.minusSeconds(30), "RAW");
+        StoredEmail newest = createEmail(NOW.minusSeconds(10), "RAW");
+        store.add(oldest);
+        store.add(newest);
+        store.findById(oldest.getId());
+        RetentionEnforcer enforcer = new RetentionEnforcer(
+                new RetentionPolicy(1, 0, Duration.ZERO, EvictionPolicy.LRU, 32));
+
+        assertThat(enforcer.enforce(store, NOW)).containsExactly(newest);
+        assertThat(store.findAll()).containsExactly(oldest);
+    }
+
+    @Test
+    void evictsUntilTotalBytesFit() {
+        EmailStore store = new EmailStore();
+        StoredEmail first = createEmail(NOW.minusSeconds(30), "0123456789");
+        StoredEmail second = createEmail(NOW.minusSeconds(20), "0123456789");
+        StoredEmail third = createEmail(NOW.minusSeconds(10), "0123456789");
+        store.add(first);
+        store.add(second);
+        store.add(third);
+        RetentionEnforcer enforcer = new RetentionEnforcer(
+                new RetentionPolicy(0, 15, Duration.ZERO, EvictionPolicy.OLDEST_FIRST, 32));
+
+        assertThat(enforcer.enforce(store, NOW)).containsExactly(first, second);
+        assertThat(store.totalBytes()).isEqualTo(10);
+        assertThat(enforcer.getStats().getEvictedByBytes()).isEqualTo(2);
+    }
+
+    @Test
+    void evictsExpiredMessages() {
+        EmailStore store = new EmailStore();
+        StoredEmail expired = createEmail(NOW.minus(Duration.ofHours(2)), "RAW");
+        StoredEmail fresh = createEmail(NOW.minusSeconds(5), "RAW");
+        store.add(expired);
+        store.add(fresh);
+        RetentionEnforcer enforcer = new RetentionEnforcer(
+                new RetentionPolicy(0, 0, Duration.ofHours(1), EvictionPolicy.OLDEST_FIRST, 32));
+
+        assertThat(enforcer.enforce(store, NOW)).containsExactly(expired);
+        assertThat(enforcer.getStats().getEvictedByAge()).isEqualTo(1);
+    }
+
+    @Test
+    void evictsAtMostOneBatchPerCall() {
+        EmailStore store = new EmailStore();
+        for (int i = 0; i < 10; i++) {
+            store.add(createEmail(NOW.minusSeconds(100 - i), "RAW"));
+        }
+        RetentionEnforcer enforcer = new RetentionEnforcer(
+                new RetentionPolicy(2, 0, Duration.ZERO, EvictionPolicy.OLDEST_FIRST, 3));
+
+        assertThat(enforcer.enforce(store, NOW)).hasSize(3);
+        assertThat(store.size()).isEqualTo(7);
+    }
+
+    private StoredEmail createEmail(Instant receivedAt, String raw) {
+        return new StoredEmail(
+                UUID.randomUUID(),
+                "sender@example.com",
+                List.of("recipient@example.com"),
+                List.of(),
+                List.of(),
+                "Subject",
+                "Body",
+                receivedAt,
+                raw,
+                List.of()
+        );
+    }
+}
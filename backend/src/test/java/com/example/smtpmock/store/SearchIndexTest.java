@@ -0,0 +1,98 @@
+package com.example.smtpmock.store;
+
+import com.example.smtpmock.model.EmailContent;
+import com.example.smtpmock.model.LazyContent;
+import com.example.smtpmock.model.RawMessage;
+import com.example.smtpmock.model.StoredEmail;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SearchIndexTest {
+
+    private final SearchIndex index = new SearchIndex();
+
+    @Test
+    void matchesRecipientIgnoringDisplayNameAndCase() {
+        StoredEmail email = createEmail("Alice <Alice@Example.com>", "Welcome", "Hello there");
+        index.add(email);
+
+        assertThat(index.search(new SearchQuery("alice@example.com", null, null, null)))
+                .containsExactly(email.getId());
+        assertThat(index.search(new SearchQuery("bob@example.com", null, null, null))).isEmpty();
+    }
+
+    @Test
+    void intersectsAllCriteria() {
+        StoredEmail welcome = createEmail("alice@example.com", "Welcome aboard", "Your code is 1234");
+        StoredEmail reset = createEmail("alice@example.com", "Password reset", "Your code is 9876");
+        index.add(welcome);
+        index.add(reset);
+
+        assertThat(index.search(new SearchQuery("alice@example.com", null, "welcome", null)))
+                .containsExactly(welcome.getId());
+        assertThat(index.search(new SearchQuery(null, null, null, "code 9876")))
+                .containsExactly(reset.getId());
+        assertThat(index.search(new SearchQuery(null, "SENDER@example.com", null, "code")))
+                .containsExactlyInAnyOrder(welcome.getId(), reset.getId());
+    }
+
+    @Test
+    void freeTextMatchesSubjectOrBody() {
+        StoredEmail email = createEmail("alice@example.com", "Invoice ready", "See attachment");
+        index.add(email);
+
+        assertThat(index.search(new SearchQuery(null, null, null, "invoice"))).containsExactly(email.getId());
+        assertThat(index.search(new SearchQuery(null, null, null, "attachment"))).containsExactly(email.getId());
+    }
+
+    @Test
+    void removeDropsPostings() {
+        StoredEmail email = createEmail("alice@example.com", "Welcome", "Hello");
+        index.add(email);
+
+        index.remove(email);
+
+        assertThat(index.search(new SearchQuery("alice@example.com", null, null, null))).isEmpty();
+        assertThat(index.search(new SearchQuery(null, null, null, "hello"))).isEmpty();
+    }
+
+    @Test
+    void lazyBodiesAreIndexedOnFirstFreeTextQuery() {
+        StoredEmail email = new StoredEmail(UUID.randomUUID(), "sender@example.com", List.of("alice@example.com"),
+                List.of(), List.of(), "Welcome", Instant.now(), new RawMessage("RAW".getBytes(StandardCharsets.UTF_8)),
+                new LazyContent(() -> new EmailContent("token 4242", List.of())));
+        index.add(email);
+
+        assertThat(email.isContentLoaded()).isFalse();
+        assertThat(index.search(new SearchQuery(null, null, null, "4242"))).containsExactly(email.getId());
+        assertThat(email.isContentLoaded()).isTrue();
+    }
+
+    @Test
+    void emptyQueryMatchesNothing() {
+        index.add(createEmail("alice@example.com", "Welcome", "Hello"));
+
+        assertThat(index.search(new SearchQuery(" ", null, null, ""))).isEmpty();
+    }
+
+    private StoredEmail createEmail(String to, String subject, String body) {
+        return new StoredEmail(
+                UUID.randomUUID(),
+                "Sender <sender@example.com>",
+                List.of(to),
+                List.of(),
+                List.of(),
+                subject,
+                body,
+                Instant.now(),
+                "RAW",
+                List.of()
+        );
+    }
+}
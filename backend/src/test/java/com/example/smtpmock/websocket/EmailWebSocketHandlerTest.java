@@ -0,0 +1,214 @@
+package com.example.smtpmock.websocket;
+
+import com.example.smtpmock.model.StoredEmail;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.net.URI;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class EmailWebSocketHandlerTest {
+
+    private final EmailWebSocketHandler handler = new EmailWebSocketHandler(
+            new ObjectMapper().registerModule(new JavaTimeModule()), new WebSocketProperties());
+
+    @AfterEach
+    void tearDown() {
+        handler.destroy();
+    }
+
+    @Test
+    void stalledSessionDoesNotDelayOthers() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        WebSocketSession stalled = session("stalled");
+        doAnswer(invocation -> {
+            release.await();
+            return null;
+        }).when(stalled).sendMessage(any());
+        WebSocketSession healthy = session("healthy");
+        handler.afterConnectionEstablished(stalled);
+        handler.afterConnectionEstablished(healthy);
+
+        handler.broadcastEmail(createEmail());
+
+        verify(healthy, timeout(5000)).sendMessage(any(TextMessage.class));
+        release.countDown();
+        verify(stalled, timeout(5000)).sendMessage(any(TextMessage.class));
+    }
+
+    @Test
+    void framesReachEachSessionInPublicationOrder() throws Exception {
+        List<String> received = new CopyOnWriteArrayList<>();
+        WebSocketSession session = session("ordered");
+        when(session.getUri()).thenReturn(URI.create("ws://localhost/ws/emails?payload=summary"));
+        doAnswer(invocation -> {
+            received.add(invocation.getArgument(0, TextMessage.class).getPayload());
+            return null;
+        }).when(session).sendMessage(any());
+        handler.afterConnectionEstablished(session);
+
+        List<String> subjects = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            StoredEmail email = createEmail();
+            email.setSubject("email-" + i);
+            subjects.add("email-" + i);
+            handler.broadcastEmail(email);
+        }
+
+        verify(session, timeout(5000).times(50)).sendMessage(any(TextMessage.class));
+        assertThat(received).extracting(payload -> payload.replaceAll(".*\"subject\":\"([^\"]+)\".*", "$1"))
+                .containsExactlyElementsOf(subjects);
+    }
+
+    @Test
+    void broadcastsPastTheDispatchQueueAreDroppedInsteadOfRunInline() throws Exception {
+        CountDownLatch dispatching = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        StoredEmail blocking = new StoredEmail(UUID.randomUUID(), "sender@example.com", List.of("recipient@example.com"),
+                List.of(), List.of(), "Subject", "Body", Instant.now(), "RAW", List.of()) {
+            @Override
+            public String getSubject() {
+                dispatching.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return super.getSubject();
+            }
+        };
+        WebSocketSession session = session("one");
+        handler.afterConnectionEstablished(session);
+
+        handler.broadcastEmail(blocking);
+        assertThat(dispatching.await(5, TimeUnit.SECONDS)).isTrue();
+        for (int i = 0; i < 1025; i++) {
+            handler.broadcastEmail(createEmail());
+        }
+
+        assertThat(handler.droppedBroadcasts()).isEqualTo(1);
+        release.countDown();
+        verify(session, timeout(10000).times(1025)).sendMessage(any(TextMessage.class));
+    }
+
+    @Test
+    void slowSessionsOverTheBufferLimitAreDisconnected() throws Exception {
+        WebSocketProperties properties = new WebSocketProperties();
+        properties.setBufferSizeLimit(DataSize.ofBytes(1));
+        properties.setSlowConsumer(WebSocketProperties.SlowConsumerPolicy.DISCONNECT);
+        EmailWebSocketHandler limited = new EmailWebSocketHandler(
+                new ObjectMapper().registerModule(new JavaTimeModule()), properties);
+        CountDownLatch release = new CountDownLatch(1);
+        WebSocketSession stalled = session("stalled");
+        doAnswer(invocation -> {
+            release.await();
+            return null;
+        }).when(stalled).sendMessage(any());
+        try {
+            limited.afterConnectionEstablished(stalled);
+
+            limited.broadcastEmail(createEmail());
+            limited.broadcastEmail(createEmail());
+            limited.broadcastEmail(createEmail());
+
+            verify(stalled, timeout(5000)).close(CloseStatus.SESSION_NOT_RELIABLE);
+            assertThat(limited.sessionCount()).isZero();
+        } finally {
+            release.countDown();
+            limited.destroy();
+        }
+    }
+
+    @Test
+    void summarySessionsReceiveCompactFrames() throws Exception {
+        WebSocketSession full = session("full");
+        WebSocketSession summary = session("summary");
+        when(summary.getUri()).thenReturn(URI.create("ws://localhost/ws/emails?payload=summary"));
+        handler.afterConnectionEstablished(full);
+        handler.afterConnectionEstablished(summary);
+
+        handler.broadcastEmail(createEmail());
+
+        assertThat(sentPayload(full)).contains("\"rawMessage\"");
+        assertThat(sentPayload(summary))
+                .contains("\"size\":3")
+                .doesNotContain("rawMessage")
+                .doesNotContain("\"body\"");
+    }
+
+    @Test
+    void batchedSessionsReceiveSummaryArrays() throws Exception {
+        WebSocketSession batched = session("batched");
+        when(batched.getUri()).thenReturn(URI.create("ws://localhost/ws/emails?batch=true"));
+        handler.afterConnectionEstablished(batched);
+
+        handler.broadcastEmail(createEmail());
+
+        assertThat(sentPayload(batched)).startsWith("[{").contains("\"subject\":\"Subject\"");
+    }
+
+    @Test
+    void subscribedSessionsOnlyReceiveMatchingEmails() throws Exception {
+        WebSocketSession filtered = session("filtered");
+        WebSocketSession everything = session("everything");
+        handler.afterConnectionEstablished(filtered);
+        handler.afterConnectionEstablished(everything);
+        handler.handleTextMessage(filtered,
+                new TextMessage("{\"type\":\"subscribe\",\"filters\":[{\"recipient\":\"@team-a.test\"}]}"));
+
+        handler.broadcastEmail(createEmail());
+
+        verify(everything, timeout(5000)).sendMessage(any(TextMessage.class));
+        verify(filtered, never()).sendMessage(any(TextMessage.class));
+    }
+
+    @Test
+    void closedSessionsAreForgotten() {
+        WebSocketSession session = session("one");
+        handler.afterConnectionEstablished(session);
+
+        handler.afterConnectionClosed(session, CloseStatus.NORMAL);
+
+        assertThat(handler.sessionCount()).isZero();
+    }
+
+    private String sentPayload(WebSocketSession session) throws Exception {
+        ArgumentCaptor<TextMessage> captor = ArgumentCaptor.forClass(TextMessage.class);
+        verify(session, timeout(5000)).sendMessage(captor.capture());
+        return captor.getValue().getPayload();
+    }
+
+    private WebSocketSession session(String id) {
+        WebSocketSession session = mock(WebSocketSession.class);
+        when(session.getId()).thenReturn(id);
+        when(session.isOpen()).thenReturn(true);
+        return session;
+    }
+
+    private StoredEmail createEmail() {
+        return new StoredEmail(UUID.randomUUID(), "sender@example.com", List.of("recipient@example.com"),
+                List.of(), List.of(), "Subject", "Body", Instant.now(), "RAW", List.of());
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.smtpmock.websocket;
+
+import com.example.smtpmock.model.StoredEmail;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SubscriptionIndexTest {
+
+    private final SubscriptionIndex index = new SubscriptionIndex();
+
+    @Test
+    void routesByRecipientDomainAndAddress() {
+        index.subscribe("team-a", List.of(new EmailFilter("@team-a.test", null, null)));
+        index.subscribe("alice", List.of(new EmailFilter("Alice <ALICE@team-b.test>", null, null)));
+        index.subscribe("team-c", List.of(new EmailFilter("team-c.test", null, null)));
+
+        assertThat(index.match(createEmail("bob@team-a.test", "sender@example.com", "Hi")))
+                .containsExactly("team-a");
+        assertThat(index.match(createEmail("alice@team-b.test", "sender@example.com", "Hi")))
+                .containsExactly("alice");
+    }
+
+    @Test
+    void appliesEveryConditionOfAFilter() {
+        index.subscribe("resets", List.of(new EmailFilter("@team-a.test", "noreply@example.com", "Password")));
+
+        assertThat(index.match(createEmail("bob@team-a.test", "noreply@example.com", "password reset")))
+                .containsExactly("resets");
+        assertThat(index.match(createEmail("bob@team-a.test", "noreply@example.com", "Welcome"))).isEmpty();
+        assertThat(index.match(createEmail("bob@team-a.test", "other@example.com", "Password reset"))).isEmpty();
+    }
+
+    @Test
+    void matchesSenderDomainAndSubjectPrefixOnlyFilters() {
+        index.subscribe("sender", List.of(new EmailFilter(null, "example.com", null)));
+        index.subscribe("subject", List.of(new EmailFilter(null, null, "[CI]")));
+
+        assertThat(index.match(createEmail("bob@team-a.test", "Robot <robot@example.com>", "[ci] build")))
+                .containsExactlyInAnyOrder("sender", "subject");
+    }
+
+    @Test
+    void unfilteredSessionsReceiveEverythingUntilTheySubscribe() {
+        index.subscribe("all", null);
+        assertThat(index.match(createEmail("bob@team-a.test", "sender@example.com", "Hi"))).containsExactly("all");
+
+        index.subscribe("all", List.of(new EmailFilter("@team-z.test", null, null)));
+        assertThat(index.match(createEmail("bob@team-a.test", "sender@example.com", "Hi"))).isEmpty();
+
+        index.remove("all");
+        assertThat(index.match(createEmail("bob@team-z.test", "sender@example.com", "Hi"))).isEmpty();
+    }
+
+    private StoredEmail createEmail(String to, String from, String subject) {
+        return new StoredEmail(UUID.randomUUID(), from, List.of(to), List.of(), List.of(), subject, "Body",
+                Instant.now(), "RAW", List.of());
+    }
+}